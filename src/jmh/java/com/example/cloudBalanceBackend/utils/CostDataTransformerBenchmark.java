@@ -0,0 +1,119 @@
+package com.example.cloudBalanceBackend.utils;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+// Compares the columnar CostPivot against the previous map-based transform.
+// Run with: ./gradlew jmh
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CostDataTransformerBenchmark {
+
+    // 10 ~ groupBy=service, 100000 ~ groupBy=resource
+    @Param({"10", "1000", "100000"})
+    private int groups;
+
+    @Param({"12"})
+    private int months;
+
+    private List<Map<String, Object>> rows;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        rows = new ArrayList<>(groups * months);
+        for (int m = 0; m < months; m++) {
+            String month = String.format("2024-%02d", m + 1);
+            for (int g = 0; g < groups; g++) {
+                // Sparse like real data: not every group has cost in every month
+                if (random.nextInt(10) == 0) {
+                    continue;
+                }
+                Map<String, Object> row = new HashMap<>();
+                row.put("group", "group-" + g);
+                row.put("month", month);
+                row.put("cost", random.nextDouble() * 1000);
+                rows.add(row);
+            }
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> legacyTransform() {
+        return legacy(rows, "resource");
+    }
+
+    @Benchmark
+    public Map<String, Object> pivotTransform() {
+        return CostPivot.from(rows, "resource").toResponse();
+    }
+
+    // Transform plus a full walk of the output, as the JSON serializer does
+    @Benchmark
+    public void legacyTransformAndWalk(Blackhole bh) {
+        walk(legacy(rows, "resource"), bh);
+    }
+
+    @Benchmark
+    public void pivotTransformAndWalk(Blackhole bh) {
+        walk(CostPivot.from(rows, "resource").toResponse(), bh);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void walk(Map<String, Object> response, Blackhole bh) {
+        for (Map<String, Object> row : (List<Map<String, Object>>) response.get("data")) {
+            for (Map.Entry<String, Object> entry : row.entrySet()) {
+                bh.consume(entry.getKey());
+                bh.consume(entry.getValue());
+            }
+        }
+    }
+
+    // The map-based CostDataTransformer.transform this benchmark was introduced against
+    private static Map<String, Object> legacy(List<Map<String, Object>> data, String groupBy) {
+        Map<String, Map<String, Double>> groupedData = new LinkedHashMap<>();
+        Set<String> monthsSet = new TreeSet<>();
+
+        for (Map<String, Object> row : data) {
+            String group = (String) row.get("group");
+            String month = (String) row.get("month");
+            Object costObj = row.get("cost");
+
+            if (group == null || month == null || costObj == null) {
+                continue;
+            }
+
+            Double cost = costObj instanceof Double ? (Double) costObj : 0.0;
+            monthsSet.add(month);
+
+            groupedData.putIfAbsent(group, new HashMap<>());
+            groupedData.get(group).put(month, cost);
+        }
+
+        List<Map<String, Object>> formattedData = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Double>> entry : groupedData.entrySet()) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("name", entry.getKey());
+
+            for (String month : monthsSet) {
+                row.put(month, entry.getValue().getOrDefault(month, 0.0));
+            }
+
+            formattedData.add(row);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("data", formattedData);
+        response.put("months", new ArrayList<>(monthsSet));
+        response.put("groupBy", groupBy);
+
+        return response;
+    }
+}
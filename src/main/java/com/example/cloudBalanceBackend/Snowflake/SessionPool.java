@@ -0,0 +1,233 @@
+package com.example.cloudBalanceBackend.Snowflake;
+
+import com.example.cloudBalanceBackend.exception.SnowflakeException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Bounded pool of Snowpark Sessions with per-query checkout/return.
+// Sessions are created on demand up to maxSize, validated before reuse when they have been idle
+// for a while, and closed by a scheduled eviction pass once idle longer than the idle timeout.
+// Idle sessions are reused most-recently-returned first so the coldest ones age out.
+// Generic over the session type so the pooling can be exercised without a live connection;
+// SnowflakeSessionPool binds it to Snowpark Sessions.
+@Slf4j
+public class SessionPool<S> implements AutoCloseable {
+
+    private final Supplier<S> sessionFactory;
+    // Throws when the session can no longer be used
+    private final Consumer<S> validator;
+    private final Consumer<S> closer;
+    private final int maxSize;
+    private final int minIdle;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long validationIntervalMillis;
+
+    private final LinkedBlockingDeque<PooledSession<S>> idle = new LinkedBlockingDeque<>();
+    // One permit per session that may be checked out at the same time
+    private final Semaphore permits;
+    private final AtomicInteger totalSessions = new AtomicInteger();
+    private volatile boolean closed;
+
+    private final AtomicLong borrows = new AtomicLong();
+    private final AtomicLong waits = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong destroyed = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+
+    public SessionPool(Supplier<S> sessionFactory, Consumer<S> validator, Consumer<S> closer,
+                       int maxSize, int minIdle,
+                       long borrowTimeoutMillis, long idleTimeoutMillis, long validationIntervalMillis) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Snowflake session pool size must be at least 1");
+        }
+        this.sessionFactory = sessionFactory;
+        this.validator = validator;
+        this.closer = closer;
+        this.maxSize = maxSize;
+        this.minIdle = Math.min(minIdle, maxSize);
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.validationIntervalMillis = validationIntervalMillis;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    // Open minIdle sessions up front; failures are logged and sessions are created on demand instead
+    public void warmUp() {
+        for (int i = idle.size(); i < minIdle; i++) {
+            try {
+                idle.offerLast(createSession());
+            } catch (Exception e) {
+                log.warn("Could not pre-open Snowflake session: {}", e.getMessage());
+                return;
+            }
+        }
+        log.info("Snowflake session pool ready: maxSize={}, idle={}", maxSize, idle.size());
+    }
+
+    // Run work on a checked-out session; the session is returned to the pool afterwards
+    public <T> T execute(Function<S, T> work) {
+        PooledSession<S> pooled = borrow();
+        try {
+            return work.apply(pooled.session);
+        } finally {
+            release(pooled);
+        }
+    }
+
+    private PooledSession<S> borrow() {
+        if (closed) {
+            throw new SnowflakeException("Snowflake session pool is closed", null);
+        }
+
+        borrows.incrementAndGet();
+        if (!permits.tryAcquire()) {
+            waits.incrementAndGet();
+            long waitStart = System.nanoTime();
+            try {
+                boolean acquired = permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS);
+                totalWaitNanos.addAndGet(System.nanoTime() - waitStart);
+                if (!acquired) {
+                    timeouts.incrementAndGet();
+                    throw new SnowflakeException("Timed out waiting for a Snowflake session after "
+                            + borrowTimeoutMillis + " ms (pool size " + maxSize + ")", null);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SnowflakeException("Interrupted while waiting for a Snowflake session", e);
+            }
+        }
+
+        try {
+            PooledSession<S> pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (needsValidation(pooled) && !isValid(pooled)) {
+                    validationFailures.incrementAndGet();
+                    destroy(pooled);
+                    continue;
+                }
+                return pooled;
+            }
+            return createSession();
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void release(PooledSession<S> pooled) {
+        pooled.lastUsed = System.currentTimeMillis();
+        if (closed) {
+            destroy(pooled);
+        } else {
+            idle.offerFirst(pooled);
+        }
+        permits.release();
+    }
+
+    // Close sessions idle longer than the idle timeout, keeping at least minIdle open
+    @Scheduled(fixedDelayString = "${snowflake.pool.eviction-interval-ms:60000}")
+    public void evictIdleSessions() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        int evicted = 0;
+
+        Iterator<PooledSession<S>> it = idle.descendingIterator();
+        while (it.hasNext() && idle.size() > minIdle) {
+            PooledSession<S> pooled = it.next();
+            if (pooled.lastUsed < cutoff && idle.remove(pooled)) {
+                destroy(pooled);
+                evicted++;
+            }
+        }
+
+        if (evicted > 0) {
+            log.info("Evicted {} idle Snowflake sessions, {} remaining", evicted, totalSessions.get());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        int active = maxSize - permits.availablePermits();
+        long waited = waits.get();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxSize", maxSize);
+        stats.put("totalSessions", totalSessions.get());
+        stats.put("activeSessions", active);
+        stats.put("idleSessions", idle.size());
+        stats.put("waitingThreads", permits.getQueueLength());
+        stats.put("saturation", (double) active / maxSize);
+        stats.put("borrows", borrows.get());
+        stats.put("waits", waited);
+        stats.put("avgWaitMillis", waited == 0 ? 0.0 : totalWaitNanos.get() / 1_000_000.0 / waited);
+        stats.put("timeouts", timeouts.get());
+        stats.put("created", created.get());
+        stats.put("destroyed", destroyed.get());
+        stats.put("validationFailures", validationFailures.get());
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        PooledSession<S> pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled);
+        }
+        log.info("Snowflake session pool closed");
+    }
+
+    private PooledSession<S> createSession() {
+        S session = sessionFactory.get();
+        totalSessions.incrementAndGet();
+        created.incrementAndGet();
+        log.debug("Opened Snowflake session ({} total)", totalSessions.get());
+        return new PooledSession<>(session);
+    }
+
+    private boolean needsValidation(PooledSession<S> pooled) {
+        return System.currentTimeMillis() - pooled.lastUsed >= validationIntervalMillis;
+    }
+
+    private boolean isValid(PooledSession<S> pooled) {
+        try {
+            validator.accept(pooled.session);
+            return true;
+        } catch (Exception e) {
+            log.warn("Discarding broken Snowflake session: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void destroy(PooledSession<S> pooled) {
+        totalSessions.decrementAndGet();
+        destroyed.incrementAndGet();
+        try {
+            closer.accept(pooled.session);
+        } catch (Exception e) {
+            log.debug("Error closing Snowflake session: {}", e.getMessage());
+        }
+    }
+
+    private static final class PooledSession<S> {
+        private final S session;
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        private PooledSession(S session) {
+            this.session = session;
+        }
+    }
+}
@@ -24,8 +24,33 @@ public class SnowflakeConfig {
     @Value("${snowflake.schema}")
     private String schema;
 
-    @Bean
-    public Session createSession(){
+    @Value("${snowflake.pool.max-size:8}")
+    private int poolMaxSize;
+    @Value("${snowflake.pool.min-idle:1}")
+    private int poolMinIdle;
+    @Value("${snowflake.pool.borrow-timeout-ms:10000}")
+    private long poolBorrowTimeoutMs;
+    @Value("${snowflake.pool.idle-timeout-seconds:600}")
+    private long poolIdleTimeoutSeconds;
+    @Value("${snowflake.pool.validation-interval-seconds:60}")
+    private long poolValidationIntervalSeconds;
+
+    // Pool of Sessions so concurrent cost queries do not serialize on one connection
+    @Bean(destroyMethod = "close")
+    public SnowflakeSessionPool snowflakeSessionPool() {
+        SnowflakeSessionPool pool = new SnowflakeSessionPool(
+                this::createSession,
+                poolMaxSize,
+                poolMinIdle,
+                poolBorrowTimeoutMs,
+                poolIdleTimeoutSeconds * 1000,
+                poolValidationIntervalSeconds * 1000
+        );
+        pool.warmUp();
+        return pool;
+    }
+
+    private Session createSession(){
         Map<String,String> properties = new HashMap<>();
         properties.put("URL",url);
         properties.put("USER",user);
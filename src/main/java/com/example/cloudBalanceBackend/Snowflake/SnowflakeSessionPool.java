@@ -0,0 +1,15 @@
+package com.example.cloudBalanceBackend.Snowflake;
+
+import com.snowflake.snowpark.Session;
+
+import java.util.function.Supplier;
+
+// Session pool for Snowpark Sessions: idle sessions are validated with SELECT 1 before reuse
+public class SnowflakeSessionPool extends SessionPool<Session> {
+
+    public SnowflakeSessionPool(Supplier<Session> sessionFactory, int maxSize, int minIdle,
+                                long borrowTimeoutMillis, long idleTimeoutMillis, long validationIntervalMillis) {
+        super(sessionFactory, session -> session.sql("SELECT 1").collect(), Session::close,
+                maxSize, minIdle, borrowTimeoutMillis, idleTimeoutMillis, validationIntervalMillis);
+    }
+}
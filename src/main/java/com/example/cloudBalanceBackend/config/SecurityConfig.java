@@ -85,14 +85,15 @@ public class SecurityConfig {
                 List.of("GET", "POST", "PUT", "DELETE", "OPTIONS")
         );
 
-        // Headers browser is allowed to send
+        // Headers browser is allowed to send; cost endpoints are POSTs, so the client echoes
+        // the ETag in If-None-Match itself
         config.setAllowedHeaders(
-                List.of("Authorization", "Content-Type")
+                List.of("Authorization", "Content-Type", "If-None-Match")
         );
 
         // Headers browser can read
         config.setExposedHeaders(
-                List.of("Authorization")
+                List.of("Authorization", "ETag")
         );
 
         UrlBasedCorsConfigurationSource source =
@@ -1,17 +1,40 @@
 package com.example.cloudBalanceBackend.controller;
 
+import com.example.cloudBalanceBackend.dto.CostDrillDownRequest;
+import com.example.cloudBalanceBackend.dto.CostExplorerBatchRequest;
 import com.example.cloudBalanceBackend.dto.CostExplorerRequest;
+import com.example.cloudBalanceBackend.exception.AccountNotAssignedException;
+import com.example.cloudBalanceBackend.service.CostDrillDownService;
+import com.example.cloudBalanceBackend.service.CostQueryJobService;
+import com.example.cloudBalanceBackend.service.DataVersionTracker;
 import com.example.cloudBalanceBackend.service.DashboardService;
+import com.example.cloudBalanceBackend.service.aws.AwsService;
+import com.example.cloudBalanceBackend.service.cost.CostComparison;
+import com.example.cloudBalanceBackend.service.cost.CostDimensions;
+import com.example.cloudBalanceBackend.service.cost.CostFilterValueIndex;
+import com.example.cloudBalanceBackend.service.cost.CostPage;
+import com.example.cloudBalanceBackend.service.cost.CostPageToken;
 import com.example.cloudBalanceBackend.service.snowflake.SnowflakeService;
 import com.example.cloudBalanceBackend.utils.CostDataTransformer;
+import com.example.cloudBalanceBackend.utils.CostPivot;
+import com.example.cloudBalanceBackend.utils.JsonStrings;
+import com.example.cloudBalanceBackend.utils.MessagePackWriter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
 
 @Slf4j
 @RestController
@@ -22,10 +45,20 @@ public class DashboardController {
     private final DashboardService dashboardService;
     private final SnowflakeService snowflakeService;
     private final CostDataTransformer transformer;
+    private final CostQueryJobService costQueryJobService;
+    private final CostDrillDownService costDrillDownService;
+    private final CostFilterValueIndex filterValueIndex;
+    private final DataVersionTracker dataVersionTracker;
+    private final AwsService awsService;
+
+    private static final int STREAM_FLUSH_ROWS = 500;
+    static final String APPLICATION_MSGPACK_VALUE = "application/x-msgpack";
+    private static final int MAX_FILTER_VALUES = 1000;
 
     @PostMapping("/cost-explorer")
     public ResponseEntity<Map<String, Object>> getCostExplorer(
             @RequestBody CostExplorerRequest request,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
             Authentication auth) {
 
         log.info("Received cost explorer request: groupBy={}, startDate={}, endDate={}",
@@ -37,20 +70,32 @@ public class DashboardController {
                         .body(Map.of("error", "groupBy, startDate, and endDate are required"));
             }
 
+            // Unchanged data answers a repeated poll without running the query
+            Map<String, List<String>> filters = scopedFilters(request.getFilters(), request.getAccountId(), auth);
+            String eTag = costETag("json", request, filters);
+            if (DataVersionTracker.matches(ifNoneMatch, eTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+            }
+
+            if (request.getPageSize() != null) {
+                return ResponseEntity.ok().eTag(eTag).body(getCostExplorerPage(request, filters));
+            }
+
             List<Map<String, Object>> costData = dashboardService.getCostExplorer(
-                    auth,
-                    request.getAccountId(),
+                    null,
+                    null,
                     request.getGroupBy(),
                     request.getStartDate(),
                     request.getEndDate(),
-                    request.getFilters() != null ? request.getFilters() : new HashMap<>()
+                    filters,
+                    request.getTopN()
             );
 
             log.info("Fetched {} rows from Snowflake", costData.size());
 
             Map<String, Object> response = transformer.transform(costData, request.getGroupBy());
 
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().eTag(eTag).body(response);
 
         } catch (IllegalArgumentException e) {
             log.error("Invalid request: {}", e.getMessage());
@@ -63,6 +108,370 @@ public class DashboardController {
         }
     }
 
+    // Keyset-paginated mode: one page of groups plus the token for the next page (null on the last page)
+    private Map<String, Object> getCostExplorerPage(CostExplorerRequest request, Map<String, List<String>> filters) {
+        if (request.getTopN() != null) {
+            throw new IllegalArgumentException("topN cannot be combined with pageSize");
+        }
+
+        CostPage page = dashboardService.getCostExplorerPage(
+                null,
+                null,
+                request.getGroupBy(),
+                request.getStartDate(),
+                request.getEndDate(),
+                filters,
+                request.getPageSize(),
+                request.getPageToken()
+        );
+
+        log.info("Fetched page of {} rows", page.rows().size());
+
+        Map<String, Object> response = transformer.transform(page.rows(), request.getGroupBy());
+        response.put("pageSize", request.getPageSize());
+        response.put("nextPageToken", CostPageToken.encode(page));
+        return response;
+    }
+
+    // Streaming mode: rows are written as NDJSON while Snowflake yields them (Accept: application/x-ndjson)
+    @PostMapping(value = "/cost-explorer", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamCostExplorer(
+            @RequestBody CostExplorerRequest request,
+            Authentication auth) {
+
+        log.info("Received streaming cost explorer request: groupBy={}, startDate={}, endDate={}",
+                request.getGroupBy(), request.getStartDate(), request.getEndDate());
+
+        if (request.getGroupBy() == null || request.getStartDate() == null || request.getEndDate() == null) {
+            return errorStream(HttpStatus.BAD_REQUEST, "groupBy, startDate, and endDate are required");
+        }
+
+        // Resolve everything that can fail before the response is committed
+        Map<String, List<String>> filters;
+        try {
+            CostDimensions.resolveColumn(request.getGroupBy());
+            if (request.getTopN() != null && request.getTopN() < 1) {
+                throw new IllegalArgumentException("topN must be at least 1");
+            }
+            filters = dashboardService.resolveCostFilters(
+                    auth,
+                    request.getAccountId(),
+                    request.getFilters() != null ? request.getFilters() : new HashMap<>()
+            );
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid request: {}", e.getMessage());
+            return errorStream(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (AccountNotAssignedException e) {
+            return errorStream(HttpStatus.FORBIDDEN, e.getMessage());
+        }
+
+        StreamingResponseBody body = out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            long[] rows = {0};
+            try {
+                dashboardService.streamCostExplorer(
+                        request.getGroupBy(),
+                        request.getStartDate(),
+                        request.getEndDate(),
+                        filters,
+                        request.getTopN(),
+                        (group, month, cost) -> {
+                            try {
+                                writer.write("{\"group\":");
+                                JsonStrings.append(writer, group);
+                                writer.write(",\"month\":");
+                                JsonStrings.append(writer, month);
+                                writer.write(",\"cost\":");
+                                writer.write(Double.toString(cost));
+                                writer.write("}\n");
+                                // Flush periodically so the client starts receiving rows early
+                                if (++rows[0] % STREAM_FLUSH_ROWS == 0) {
+                                    writer.flush();
+                                }
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        }
+                );
+            } catch (UncheckedIOException e) {
+                log.warn("Client stopped reading cost stream after {} rows", rows[0]);
+                return;
+            } catch (Exception e) {
+                // Status is already committed; report the failure as a final NDJSON line
+                log.error("Error streaming cost explorer response", e);
+                writer.write("{\"error\":");
+                JsonStrings.append(writer, "Internal server error: " + e.getMessage());
+                writer.write("}\n");
+            }
+            writer.flush();
+            log.info("Streamed {} cost rows", rows[0]);
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    // Binary mode (Accept: application/x-msgpack): the pivot is encoded as columnar MessagePack
+    // straight from its arrays, skipping the per-row map views and JSON serialization
+    @PostMapping(value = "/cost-explorer", produces = APPLICATION_MSGPACK_VALUE)
+    public ResponseEntity<StreamingResponseBody> getCostExplorerMessagePack(
+            @RequestBody CostExplorerRequest request,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            Authentication auth) {
+
+        log.info("Received MessagePack cost explorer request: groupBy={}, startDate={}, endDate={}",
+                request.getGroupBy(), request.getStartDate(), request.getEndDate());
+
+        if (request.getGroupBy() == null || request.getStartDate() == null || request.getEndDate() == null) {
+            return errorStream(HttpStatus.BAD_REQUEST, "groupBy, startDate, and endDate are required");
+        }
+        if (request.getPageSize() != null) {
+            return errorStream(HttpStatus.BAD_REQUEST, "pageSize is not supported for " + APPLICATION_MSGPACK_VALUE);
+        }
+
+        String eTag;
+        CostPivot pivot;
+        try {
+            Map<String, List<String>> filters = scopedFilters(request.getFilters(), request.getAccountId(), auth);
+            eTag = costETag("msgpack", request, filters);
+            if (DataVersionTracker.matches(ifNoneMatch, eTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+            }
+
+            List<Map<String, Object>> costData = dashboardService.getCostExplorer(
+                    null,
+                    null,
+                    request.getGroupBy(),
+                    request.getStartDate(),
+                    request.getEndDate(),
+                    filters,
+                    request.getTopN()
+            );
+            pivot = transformer.pivot(costData, request.getGroupBy());
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid request: {}", e.getMessage());
+            return errorStream(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (AccountNotAssignedException e) {
+            return errorStream(HttpStatus.FORBIDDEN, e.getMessage());
+        } catch (Exception e) {
+            log.error("Error processing cost explorer request", e);
+            return errorStream(HttpStatus.INTERNAL_SERVER_ERROR, "Internal server error: " + e.getMessage());
+        }
+
+        log.info("Encoding {} groups x {} months as MessagePack", pivot.getGroupCount(), pivot.getMonthCount());
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .contentType(MediaType.parseMediaType(APPLICATION_MSGPACK_VALUE))
+                .body(out -> pivot.writeTo(new MessagePackWriter(out)));
+    }
+
+    // Comparison mode: this period vs the previous one per group, with the top movers ranked by absolute change
+    @PostMapping("/cost-explorer/compare")
+    public ResponseEntity<Map<String, Object>> compareCostExplorer(
+            @RequestBody CostExplorerRequest request,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            Authentication auth) {
+
+        log.info("Received cost comparison request: groupBy={}, startDate={}, endDate={}, compareStartDate={}, compareEndDate={}",
+                request.getGroupBy(), request.getStartDate(), request.getEndDate(),
+                request.getCompareStartDate(), request.getCompareEndDate());
+
+        try {
+            if (request.getGroupBy() == null || request.getStartDate() == null || request.getEndDate() == null) {
+                return ResponseEntity.badRequest()
+                        .body(Map.of("error", "groupBy, startDate, and endDate are required"));
+            }
+
+            Map<String, List<String>> filters = scopedFilters(request.getFilters(), request.getAccountId(), auth);
+            String eTag = costETag("compare", request, filters);
+            if (DataVersionTracker.matches(ifNoneMatch, eTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+            }
+
+            CostComparison comparison = dashboardService.getCostComparison(
+                    null,
+                    null,
+                    request.getGroupBy(),
+                    request.getStartDate(),
+                    request.getEndDate(),
+                    request.getCompareStartDate(),
+                    request.getCompareEndDate(),
+                    filters,
+                    request.getTopN()
+            );
+
+            List<Map<String, Object>> movers = new ArrayList<>();
+            for (CostComparison.Mover mover : comparison.movers()) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("name", mover.group());
+                row.put("current", mover.currentCost());
+                row.put("previous", mover.previousCost());
+                row.put("delta", mover.delta());
+                row.put("percentChange", mover.percentChange());
+                movers.add(row);
+            }
+
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("groupBy", request.getGroupBy());
+            response.put("currentTotal", comparison.currentTotal());
+            response.put("previousTotal", comparison.previousTotal());
+            response.put("movers", movers);
+            return ResponseEntity.ok().eTag(eTag).body(response);
+
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid request: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error processing cost comparison request", e);
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("error", "Internal server error: " + e.getMessage()));
+        }
+    }
+
+    // Batch mode: several widgets with different groupBy over the same dates and filters, answered by one scan
+    @PostMapping("/cost-explorer/batch")
+    public ResponseEntity<Map<String, Object>> getCostExplorerBatch(
+            @RequestBody CostExplorerBatchRequest request,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            Authentication auth) {
+
+        log.info("Received batch cost explorer request: groupBys={}, startDate={}, endDate={}",
+                request.getGroupBys(), request.getStartDate(), request.getEndDate());
+
+        try {
+            if (request.getGroupBys() == null || request.getGroupBys().isEmpty()
+                    || request.getStartDate() == null || request.getEndDate() == null) {
+                return ResponseEntity.badRequest()
+                        .body(Map.of("error", "groupBys, startDate, and endDate are required"));
+            }
+            List<String> groupBys = request.getGroupBys().stream().distinct().toList();
+            groupBys.forEach(CostDimensions::resolveColumn);
+            if (request.getTopN() != null && request.getTopN() < 1) {
+                throw new IllegalArgumentException("topN must be at least 1");
+            }
+
+            Map<String, List<String>> filters = scopedFilters(request.getFilters(), request.getAccountId(), auth);
+            String eTag = costETag("batch", request, filters);
+            if (DataVersionTracker.matches(ifNoneMatch, eTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+            }
+
+            Map<String, List<Map<String, Object>>> costData = dashboardService.getCostExplorerBatch(
+                    null,
+                    null,
+                    groupBys,
+                    request.getStartDate(),
+                    request.getEndDate(),
+                    filters,
+                    request.getTopN()
+            );
+
+            Map<String, Object> response = new LinkedHashMap<>();
+            costData.forEach((groupBy, rows) -> response.put(groupBy, transformer.transform(rows, groupBy)));
+            return ResponseEntity.ok().eTag(eTag).body(response);
+
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid request: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error processing batch cost explorer request", e);
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("error", "Internal server error: " + e.getMessage()));
+        }
+    }
+
+    // Drill-down: one level of a groupBy path, filtered by the values selected above it
+    @PostMapping("/cost-explorer/drilldown")
+    public ResponseEntity<Map<String, Object>> drillDown(
+            @RequestBody CostDrillDownRequest request,
+            Authentication auth) {
+
+        log.info("Received drill-down request: path={}, selection={}", request.getPath(), request.getSelection());
+
+        try {
+            return ResponseEntity.ok(costDrillDownService.getLevel(request, auth));
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid request: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", e.getMessage()));
+        } catch (AccountNotAssignedException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error processing drill-down request", e);
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("error", "Internal server error: " + e.getMessage()));
+        }
+    }
+
+    // Distinct values of a filter dimension for dropdowns, optionally narrowed by a prefix
+    @GetMapping("/cost-explorer/filter-values")
+    public ResponseEntity<Map<String, Object>> filterValues(
+            @RequestParam String dimension,
+            @RequestParam(required = false) String prefix,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(required = false) String accountId,
+            Authentication auth) {
+
+        try {
+            // CUSTOMER users only see the values of their own account
+            List<String> scope = dashboardService.resolveCostFilters(auth, accountId, new HashMap<>()).get("accountId");
+            List<String> values = filterValueIndex.search(
+                    dimension,
+                    scope != null ? scope.get(0) : null,
+                    prefix,
+                    Math.max(1, Math.min(limit, MAX_FILTER_VALUES))
+            );
+
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("dimension", dimension);
+            response.put("prefix", prefix);
+            response.put("values", values);
+            return ResponseEntity.ok(response);
+
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid request: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Async mode: queue the query and return a job id to poll
+    @PostMapping("/cost-explorer/jobs")
+    public ResponseEntity<Map<String, Object>> submitCostQueryJob(
+            @RequestBody CostExplorerRequest request,
+            Authentication auth) {
+
+        log.info("Received async cost explorer request: groupBy={}, startDate={}, endDate={}",
+                request.getGroupBy(), request.getStartDate(), request.getEndDate());
+
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(costQueryJobService.submit(request, auth));
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid request: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .body(Map.of("error", "Too many queued cost queries, try again shortly"));
+        }
+    }
+
+    @GetMapping("/cost-explorer/jobs/{jobId}")
+    public ResponseEntity<Map<String, Object>> getCostQueryJob(
+            @PathVariable String jobId,
+            Authentication auth) {
+
+        return costQueryJobService.getJob(jobId, auth)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Job not found: " + jobId)));
+    }
+
     @GetMapping("/cost-explorer/test")
     public ResponseEntity<?> testSnowflakeConnection() {
         log.info("Testing Snowflake connection...");
@@ -84,6 +493,25 @@ public class DashboardController {
         }
     }
 
+    // Under the public /cost-explorer/** path, so the role check is enforced here
+    @GetMapping("/cost-explorer/cache-stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> cacheStats() {
+        return ResponseEntity.ok(snowflakeService.getCacheStats());
+    }
+
+    @GetMapping("/cost-explorer/pool-stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> poolStats() {
+        return ResponseEntity.ok(snowflakeService.getPoolStats());
+    }
+
+    @GetMapping("/aws-services/client-stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> awsClientStats() {
+        return ResponseEntity.ok(awsService.getClientStats());
+    }
+
     @GetMapping("/cost-explorer/simple-test")
     public ResponseEntity<?> simpleTest() {
         log.info("Simple test - fetching data from Snowflake");
@@ -108,13 +536,62 @@ public class DashboardController {
         }
     }
 
+    private ResponseEntity<StreamingResponseBody> errorStream(HttpStatus status, String message) {
+        return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> {
+                    Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                    writer.write("{\"error\":");
+                    JsonStrings.append(writer, message);
+                    writer.write("}");
+                    writer.flush();
+                });
+    }
+
     @GetMapping("/aws-services")
     public ResponseEntity<Map<String, Object>> awsServices(
             @RequestParam(required = false) String accountId,
+            @RequestParam(defaultValue = "false") boolean refresh,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
             Authentication auth) {
 
-        return ResponseEntity.ok(
-                dashboardService.getAwsServices(auth, accountId)
+        String scope = dashboardService.resolveAwsAccount(auth, accountId);
+        Long version = refresh ? null : dashboardService.getAwsServicesVersion(scope);
+        if (version != null) {
+            String eTag = dataVersionTracker.eTag("aws-services:" + scope, version);
+            if (DataVersionTracker.matches(ifNoneMatch, eTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+            }
+        }
+
+        Map<String, Object> data = dashboardService.getAwsServices(auth, accountId, refresh);
+        version = dashboardService.getAwsServicesVersion(scope);
+        if (version == null) {
+            return ResponseEntity.ok(data);
+        }
+        return ResponseEntity.ok()
+                .eTag(dataVersionTracker.eTag("aws-services:" + scope, version))
+                .body(data);
+    }
+
+    // The request filters scoped to the caller (a CUSTOMER's own account), resolved once per request.
+    // Service calls given these filters pass no auth, so the scope is not resolved again.
+    private Map<String, List<String>> scopedFilters(Map<String, List<String>> filters, String accountId,
+                                                    Authentication auth) {
+        return dashboardService.resolveCostFilters(
+                auth,
+                accountId,
+                filters != null ? new HashMap<>(filters) : new HashMap<>()
+        );
+    }
+
+    // Strong ETag of a cost response: the representation, the request, the caller's account scope
+    // and the data version of those accounts
+    private String costETag(String representation, Object request, Map<String, List<String>> scopedFilters) {
+        List<String> scope = scopedFilters.get("accountId");
+        return dataVersionTracker.eTag(
+                representation + ":" + scope + ":" + request,
+                dataVersionTracker.getVersion(scope)
         );
     }
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.example.cloudBalanceBackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+// One level of a drill-down such as service -> usageType -> resource.
+// selection holds the value picked at each level above the requested one,
+// so the requested level is path[selection.size()].
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CostDrillDownRequest {
+    private List<String> path;
+    private List<String> selection;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private Map<String, List<String>> filters;
+    private String accountId;
+    private Integer topN;
+}
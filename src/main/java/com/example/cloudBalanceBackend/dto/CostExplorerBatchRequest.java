@@ -0,0 +1,23 @@
+package com.example.cloudBalanceBackend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+// Several cost-explorer widgets that share dates and filters but differ in groupBy
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CostExplorerBatchRequest {
+    private List<String> groupBys;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private Map<String, List<String>> filters;
+    private String accountId;
+    // Optional: applied to every groupBy
+    private Integer topN;
+}
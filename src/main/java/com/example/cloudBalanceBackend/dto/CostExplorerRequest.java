@@ -19,5 +19,13 @@ public class CostExplorerRequest {
     private LocalDate endDate;
     private Map<String, List<String>> filters;
     private String accountId;
+    // Optional: keep the N most expensive groups and fold the rest into an "Others" series
+    private Integer topN;
+    // Optional keyset pagination over groups: page size, and the nextPageToken of the previous page
+    private Integer pageSize;
+    private String pageToken;
+    // Comparison mode: the period to compare against; defaults to the same number of days just before startDate
+    private LocalDate compareStartDate;
+    private LocalDate compareEndDate;
 
 }
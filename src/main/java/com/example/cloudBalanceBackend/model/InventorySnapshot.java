@@ -0,0 +1,43 @@
+package com.example.cloudBalanceBackend.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+// One crawl of an account's AWS inventory; accountId "all" holds the sum over onboarded accounts
+// (the backend's own account while none are onboarded). Snapshots are append-only, the latest per
+// account is the one served. A partial snapshot leaves the columns of failed services empty and,
+// for "all", lists the accounts missing from the sums.
+@Entity
+@Table(name = "inventory_snapshots",
+        indexes = @Index(name = "idx_inventory_account_captured", columnList = "accountId, capturedAt"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class InventorySnapshot {
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(nullable = false, length = 36)
+    private String accountId;
+
+    private String region;
+
+    private Integer ec2RunningInstances;
+    private Integer ec2StoppedInstances;
+    private Integer s3Buckets;
+    private Integer lambdaFunctions;
+
+    private Boolean partial;
+
+    // Comma-separated account IDs
+    @Column(columnDefinition = "text")
+    private String failedAccounts;
+
+    @Column(nullable = false)
+    private Instant capturedAt;
+}
@@ -0,0 +1,15 @@
+package com.example.cloudBalanceBackend.repository;
+
+import com.example.cloudBalanceBackend.model.InventorySnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+
+public interface InventorySnapshotRepository extends JpaRepository<InventorySnapshot, String> {
+    Optional<InventorySnapshot> findFirstByAccountIdOrderByCapturedAtDesc(String accountId);
+
+    @Transactional
+    long deleteByCapturedAtBefore(Instant cutoff);
+}
@@ -0,0 +1,176 @@
+package com.example.cloudBalanceBackend.service;
+
+import com.example.cloudBalanceBackend.dto.CostDrillDownRequest;
+import com.example.cloudBalanceBackend.exception.AccountNotAssignedException;
+import com.example.cloudBalanceBackend.service.cost.CostDimensions;
+import com.example.cloudBalanceBackend.service.cost.CostRollupCube;
+import com.example.cloudBalanceBackend.utils.CostDataTransformer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Hierarchical drill-down over the cost explorer (e.g. service -> usageType -> resource).
+// Each level is an ordinary cost query filtered by the values selected above it, so expanding a node
+// only aggregates that node's rows, and repeated levels are served by the data source's result cache.
+// After a level is returned, the children of its most expensive nodes are queried in the background
+// through the same DashboardService path as an expand, so expanding a sibling is usually a cache hit.
+// Children the rollup cube can answer are not prefetched.
+@Slf4j
+@Service
+public class CostDrillDownService {
+
+    private final DashboardService dashboardService;
+    private final CostRollupCube rollupCube;
+    private final CostDataTransformer transformer;
+    private final int prefetchChildren;
+
+    // Prefetch is best effort: when the queue is full, new prefetches are dropped
+    private final ThreadPoolExecutor prefetchExecutor;
+
+    public CostDrillDownService(
+            DashboardService dashboardService,
+            CostRollupCube rollupCube,
+            CostDataTransformer transformer,
+            @Value("${cost-explorer.drilldown.prefetch-children:5}") int prefetchChildren,
+            @Value("${cost-explorer.drilldown.prefetch-threads:2}") int prefetchThreads,
+            @Value("${cost-explorer.drilldown.prefetch-queue-capacity:100}") int queueCapacity) {
+        this.dashboardService = dashboardService;
+        this.rollupCube = rollupCube;
+        this.transformer = transformer;
+        this.prefetchChildren = prefetchChildren;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.prefetchExecutor = new ThreadPoolExecutor(
+                prefetchThreads, prefetchThreads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "cost-drilldown-prefetch-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.DiscardPolicy()
+        );
+    }
+
+    public Map<String, Object> getLevel(CostDrillDownRequest request, Authentication auth) {
+        List<String> path = request.getPath();
+        List<String> selection = request.getSelection() != null ? request.getSelection() : List.of();
+        if (path == null || path.isEmpty() || request.getStartDate() == null || request.getEndDate() == null) {
+            throw new IllegalArgumentException("path, startDate, and endDate are required");
+        }
+        if (new HashSet<>(path).size() != path.size()) {
+            throw new IllegalArgumentException("path must not repeat a dimension");
+        }
+        path.forEach(CostDimensions::resolveColumn);
+        if (selection.size() >= path.size()) {
+            throw new IllegalArgumentException("selection must be shorter than path");
+        }
+        if (request.getTopN() != null && request.getTopN() < 1) {
+            throw new IllegalArgumentException("topN must be at least 1");
+        }
+
+        int depth = selection.size();
+        String groupBy = path.get(depth);
+
+        Map<String, List<String>> baseFilters = dashboardService.resolveCostFilters(
+                auth,
+                request.getAccountId(),
+                request.getFilters() != null ? new HashMap<>(request.getFilters()) : new HashMap<>()
+        );
+        Map<String, List<String>> levelFilters = new HashMap<>(baseFilters);
+        for (int i = 0; i < depth; i++) {
+            levelFilters.put(path.get(i), narrow(path.get(i), selection.get(i), baseFilters.get(path.get(i))));
+        }
+
+        // Filters are already scoped to the caller, so no auth is passed down
+        List<Map<String, Object>> rows = dashboardService.getCostExplorer(
+                null, null, groupBy, request.getStartDate(), request.getEndDate(), levelFilters, request.getTopN());
+
+        int prefetched = 0;
+        if (depth + 1 < path.size()) {
+            prefetched = prefetchChildren(rows, path.get(depth + 1), groupBy, levelFilters, request);
+        }
+
+        Map<String, Object> response = transformer.transform(rows, groupBy);
+        response.put("path", path);
+        response.put("selection", selection);
+        response.put("depth", depth);
+        response.put("prefetchedChildren", prefetched);
+        return response;
+    }
+
+    // A selection can only narrow the caller's filters: on a dimension that is already filtered, such as
+    // the accountId resolved for a customer, it must be one of the filtered values
+    private static List<String> narrow(String dimension, String value, List<String> allowed) {
+        if (allowed != null && !allowed.isEmpty() && !allowed.contains(value)) {
+            if (dimension.equals("accountId")) {
+                throw new AccountNotAssignedException("Account not assigned to user: " + value);
+            }
+            throw new IllegalArgumentException("selection " + value + " is outside the " + dimension + " filter");
+        }
+        return List.of(value);
+    }
+
+    // Queue the child level of the most expensive nodes of this level; returns how many were queued
+    private int prefetchChildren(
+            List<Map<String, Object>> rows,
+            String childGroupBy,
+            String groupBy,
+            Map<String, List<String>> levelFilters,
+            CostDrillDownRequest request
+    ) {
+        Map<String, Double> totals = new HashMap<>();
+        for (Map<String, Object> row : rows) {
+            String group = (String) row.get("group");
+            // The top-N fold is many nodes, not a value that can be filtered on; a real "Others" group is kept
+            if (group == null || group.isEmpty() || group.equals(CostDimensions.OTHERS_GROUP)) {
+                continue;
+            }
+            totals.merge(group, ((Number) row.get("cost")).doubleValue(), Double::sum);
+        }
+
+        List<String> nodes = totals.entrySet().stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+                .limit(prefetchChildren)
+                .map(Map.Entry::getKey)
+                .toList();
+
+        LocalDate startDate = request.getStartDate();
+        LocalDate endDate = request.getEndDate();
+        Integer topN = request.getTopN();
+        int queued = 0;
+        for (String node : nodes) {
+            Map<String, List<String>> childFilters = new HashMap<>(levelFilters);
+            childFilters.put(groupBy, List.of(node));
+            // Levels the rollup cube answers (e.g. under an accountId node) are cheap already
+            if (rollupCube.canServe(childGroupBy, startDate, endDate, childFilters)) {
+                continue;
+            }
+            queued++;
+            prefetchExecutor.execute(() -> {
+                try {
+                    dashboardService.getScopedCostData(childGroupBy, startDate, endDate, childFilters, topN);
+                } catch (Exception e) {
+                    log.debug("Drill-down prefetch of {} under {}={} failed: {}",
+                            childGroupBy, groupBy, node, e.getMessage());
+                }
+            });
+        }
+        return queued;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        prefetchExecutor.shutdownNow();
+    }
+}
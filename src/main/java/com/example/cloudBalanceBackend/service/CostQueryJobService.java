@@ -0,0 +1,223 @@
+package com.example.cloudBalanceBackend.service;
+
+import com.example.cloudBalanceBackend.dto.CostExplorerRequest;
+import com.example.cloudBalanceBackend.model.JobStatus;
+import com.example.cloudBalanceBackend.service.cost.CostDimensions;
+import com.example.cloudBalanceBackend.utils.CostDataTransformer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs cost-explorer queries as background jobs so long-range or resource-level queries
+// do not hold a request thread. Jobs run on a bounded executor and are kept in memory
+// until they have been finished for longer than the retention period; each owner keeps at most
+// maxJobsPerOwner of them, the oldest finished ones making room for new submissions.
+@Slf4j
+@Service
+public class CostQueryJobService {
+
+    private final DashboardService dashboardService;
+    private final CostDataTransformer transformer;
+
+    private final ThreadPoolExecutor executor;
+    private final Map<String, CostQueryJob> jobs = new ConcurrentHashMap<>();
+    private final Duration retention;
+    private final int maxJobsPerOwner;
+
+    public CostQueryJobService(
+            DashboardService dashboardService,
+            CostDataTransformer transformer,
+            @Value("${cost-explorer.jobs.threads:4}") int threads,
+            @Value("${cost-explorer.jobs.queue-capacity:50}") int queueCapacity,
+            @Value("${cost-explorer.jobs.retention-minutes:30}") long retentionMinutes,
+            @Value("${cost-explorer.jobs.max-per-owner:20}") int maxJobsPerOwner) {
+        this.dashboardService = dashboardService;
+        this.transformer = transformer;
+        this.retention = Duration.ofMinutes(retentionMinutes);
+        this.maxJobsPerOwner = maxJobsPerOwner;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                threads, threads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "cost-query-job-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    // Validate and scope the request on the caller's thread, then queue it.
+    // Throws RejectedExecutionException when the job queue is full or the owner has too many active jobs.
+    public Map<String, Object> submit(CostExplorerRequest request, Authentication auth) {
+        if (request.getGroupBy() == null || request.getStartDate() == null || request.getEndDate() == null) {
+            throw new IllegalArgumentException("groupBy, startDate, and endDate are required");
+        }
+        CostDimensions.resolveColumn(request.getGroupBy());
+        if (request.getTopN() != null && request.getTopN() < 1) {
+            throw new IllegalArgumentException("topN must be at least 1");
+        }
+
+        Map<String, List<String>> filters = dashboardService.resolveCostFilters(
+                auth,
+                request.getAccountId(),
+                request.getFilters() != null ? new HashMap<>(request.getFilters()) : new HashMap<>()
+        );
+
+        CostQueryJob job = new CostQueryJob(UUID.randomUUID().toString(), ownerOf(auth), request.getGroupBy());
+        register(job);
+
+        try {
+            executor.execute(() -> run(job, request, filters));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            log.warn("Cost query job queue is full, rejecting job for groupBy={}", request.getGroupBy());
+            throw e;
+        }
+
+        log.info("Submitted cost query job {} for groupBy={}", job.id, request.getGroupBy());
+        return job.toView(false);
+    }
+
+    // Status of a job, including its result once completed; empty if unknown or owned by someone else
+    public Optional<Map<String, Object>> getJob(String jobId, Authentication auth) {
+        CostQueryJob job = jobs.get(jobId);
+        if (job == null || !job.ownerId.equals(ownerOf(auth))) {
+            return Optional.empty();
+        }
+        return Optional.of(job.toView(true));
+    }
+
+    private void run(CostQueryJob job, CostExplorerRequest request, Map<String, List<String>> filters) {
+        job.status = JobStatus.PROCESSING;
+        job.startedAt = Instant.now();
+
+        try {
+            // Same path as the synchronous endpoint, so whole-month queries are served from the rollup cube
+            List<Map<String, Object>> costData = dashboardService.getScopedCostData(
+                    request.getGroupBy(),
+                    request.getStartDate(),
+                    request.getEndDate(),
+                    filters,
+                    request.getTopN()
+            );
+            job.rowCount = costData.size();
+            job.result = transformer.transform(costData, request.getGroupBy());
+            // completedAt is written before the status, so a finished status always comes with it
+            job.completedAt = Instant.now();
+            job.status = JobStatus.COMPLETED;
+            log.info("Cost query job {} completed with {} rows", job.id, costData.size());
+        } catch (Exception e) {
+            log.error("Cost query job {} failed: {}", job.id, e.getMessage(), e);
+            job.errorMessage = e.getMessage();
+            job.completedAt = Instant.now();
+            job.status = JobStatus.FAILED;
+        }
+    }
+
+    // Make room for the job within its owner's limit by dropping the owner's oldest finished jobs
+    private synchronized void register(CostQueryJob job) {
+        List<CostQueryJob> owned = jobs.values().stream()
+                .filter(other -> other.ownerId.equals(job.ownerId))
+                .sorted(Comparator.comparing(other -> other.createdAt))
+                .toList();
+
+        int excess = owned.size() + 1 - maxJobsPerOwner;
+        for (CostQueryJob other : owned) {
+            if (excess <= 0) {
+                break;
+            }
+            if (other.completedAt != null) {
+                jobs.remove(other.id);
+                excess--;
+            }
+        }
+        if (excess > 0) {
+            log.warn("Owner {} already has {} active cost query jobs, rejecting job", job.ownerId, owned.size());
+            throw new RejectedExecutionException("Too many active cost query jobs for " + job.ownerId);
+        }
+
+        jobs.put(job.id, job);
+    }
+
+    // Drop finished jobs once their results have been retained long enough
+    @Scheduled(fixedDelayString = "${cost-explorer.jobs.cleanup-interval-ms:60000}")
+    public void removeExpiredJobs() {
+        Instant cutoff = Instant.now().minus(retention);
+        int before = jobs.size();
+        jobs.values().removeIf(job -> job.completedAt != null && job.completedAt.isBefore(cutoff));
+        int removed = before - jobs.size();
+        if (removed > 0) {
+            log.info("Removed {} expired cost query jobs", removed);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private String ownerOf(Authentication auth) {
+        return auth != null ? auth.getName() : "anonymous";
+    }
+
+    private static final class CostQueryJob {
+        private final String id;
+        private final String ownerId;
+        private final String groupBy;
+        private final Instant createdAt = Instant.now();
+
+        private volatile JobStatus status = JobStatus.PENDING;
+        private volatile Instant startedAt;
+        private volatile Instant completedAt;
+        private volatile Integer rowCount;
+        private volatile String errorMessage;
+        private volatile Map<String, Object> result;
+
+        private CostQueryJob(String id, String ownerId, String groupBy) {
+            this.id = id;
+            this.ownerId = ownerId;
+            this.groupBy = groupBy;
+        }
+
+        private Map<String, Object> toView(boolean includeResult) {
+            JobStatus current = status;
+            Instant end = completedAt != null ? completedAt : Instant.now();
+
+            Map<String, Object> view = new LinkedHashMap<>();
+            view.put("jobId", id);
+            view.put("status", current);
+            view.put("groupBy", groupBy);
+            view.put("createdAt", createdAt.toString());
+            if (startedAt != null) {
+                view.put("startedAt", startedAt.toString());
+                view.put("elapsedMillis", Duration.between(startedAt, end).toMillis());
+            }
+            if (completedAt != null) {
+                view.put("completedAt", completedAt.toString());
+            }
+            if (current == JobStatus.COMPLETED) {
+                view.put("rowCount", rowCount);
+                if (includeResult) {
+                    view.put("result", result);
+                }
+            }
+            if (current == JobStatus.FAILED) {
+                view.put("error", errorMessage);
+            }
+            return view;
+        }
+    }
+}
@@ -4,15 +4,23 @@ import com.example.cloudBalanceBackend.exception.AccountNotAssignedException;
 import com.example.cloudBalanceBackend.exception.AccountRequiredException;
 import com.example.cloudBalanceBackend.model.Role;
 import com.example.cloudBalanceBackend.repository.UserAccountRepository;
-import com.example.cloudBalanceBackend.service.aws.AwsService;
-import com.example.cloudBalanceBackend.service.snowflake.SnowflakeService;
+import com.example.cloudBalanceBackend.service.aws.AwsInventoryService;
+import com.example.cloudBalanceBackend.service.cost.CostComparison;
+import com.example.cloudBalanceBackend.service.cost.CostDataSource;
+import com.example.cloudBalanceBackend.service.cost.CostPage;
+import com.example.cloudBalanceBackend.service.cost.CostPageToken;
+import com.example.cloudBalanceBackend.service.cost.CostRollupCube;
+import com.example.cloudBalanceBackend.service.cost.CostRowConsumer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -21,8 +29,11 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class DashboardService {
 
-    private final SnowflakeService snowflakeService;
-    private final AwsService awsService;
+    private static final int MAX_PAGE_SIZE = 10_000;
+
+    private final CostDataSource costDataSource;
+    private final CostRollupCube rollupCube;
+    private final AwsInventoryService inventoryService;
     private final UserAccountRepository uaRepo;
 
     public List<Map<String, Object>> getCostExplorer(
@@ -32,9 +43,190 @@ public class DashboardService {
             LocalDate startDate,
             LocalDate endDate,
             Map<String, List<String>> filters
+    ) {
+        return getCostExplorer(auth, accountId, groupBy, startDate, endDate, filters, null);
+    }
+
+    public List<Map<String, Object>> getCostExplorer(
+            Authentication auth,
+            String accountId,
+            String groupBy,
+            LocalDate startDate,
+            LocalDate endDate,
+            Map<String, List<String>> filters,
+            Integer topN
     ) {
         log.info("DashboardService: Getting cost data for groupBy={}", groupBy);
 
+        return getScopedCostData(groupBy, startDate, endDate, resolveCostFilters(auth, accountId, filters), topN);
+    }
+
+    // Cost rows for filters already scoped by resolveCostFilters, e.g. by a background job
+    public List<Map<String, Object>> getScopedCostData(
+            String groupBy,
+            LocalDate startDate,
+            LocalDate endDate,
+            Map<String, List<String>> filters,
+            Integer topN
+    ) {
+        // Whole-month, unfiltered or account-only requests are served from the rollup cube
+        List<Map<String, Object>> rollup = new ArrayList<>();
+        if (rollupCube.stream(groupBy, startDate, endDate, filters, topN, (group, month, cost) -> {
+            Map<String, Object> row = new HashMap<>();
+            row.put("group", group);
+            row.put("month", month);
+            row.put("cost", cost);
+            rollup.add(row);
+        })) {
+            return rollup;
+        }
+
+        // Fetch data from the configured cost data source (Snowflake or the local engine)
+        log.info("Calling cost data source to fetch data...");
+        List<Map<String, Object>> result = costDataSource.getCostData(
+                groupBy,
+                startDate,
+                endDate,
+                filters,
+                topN
+        );
+
+        log.info("Received {} rows from cost data source", result.size());
+        return result;
+    }
+
+    // One page of groups in ascending order; pageToken is the nextPageToken of the previous page, if any
+    public CostPage getCostExplorerPage(
+            Authentication auth,
+            String accountId,
+            String groupBy,
+            LocalDate startDate,
+            LocalDate endDate,
+            Map<String, List<String>> filters,
+            int pageSize,
+            String pageToken
+    ) {
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("pageSize must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        log.info("DashboardService: Getting cost data page for groupBy={}, pageSize={}", groupBy, pageSize);
+
+        filters = resolveCostFilters(auth, accountId, filters);
+        CostPage page = costDataSource.getCostDataPage(
+                groupBy,
+                startDate,
+                endDate,
+                filters,
+                pageSize,
+                CostPageToken.decode(pageToken)
+        );
+
+        log.info("Received {} rows from cost data source, hasMore={}", page.rows().size(), page.hasMore());
+        return page;
+    }
+
+    // Current vs previous period per group, ranked by absolute change. Without explicit compare dates,
+    // the previous period is the same number of days immediately before startDate.
+    public CostComparison getCostComparison(
+            Authentication auth,
+            String accountId,
+            String groupBy,
+            LocalDate startDate,
+            LocalDate endDate,
+            LocalDate compareStartDate,
+            LocalDate compareEndDate,
+            Map<String, List<String>> filters,
+            Integer limit
+    ) {
+        if (startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("startDate must not be after endDate");
+        }
+        if ((compareStartDate == null) != (compareEndDate == null)) {
+            throw new IllegalArgumentException("compareStartDate and compareEndDate must be given together");
+        }
+        if (compareStartDate == null) {
+            long days = ChronoUnit.DAYS.between(startDate, endDate) + 1;
+            compareEndDate = startDate.minusDays(1);
+            compareStartDate = startDate.minusDays(days);
+        } else if (compareStartDate.isAfter(compareEndDate)) {
+            throw new IllegalArgumentException("compareStartDate must not be after compareEndDate");
+        }
+        if (limit != null && limit < 1) {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+        log.info("DashboardService: Comparing {}..{} with {}..{} for groupBy={}",
+                startDate, endDate, compareStartDate, compareEndDate, groupBy);
+
+        filters = resolveCostFilters(auth, accountId, filters);
+        return costDataSource.getCostComparison(
+                groupBy, startDate, endDate, compareStartDate, compareEndDate, filters, limit);
+    }
+
+    // Several groupBy dimensions sharing dates and filters (dashboard widgets), keyed by groupBy in request order.
+    // Dimensions the rollup cube can answer skip the data source; the rest go to it as one batch.
+    public Map<String, List<Map<String, Object>>> getCostExplorerBatch(
+            Authentication auth,
+            String accountId,
+            List<String> groupBys,
+            LocalDate startDate,
+            LocalDate endDate,
+            Map<String, List<String>> filters,
+            Integer topN
+    ) {
+        log.info("DashboardService: Getting batched cost data for groupBys={}", groupBys);
+
+        filters = resolveCostFilters(auth, accountId, filters);
+
+        Map<String, List<Map<String, Object>>> found = new HashMap<>();
+        List<String> remaining = new ArrayList<>();
+        for (String groupBy : groupBys) {
+            List<Map<String, Object>> rollup = new ArrayList<>();
+            if (rollupCube.stream(groupBy, startDate, endDate, filters, topN, (group, month, cost) -> {
+                Map<String, Object> row = new HashMap<>();
+                row.put("group", group);
+                row.put("month", month);
+                row.put("cost", cost);
+                rollup.add(row);
+            })) {
+                found.put(groupBy, rollup);
+            } else {
+                remaining.add(groupBy);
+            }
+        }
+
+        if (!remaining.isEmpty()) {
+            found.putAll(costDataSource.getCostDataBatch(remaining, startDate, endDate, filters, topN));
+        }
+
+        Map<String, List<Map<String, Object>>> results = new LinkedHashMap<>();
+        for (String groupBy : groupBys) {
+            results.put(groupBy, found.get(groupBy));
+        }
+        return results;
+    }
+
+    // Stream cost rows straight from the data source; filters must already be resolved for the caller
+    public void streamCostExplorer(
+            String groupBy,
+            LocalDate startDate,
+            LocalDate endDate,
+            Map<String, List<String>> filters,
+            Integer topN,
+            CostRowConsumer consumer
+    ) {
+        log.info("DashboardService: Streaming cost data for groupBy={}", groupBy);
+        if (rollupCube.stream(groupBy, startDate, endDate, filters, topN, consumer)) {
+            return;
+        }
+        costDataSource.streamCostData(groupBy, startDate, endDate, filters, topN, consumer);
+    }
+
+    // Apply the caller's account scope to the filters (CUSTOMER users are pinned to their assigned account)
+    public Map<String, List<String>> resolveCostFilters(
+            Authentication auth,
+            String accountId,
+            Map<String, List<String>> filters
+    ) {
         // Initialize filters if null
         if (filters == null) {
             filters = new HashMap<>();
@@ -61,20 +253,17 @@ public class DashboardService {
             }
         }
 
-        // Fetch data from Snowflake - SNOWFLAKE IS QUERIED
-        log.info("Calling Snowflake service to fetch data...");
-        List<Map<String, Object>> result = snowflakeService.getCostData(
-                groupBy,
-                startDate,
-                endDate,
-                filters
-        );
+        return filters;
+    }
 
-        log.info("Received {} rows from Snowflake", result.size());
-        return result;
+    // Served from the latest inventory snapshot; refresh forces a live fetch that records a new one
+    public Map<String, Object> getAwsServices(Authentication auth, String accountId, boolean refresh) {
+        accountId = resolveAwsAccount(auth, accountId);
+        return inventoryService.getServiceData(accountId, refresh);
     }
 
-    public Map<String, Object> getAwsServices(Authentication auth, String accountId) {
+    // Account whose AWS service data the caller may read; null means all accounts
+    public String resolveAwsAccount(Authentication auth, String accountId) {
         Role role = getRole(auth);
         String userId = auth.getName();
 
@@ -90,13 +279,15 @@ public class DashboardService {
             if (!assigned) {
                 throw new AccountNotAssignedException("Account not assigned to user");
             }
-
-            return awsService.getServiceData(accountId);
         }
 
-        return (accountId != null)
-                ? awsService.getServiceData(accountId)
-                : awsService.getServiceDataAllAccounts();
+        return accountId;
+    }
+
+    // Version of the AWS service data currently served for the account (null: all accounts),
+    // or null if it would have to be fetched
+    public Long getAwsServicesVersion(String accountId) {
+        return inventoryService.getServiceDataVersion(accountId);
     }
 
     private Role getRole(Authentication auth) {
@@ -0,0 +1,140 @@
+package com.example.cloudBalanceBackend.service;
+
+import com.example.cloudBalanceBackend.service.cost.CostDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Tracks a version of the cost data per account, so dashboard responses can carry strong ETags and
+// polling clients can be answered with 304 without running a query.
+// Every change takes the next number of one sequence: an account's version is the sequence at its
+// last change (or at the last change affecting all accounts), and unscoped data is at the latest.
+// Changes come from local CUR ingestion, rollup refreshes, and a periodic fingerprint poll of the cost
+// data source, which only queries Snowflake for the accounts it serves.
+@Slf4j
+@Component
+public class DataVersionTracker {
+
+    private final CostDataSource costDataSource;
+    private final boolean pollEnabled;
+
+    // Part of every ETag, so versions from before a restart never match
+    private final String instanceId = Long.toHexString(System.currentTimeMillis());
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile long allAccountsVersion;
+    private final Map<String, Long> accountVersions = new ConcurrentHashMap<>();
+    private volatile Map<String, String> fingerprints;
+
+    public DataVersionTracker(
+            CostDataSource costDataSource,
+            @Value("${cost-explorer.data-version.poll-enabled:true}") boolean pollEnabled) {
+        this.costDataSource = costDataSource;
+        this.pollEnabled = pollEnabled;
+    }
+
+    public void markChanged(Collection<String> accountIds) {
+        long version = sequence.incrementAndGet();
+        for (String accountId : accountIds) {
+            accountVersions.put(accountId, version);
+        }
+        log.info("Cost data changed for accounts {}, version {}", accountIds, version);
+    }
+
+    public void markAllChanged() {
+        allAccountsVersion = sequence.incrementAndGet();
+        log.info("Cost data changed for all accounts, version {}", allAccountsVersion);
+    }
+
+    // Version of the data visible to a query scoped to these accounts (null or empty: all accounts)
+    public long getVersion(Collection<String> accountIds) {
+        if (accountIds == null || accountIds.isEmpty()) {
+            return sequence.get();
+        }
+        long version = allAccountsVersion;
+        for (String accountId : accountIds) {
+            version = Math.max(version, accountVersions.getOrDefault(accountId, 0L));
+        }
+        return version;
+    }
+
+    // Strong ETag for a representation of the given request at the given data version
+    public String eTag(String representation, long version) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(instanceId.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(Long.toString(version).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(representation.getBytes(StandardCharsets.UTF_8));
+            return "\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // True if an If-None-Match header value matches the ETag
+    public static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Compare per-account fingerprints of the current and previous billing months (CUR restates both)
+    // with the last poll; changed accounts get a new version and their cached results are dropped
+    @Scheduled(fixedDelayString = "${cost-explorer.data-version.poll-interval-ms:900000}")
+    public void pollFingerprints() {
+        if (!pollEnabled) {
+            return;
+        }
+
+        LocalDate since = YearMonth.now(ZoneOffset.UTC).minusMonths(1).atDay(1);
+        Map<String, String> current;
+        try {
+            current = costDataSource.getDataFingerprints(since);
+        } catch (RuntimeException e) {
+            log.warn("Cost data version poll failed: {}", e.getMessage());
+            return;
+        }
+
+        Map<String, String> previous = fingerprints;
+        fingerprints = current;
+        if (previous == null) {
+            return;
+        }
+
+        Set<String> changed = new HashSet<>();
+        for (Map.Entry<String, String> entry : current.entrySet()) {
+            if (!entry.getValue().equals(previous.get(entry.getKey()))) {
+                changed.add(entry.getKey());
+            }
+        }
+        for (String accountId : previous.keySet()) {
+            if (!current.containsKey(accountId)) {
+                changed.add(accountId);
+            }
+        }
+
+        if (!changed.isEmpty()) {
+            costDataSource.invalidateCachedAccounts(changed);
+            markChanged(changed);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.cloudBalanceBackend.service.aws;
+
+import com.example.cloudBalanceBackend.exception.AwsServiceException;
+import com.example.cloudBalanceBackend.utils.RateLimiter;
+import com.example.cloudBalanceBackend.utils.SingleFlight;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.auth.credentials.AwsSessionCredentials;
+import software.amazon.awssdk.services.sts.model.Credentials;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Assumed-role sessions per account, reused until shortly before they expire.
+// A scheduled pass renews sessions of recently used accounts ahead of expiry, so requests for hot
+// accounts never wait on STS; sessions of accounts nobody asked for are dropped once expired.
+// Concurrent renewals of the same account share one AssumeRole call.
+@Slf4j
+@Component
+public class AssumeRoleCredentialCache {
+
+    private final RoleAssumer roleAssumer;
+    // AssumeRole calls are throttled so fleet-wide scans stay under the backend account's STS request quota
+    private final RateLimiter assumeRoleLimiter;
+    // A session is reused while it has at least this much time left
+    private final long minRemainingSeconds;
+    // The background pass renews sessions that expire within this window...
+    private final long refreshAheadSeconds;
+    // ...if their account was used within this window
+    private final long hotAccountSeconds;
+
+    public AssumeRoleCredentialCache(
+            RoleAssumer roleAssumer,
+            @Value("${aws.assume-role.max-calls-per-second:50}") double maxCallsPerSecond,
+            @Value("${aws.assume-role.min-remaining-seconds:300}") long minRemainingSeconds,
+            @Value("${aws.assume-role.refresh-ahead-seconds:900}") long refreshAheadSeconds,
+            @Value("${aws.assume-role.hot-account-seconds:1800}") long hotAccountSeconds) {
+        this.roleAssumer = roleAssumer;
+        this.assumeRoleLimiter = new RateLimiter(maxCallsPerSecond);
+        this.minRemainingSeconds = minRemainingSeconds;
+        this.refreshAheadSeconds = refreshAheadSeconds;
+        this.hotAccountSeconds = hotAccountSeconds;
+    }
+
+    private final Map<String, CachedSession> sessions = new ConcurrentHashMap<>();
+    private final SingleFlight<String, CachedSession> renewals = new SingleFlight<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong refreshedAhead = new AtomicLong();
+    private final AtomicLong refreshFailures = new AtomicLong();
+
+    public AwsSessionCredentials get(String accountId) {
+        CachedSession session = sessions.get(accountId);
+        if (session == null || session.expiresWithin(minRemainingSeconds)) {
+            misses.incrementAndGet();
+            session = renewals.execute(accountId, () -> renew(accountId));
+        } else {
+            hits.incrementAndGet();
+        }
+        session.lastUsed = System.currentTimeMillis();
+        return session.credentials;
+    }
+
+    @Scheduled(fixedDelayString = "${aws.assume-role.refresh-interval-ms:60000}")
+    public void refreshAhead() {
+        long hotCutoff = System.currentTimeMillis() - hotAccountSeconds * 1000;
+        for (Map.Entry<String, CachedSession> entry : sessions.entrySet()) {
+            String accountId = entry.getKey();
+            CachedSession session = entry.getValue();
+
+            if (session.lastUsed < hotCutoff) {
+                if (session.expiresWithin(0)) {
+                    sessions.remove(accountId, session);
+                }
+                continue;
+            }
+            if (!session.expiresWithin(refreshAheadSeconds)) {
+                continue;
+            }
+
+            try {
+                CachedSession renewed = renewals.execute(accountId, () -> renew(accountId));
+                renewed.lastUsed = session.lastUsed;
+                refreshedAhead.incrementAndGet();
+            } catch (AwsServiceException e) {
+                // The current session stays in place until it expires; requests retry the renewal
+                refreshFailures.incrementAndGet();
+                log.warn("Refresh-ahead of assumed role for account {} failed: {}", accountId, e.getMessage());
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sessions", sessions.size());
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("assumeRoleCalls", renewals.getExecutions());
+        stats.put("coalescedRenewals", renewals.getCoalesced());
+        stats.put("refreshedAhead", refreshedAhead.get());
+        stats.put("refreshFailures", refreshFailures.get());
+        stats.put("throttledCalls", assumeRoleLimiter.getThrottled());
+        return stats;
+    }
+
+    private CachedSession renew(String accountId) {
+        try {
+            assumeRoleLimiter.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AwsServiceException("Interrupted while waiting to assume role for account " + accountId, e);
+        }
+
+        log.info("Assuming role for account: {}", accountId);
+
+        try {
+            Credentials credentials = roleAssumer.assumeRole(accountId);
+
+            log.info("Successfully assumed role for account: {}, expires {}", accountId, credentials.expiration());
+
+            CachedSession session = new CachedSession(
+                    AwsSessionCredentials.create(
+                            credentials.accessKeyId(),
+                            credentials.secretAccessKey(),
+                            credentials.sessionToken()
+                    ),
+                    credentials.expiration()
+            );
+            sessions.put(accountId, session);
+            return session;
+        } catch (Exception e) {
+            log.error("Failed to assume role for account {}: {}", accountId, e.getMessage(), e);
+            throw new AwsServiceException("Failed to assume role for account " + accountId, e);
+        }
+    }
+
+    private static final class CachedSession {
+        private final AwsSessionCredentials credentials;
+        private final Instant expiration;
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        private CachedSession(AwsSessionCredentials credentials, Instant expiration) {
+            this.credentials = credentials;
+            this.expiration = expiration;
+        }
+
+        private boolean expiresWithin(long seconds) {
+            return Instant.now().plusSeconds(seconds).isAfter(expiration);
+        }
+    }
+}
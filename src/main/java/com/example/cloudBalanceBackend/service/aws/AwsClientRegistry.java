@@ -0,0 +1,184 @@
+package com.example.cloudBalanceBackend.service.aws;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.lambda.LambdaClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.sts.StsClient;
+import software.amazon.awssdk.utils.SdkAutoCloseable;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Long-lived AWS SDK clients keyed by (service, account, region).
+// All clients share one Apache HTTP client, so warm requests reuse pooled, already-handshaken
+// connections instead of building a client and a connection pool per call. The registry is bounded by
+// idle eviction rather than a fixed size, since the clients needed grow with onboarded accounts and
+// regions. A scheduled pass retires clients unused for the idle timeout; a caller that looked one up
+// just before may still be running a call on it, so retired clients are only closed by a later pass,
+// another idle timeout on. Closing a client leaves the shared HTTP client open; it is closed with the registry.
+@Slf4j
+@Component
+public class AwsClientRegistry {
+
+    // Account key for clients that use the backend's own default credentials
+    public static final String DEFAULT_ACCOUNT = "default";
+
+    private final SdkHttpClient httpClient;
+    private final long idleTimeoutMillis;
+
+    private final Map<ClientKey, CachedClient> clients = new ConcurrentHashMap<>();
+    // Out of the registry but not yet closed, oldest first
+    private final Queue<CachedClient> retired = new ConcurrentLinkedQueue<>();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+
+    public AwsClientRegistry(
+            @Value("${aws.clients.idle-timeout-seconds:900}") long idleTimeoutSeconds,
+            @Value("${aws.http.max-connections:50}") int maxConnections,
+            @Value("${aws.http.connection-max-idle-seconds:60}") long connectionMaxIdleSeconds) {
+        this.idleTimeoutMillis = idleTimeoutSeconds * 1000;
+        this.httpClient = ApacheHttpClient.builder()
+                .maxConnections(maxConnections)
+                .connectionMaxIdleTime(Duration.ofSeconds(connectionMaxIdleSeconds))
+                .useIdleConnectionReaper(true)
+                .build();
+    }
+
+    public Ec2Client ec2(String accountId, Region region, AwsCredentialsProvider credentials) {
+        return client("ec2", accountId, region, () -> Ec2Client.builder()
+                .region(region)
+                .credentialsProvider(credentials)
+                .httpClient(httpClient)
+                .build());
+    }
+
+    public S3Client s3(String accountId, Region region, AwsCredentialsProvider credentials) {
+        return client("s3", accountId, region, () -> S3Client.builder()
+                .region(region)
+                .credentialsProvider(credentials)
+                .httpClient(httpClient)
+                .build());
+    }
+
+    public LambdaClient lambda(String accountId, Region region, AwsCredentialsProvider credentials) {
+        return client("lambda", accountId, region, () -> LambdaClient.builder()
+                .region(region)
+                .credentialsProvider(credentials)
+                .httpClient(httpClient)
+                .build());
+    }
+
+    // STS always runs as the backend itself
+    public StsClient sts(Region region, AwsCredentialsProvider credentials) {
+        return client("sts", DEFAULT_ACCOUNT, region, () -> StsClient.builder()
+                .region(region)
+                .credentialsProvider(credentials)
+                .httpClient(httpClient)
+                .build());
+    }
+
+    // The credentials provider is bound when the client is first built, so it must resolve
+    // current credentials on every call rather than capture a fixed session. Package-private so tests
+    // can register fake clients.
+    @SuppressWarnings("unchecked")
+    <T extends SdkAutoCloseable> T client(String service, String accountId, Region region, Supplier<T> factory) {
+        ClientKey key = new ClientKey(service, accountId, region.id());
+        CachedClient cached = clients.get(key);
+        if (cached == null) {
+            cached = clients.computeIfAbsent(key, k -> {
+                log.debug("Creating AWS {} client for account {} in {}", service, accountId, region.id());
+                created.incrementAndGet();
+                return new CachedClient(factory.get());
+            });
+        }
+        cached.lastUsed = System.currentTimeMillis();
+        return (T) cached.client;
+    }
+
+    // Retire clients that have not been used for the idle timeout, and close the ones retired
+    // at least one idle timeout ago, which no call can still be using
+    @Scheduled(fixedDelayString = "${aws.clients.eviction-interval-ms:60000}")
+    public void evictIdleClients() {
+        long now = System.currentTimeMillis();
+        long cutoff = now - idleTimeoutMillis;
+
+        int closed = 0;
+        for (Iterator<CachedClient> it = retired.iterator(); it.hasNext(); ) {
+            CachedClient cached = it.next();
+            if (cached.retiredAt >= cutoff) {
+                break;
+            }
+            it.remove();
+            close(cached);
+            closed++;
+        }
+
+        int count = 0;
+        for (Map.Entry<ClientKey, CachedClient> entry : clients.entrySet()) {
+            if (entry.getValue().lastUsed < cutoff && clients.remove(entry.getKey(), entry.getValue())) {
+                entry.getValue().retiredAt = now;
+                retired.add(entry.getValue());
+                count++;
+            }
+        }
+        if (count > 0 || closed > 0) {
+            log.info("Retired {} idle AWS clients and closed {}, {} remaining", count, closed, clients.size());
+        }
+    }
+
+    private void close(CachedClient cached) {
+        evicted.incrementAndGet();
+        try {
+            cached.client.close();
+        } catch (Exception e) {
+            log.warn("Failed to close AWS client: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("clients", clients.size());
+        stats.put("retired", retired.size());
+        stats.put("created", created.get());
+        stats.put("evicted", evicted.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void close() {
+        clients.values().forEach(this::close);
+        clients.clear();
+        retired.forEach(this::close);
+        retired.clear();
+        httpClient.close();
+    }
+
+    private record ClientKey(String service, String accountId, String region) {
+    }
+
+    private static final class CachedClient {
+        private final SdkAutoCloseable client;
+        private volatile long lastUsed = System.currentTimeMillis();
+        private volatile long retiredAt;
+
+        private CachedClient(SdkAutoCloseable client) {
+            this.client = client;
+        }
+    }
+}
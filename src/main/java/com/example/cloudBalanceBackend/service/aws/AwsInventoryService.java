@@ -0,0 +1,271 @@
+package com.example.cloudBalanceBackend.service.aws;
+
+import com.example.cloudBalanceBackend.model.Account;
+import com.example.cloudBalanceBackend.model.InventorySnapshot;
+import com.example.cloudBalanceBackend.repository.AccountRepository;
+import com.example.cloudBalanceBackend.repository.InventorySnapshotRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// AWS inventory served from crawled snapshots instead of live API calls.
+// A scheduled crawler refreshes every onboarded account a few accounts at a time, appends an
+// InventorySnapshot per account, and records "all" as the sum of the accounts it just crawled. Requests get the latest
+// snapshot while it is younger than the max age, and fall back to a live fetch otherwise; a forced
+// refresh fetches live and records a new snapshot. The snapshot capture time is its data version.
+@Slf4j
+@Service
+public class AwsInventoryService {
+
+    private static final String ALL_ACCOUNTS_KEY = "all";
+
+    private final AwsService awsService;
+    private final AccountRepository accountRepository;
+    private final InventorySnapshotRepository snapshotRepository;
+    private final long maxAgeMillis;
+    private final long recheckMillis;
+    private final Duration retention;
+    private final ThreadPoolExecutor crawlExecutor;
+
+    // Latest snapshot per account key (null: none yet) as of the last table read. Entries are re-read
+    // after the recheck interval so snapshots recorded by other instances are picked up.
+    private final Map<String, LatestSnapshot> latest = new ConcurrentHashMap<>();
+
+    public AwsInventoryService(
+            AwsService awsService,
+            AccountRepository accountRepository,
+            InventorySnapshotRepository snapshotRepository,
+            @Value("${aws.inventory.max-age-seconds:3600}") long maxAgeSeconds,
+            @Value("${aws.inventory.recheck-ms:30000}") long recheckMillis,
+            @Value("${aws.inventory.retention-days:7}") long retentionDays,
+            @Value("${aws.inventory.crawl-threads:2}") int crawlThreads) {
+        this.awsService = awsService;
+        this.accountRepository = accountRepository;
+        this.snapshotRepository = snapshotRepository;
+        this.maxAgeMillis = maxAgeSeconds * 1000;
+        this.recheckMillis = recheckMillis;
+        this.retention = Duration.ofDays(retentionDays);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.crawlExecutor = new ThreadPoolExecutor(
+                crawlThreads, crawlThreads,
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, "aws-inventory-crawler-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+        );
+    }
+
+    // Service data for the account (null: all accounts): the latest fresh snapshot unless refresh is set
+    public Map<String, Object> getServiceData(String accountId, boolean refresh) {
+        String key = accountId != null ? accountId : ALL_ACCOUNTS_KEY;
+        if (!refresh) {
+            InventorySnapshot snapshot = freshSnapshot(key);
+            if (snapshot != null) {
+                return toServiceData(snapshot);
+            }
+            return accountId != null ? awsService.getServiceData(accountId) : awsService.getServiceDataAllAccounts();
+        }
+
+        Map<String, Object> data = awsService.refreshServiceData(accountId);
+        record(key, data);
+        return data;
+    }
+
+    // Version of the data getServiceData would serve: the snapshot capture time, or the live cache's fetch time
+    public Long getServiceDataVersion(String accountId) {
+        InventorySnapshot snapshot = freshSnapshot(accountId != null ? accountId : ALL_ACCOUNTS_KEY);
+        return snapshot != null ? snapshot.getCapturedAt().toEpochMilli() : awsService.getServiceDataVersion(accountId);
+    }
+
+    @Scheduled(initialDelayString = "${aws.inventory.initial-delay-ms:60000}",
+            fixedDelayString = "${aws.inventory.crawl-interval-ms:900000}")
+    public void crawl() {
+        if (!awsService.isAwsConfigured()) {
+            log.debug("AWS not configured, skipping inventory crawl");
+            return;
+        }
+
+        long started = System.currentTimeMillis();
+        List<String> accountIds = accountRepository.findAll().stream().map(Account::getId).toList();
+        if (accountIds.isEmpty()) {
+            // No onboarded accounts: "all" is the backend's own account
+            try {
+                record(ALL_ACCOUNTS_KEY, awsService.refreshServiceData(null));
+            } catch (RuntimeException e) {
+                log.warn("Inventory crawl failed for account {}: {}", ALL_ACCOUNTS_KEY, e.getMessage());
+            }
+            removeOldSnapshots(started, 1, 0);
+            return;
+        }
+
+        List<Future<Map<String, Object>>> crawls = new ArrayList<>();
+        for (String accountId : accountIds) {
+            crawls.add(crawlExecutor.submit(() -> {
+                Map<String, Object> data = awsService.refreshServiceData(accountId);
+                record(accountId, data);
+                return data;
+            }));
+        }
+
+        Map<String, Map<String, Object>> crawled = new LinkedHashMap<>();
+        List<String> failedAccounts = new ArrayList<>();
+        for (int i = 0; i < crawls.size(); i++) {
+            try {
+                crawled.put(accountIds.get(i), crawls.get(i).get());
+            } catch (ExecutionException e) {
+                failedAccounts.add(accountIds.get(i));
+                log.warn("Inventory crawl failed for account {}: {}", accountIds.get(i), e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                crawls.forEach(crawl -> crawl.cancel(true));
+                return;
+            }
+        }
+
+        // "all" is summed from the results above rather than scanning every account again
+        try {
+            record(ALL_ACCOUNTS_KEY, awsService.aggregateServiceData(crawled, failedAccounts));
+        } catch (RuntimeException e) {
+            log.warn("Inventory crawl failed for account {}: {}", ALL_ACCOUNTS_KEY, e.getMessage());
+        }
+        removeOldSnapshots(started, accountIds.size(), failedAccounts.size());
+    }
+
+    private void removeOldSnapshots(long started, int accounts, int failed) {
+        long removed = snapshotRepository.deleteByCapturedAtBefore(Instant.now().minus(retention));
+        log.info("Inventory crawl of {} accounts finished in {} ms ({} failed, {} old snapshots removed)",
+                accounts, System.currentTimeMillis() - started, failed, removed);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        crawlExecutor.shutdownNow();
+    }
+
+    private InventorySnapshot freshSnapshot(String key) {
+        long now = System.currentTimeMillis();
+        LatestSnapshot entry = latest.get(key);
+        if (entry == null || now - entry.checkedAt() >= recheckMillis) {
+            entry = new LatestSnapshot(snapshotRepository.findFirstByAccountIdOrderByCapturedAtDesc(key).orElse(null), now);
+            latest.put(key, entry);
+        }
+        InventorySnapshot snapshot = entry.snapshot();
+        if (snapshot == null || System.currentTimeMillis() - snapshot.getCapturedAt().toEpochMilli() >= maxAgeMillis) {
+            return null;
+        }
+        return snapshot;
+    }
+
+    // Store live service data as the account's latest snapshot. Dummy data (AWS not configured) is not
+    // stored. Partial results are, with the partial flag and failed accounts; failed services leave
+    // their columns empty.
+    @SuppressWarnings("unchecked")
+    private void record(String key, Map<String, Object> data) {
+        if (!awsService.isAwsConfigured()) {
+            log.debug("Not recording an inventory snapshot for account {}", key);
+            return;
+        }
+
+        Map<String, Object> meta = (Map<String, Object>) data.get("meta");
+        List<String> failedAccounts = (List<String>) meta.get("failedAccounts");
+        InventorySnapshot snapshot = InventorySnapshot.builder()
+                .id(UUID.randomUUID().toString())
+                .accountId(key)
+                .capturedAt(Instant.now())
+                .partial(Boolean.TRUE.equals(meta.get("partial")))
+                .failedAccounts(failedAccounts == null || failedAccounts.isEmpty() ? null : String.join(",", failedAccounts))
+                .build();
+
+        for (Map<String, Object> service : (List<Map<String, Object>>) data.get("services")) {
+            String name = (String) service.get("name");
+            snapshot.setRegion((String) service.get("region"));
+            Map<String, Object> metrics = (Map<String, Object>) service.get("metrics");
+            if (metrics == null) {
+                continue;
+            }
+            switch (name) {
+                case "EC2" -> {
+                    snapshot.setEc2RunningInstances(intMetric(metrics, "runningInstances"));
+                    snapshot.setEc2StoppedInstances(intMetric(metrics, "stoppedInstances"));
+                }
+                case "S3" -> snapshot.setS3Buckets(intMetric(metrics, "buckets"));
+                case "Lambda" -> snapshot.setLambdaFunctions(intMetric(metrics, "functions"));
+                default -> log.debug("No snapshot column for service {}", name);
+            }
+        }
+
+        snapshotRepository.save(snapshot);
+        latest.put(key, new LatestSnapshot(snapshot, System.currentTimeMillis()));
+    }
+
+    // Per-account metrics are ints, fleet-wide sums are longs
+    private static Integer intMetric(Map<String, Object> metrics, String name) {
+        Object value = metrics.get(name);
+        return value instanceof Number number ? number.intValue() : null;
+    }
+
+    // Same shape as the live response, with meta.source = "snapshot". A service whose columns are
+    // empty is reported as {name, region, error} like a failed live collector.
+    private Map<String, Object> toServiceData(InventorySnapshot snapshot) {
+        Map<String, Object> ec2Metrics = new LinkedHashMap<>();
+        putMetric(ec2Metrics, "runningInstances", snapshot.getEc2RunningInstances());
+        putMetric(ec2Metrics, "stoppedInstances", snapshot.getEc2StoppedInstances());
+        Map<String, Object> s3Metrics = new LinkedHashMap<>();
+        putMetric(s3Metrics, "buckets", snapshot.getS3Buckets());
+        Map<String, Object> lambdaMetrics = new LinkedHashMap<>();
+        putMetric(lambdaMetrics, "functions", snapshot.getLambdaFunctions());
+
+        List<Map<String, Object>> services = List.of(
+                snapshotService("EC2", snapshot.getRegion(), ec2Metrics),
+                snapshotService("S3", snapshot.getRegion(), s3Metrics),
+                snapshotService("Lambda", snapshot.getRegion(), lambdaMetrics)
+        );
+
+        Map<String, Object> meta = new LinkedHashMap<>();
+        meta.put("accountId", snapshot.getAccountId());
+        meta.put("fetchedAt", snapshot.getCapturedAt().toString());
+        meta.put("partial", Boolean.TRUE.equals(snapshot.getPartial()));
+        if (snapshot.getFailedAccounts() != null) {
+            meta.put("failedAccounts", List.of(snapshot.getFailedAccounts().split(",")));
+        }
+        meta.put("source", "snapshot");
+
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("meta", meta);
+        data.put("services", services);
+        return data;
+    }
+
+    private static void putMetric(Map<String, Object> metrics, String name, Integer value) {
+        if (value != null) {
+            metrics.put(name, value);
+        }
+    }
+
+    private static Map<String, Object> snapshotService(String name, String region, Map<String, Object> metrics) {
+        Map<String, Object> service = new LinkedHashMap<>();
+        service.put("name", name);
+        service.put("region", region);
+        if (metrics.isEmpty()) {
+            service.put("error", "failed");
+        } else {
+            service.put("metrics", metrics);
+        }
+        return service;
+    }
+
+    private record LatestSnapshot(InventorySnapshot snapshot, long checkedAt) {
+    }
+}
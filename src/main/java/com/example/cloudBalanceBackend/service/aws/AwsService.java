@@ -1,9 +1,17 @@
 package com.example.cloudBalanceBackend.service.aws;
 
 import com.example.cloudBalanceBackend.exception.AwsServiceException;
+import com.example.cloudBalanceBackend.model.Account;
+import com.example.cloudBalanceBackend.repository.AccountRepository;
+import com.example.cloudBalanceBackend.utils.RateLimiter;
+import com.example.cloudBalanceBackend.utils.SingleFlight;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.ec2.Ec2Client;
@@ -12,20 +20,23 @@ import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.ListBucketsResponse;
 import software.amazon.awssdk.services.lambda.LambdaClient;
 import software.amazon.awssdk.services.lambda.model.ListFunctionsResponse;
-import software.amazon.awssdk.services.sts.StsClient;
-import software.amazon.awssdk.services.sts.model.AssumeRoleRequest;
-import software.amazon.awssdk.services.sts.model.AssumeRoleResponse;
-import software.amazon.awssdk.services.sts.model.Credentials;
 import software.amazon.awssdk.auth.credentials.AwsSessionCredentials;
-import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class AwsService {
 
+    private final AwsClientRegistry clientRegistry;
+    private final AssumeRoleCredentialCache credentialCache;
+    private final AccountRepository accountRepository;
+
     @Value("${aws.assume-role.enabled:false}")
     private boolean assumeRoleEnabled;
 
@@ -35,54 +46,190 @@ public class AwsService {
     @Value("${aws.region:us-east-1}")
     private String defaultRegion;
 
-    private boolean isAwsConfigured() {
+    // Service data is reused for a short TTL; its fetch time doubles as the data version for ETags
+    @Value("${aws.services.cache-ttl-seconds:300}")
+    private long serviceDataTtlSeconds;
+
+    // Partial results are cached too, flagged in meta, but only this long so failed parts are retried soon
+    @Value("${aws.services.partial-ttl-seconds:30}")
+    private long partialDataTtlSeconds;
+
+    // The EC2, S3 and Lambda collectors of one request run concurrently; each gets this long
+    // before it is reported as timed out and the rest are returned as a partial result
+    @Value("${aws.collectors.timeout-ms:5000}")
+    private long collectorTimeoutMs;
+
+    @Value("${aws.collectors.threads:6}")
+    private int collectorThreads;
+
+    @Value("${aws.collectors.queue-capacity:50}")
+    private int collectorQueueCapacity;
+
+    // All-accounts mode scans every onboarded account, at most fleet.concurrency at a time across all
+    // requests, throttles each AWS API to fleet.calls-per-second across the whole scan and stops waiting
+    // after fleet.timeout-ms
+    @Value("${aws.fleet.concurrency:16}")
+    private int fleetConcurrency;
+
+    @Value("${aws.fleet.calls-per-second:20}")
+    private double fleetCallsPerSecond;
+
+    @Value("${aws.fleet.timeout-ms:30000}")
+    private long fleetTimeoutMs;
+
+    private static final String ALL_ACCOUNTS_KEY = "all";
+    private final Map<String, CachedServiceData> serviceDataCache = new ConcurrentHashMap<>();
+    // Concurrent live fetches of the same key (an account, or "all") share one fetch
+    private final SingleFlight<String, Map<String, Object>> liveFetches = new SingleFlight<>();
+    // One limiter per API shared by every account of a fleet scan, so concurrent accounts together stay
+    // within the rate; a fresh bucket per account would start full and never throttle
+    private Map<String, RateLimiter> fleetLimiters;
+    private ThreadPoolExecutor collectorExecutor;
+    private ThreadPoolExecutor fleetExecutor;
+
+    @PostConstruct
+    void startCollectorExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        collectorExecutor = new ThreadPoolExecutor(
+                collectorThreads, collectorThreads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(collectorQueueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "aws-collector-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+        );
+
+        fleetLimiters = Map.of(
+                "EC2", new RateLimiter(fleetCallsPerSecond),
+                "S3", new RateLimiter(fleetCallsPerSecond),
+                "Lambda", new RateLimiter(fleetCallsPerSecond)
+        );
+
+        AtomicInteger fleetThreadCount = new AtomicInteger();
+        fleetExecutor = new ThreadPoolExecutor(
+                fleetConcurrency, fleetConcurrency,
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, "aws-fleet-" + fleetThreadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+        );
+    }
+
+    @PreDestroy
+    void shutdownCollectorExecutor() {
+        collectorExecutor.shutdownNow();
+        fleetExecutor.shutdownNow();
+    }
+
+    public boolean isAwsConfigured() {
         boolean configured = assumeRoleEnabled && roleArnTemplate != null && !roleArnTemplate.isEmpty();
         log.debug("AWS AssumeRole configured: {}", configured);
         return configured;
     }
 
-    // Get AWS credentials for specific account using AssumeRole
+    // Get AWS credentials for specific account using AssumeRole; sessions are cached until shortly before expiry
     private AwsSessionCredentials getAccountCredentials(String accountId) {
         if (!isAwsConfigured()) {
             log.debug("AWS AssumeRole not configured for account: {}", accountId);
             return null;
         }
+        return credentialCache.get(accountId);
+    }
 
-        log.info("Assuming role for account: {}", accountId);
+    // Credentials for an account's cached clients: resolved from the session cache on every call,
+    // so a client outlives the session it was created with
+    private AwsCredentialsProvider accountCredentialsProvider(String accountId) {
+        return () -> credentialCache.get(accountId);
+    }
 
-        try (StsClient stsClient = StsClient.builder()
-                .region(Region.of(defaultRegion))
-                .credentialsProvider(DefaultCredentialsProvider.create())
-                .build()) {
+    public Map<String, Object> getClientStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(clientRegistry.getStats());
+        stats.put("credentials", credentialCache.getStats());
+        Map<String, Object> throttled = new LinkedHashMap<>();
+        fleetLimiters.forEach((api, limiter) -> throttled.put(api, limiter.getThrottled()));
+        stats.put("fleetThrottled", throttled);
+        return stats;
+    }
 
-            String roleArn = roleArnTemplate.replace("{accountId}", accountId);
-            String sessionName = "cloudbalance-session-" + System.currentTimeMillis();
+    public Map<String, Object> getServiceData(String accountId) {
+        return cached(accountId, () -> fetchServiceData(accountId));
+    }
 
-            log.debug("AssumeRole ARN: {}, SessionName: {}", roleArn, sessionName);
+    public Map<String, Object> getServiceDataAllAccounts() {
+        return cached(ALL_ACCOUNTS_KEY, this::fetchServiceDataAllAccounts);
+    }
 
-            AssumeRoleRequest roleRequest = AssumeRoleRequest.builder()
-                    .roleArn(roleArn)
-                    .roleSessionName(sessionName)
-                    .durationSeconds(3600)
-                    .build();
+    // Fetch live data for the account (null: all accounts) regardless of the cache, and cache it
+    public Map<String, Object> refreshServiceData(String accountId) {
+        serviceDataCache.remove(accountId != null ? accountId : ALL_ACCOUNTS_KEY);
+        return accountId != null ? getServiceData(accountId) : getServiceDataAllAccounts();
+    }
 
-            AssumeRoleResponse roleResponse = stsClient.assumeRole(roleRequest);
-            Credentials credentials = roleResponse.credentials();
+    // Fetch time (epoch millis) of the fresh cached data for the account, or for all accounts when
+    // accountId is null; null when nothing fresh is cached
+    public Long getServiceDataVersion(String accountId) {
+        CachedServiceData entry = serviceDataCache.get(accountId != null ? accountId : ALL_ACCOUNTS_KEY);
+        return isFresh(entry) ? entry.fetchedAt() : null;
+    }
 
-            log.info("Successfully assumed role for account: {}", accountId);
+    // All-accounts data summed from per-account results the caller already fetched, instead of scanning
+    // the fleet again; failedAccounts are reported as missing. The result is cached like a live fetch.
+    public Map<String, Object> aggregateServiceData(Map<String, Map<String, Object>> accountData,
+                                                    List<String> failedAccounts) {
+        FleetTotals totals = new FleetTotals();
+        accountData.forEach(totals::add);
+        failedAccounts.forEach(totals::missing);
+        if (totals.accounts == 0) {
+            throw new AwsServiceException("Failed to fetch AWS service data for every account", null);
+        }
 
-            return AwsSessionCredentials.create(
-                    credentials.accessKeyId(),
-                    credentials.secretAccessKey(),
-                    credentials.sessionToken()
-            );
-        } catch (Exception e) {
-            log.error("Failed to assume role for account {}: {}", accountId, e.getMessage(), e);
-            throw new AwsServiceException("Failed to assume role for account " + accountId, e);
+        Map<String, Object> data = totals.toServiceData(Region.of(defaultRegion));
+        store(ALL_ACCOUNTS_KEY, data);
+        return data;
+    }
+
+    private Map<String, Object> cached(String key, Supplier<Map<String, Object>> fetch) {
+        CachedServiceData entry = serviceDataCache.get(key);
+        if (isFresh(entry)) {
+            log.debug("Serving cached AWS service data for {}", key);
+            return entry.data();
         }
+        return liveFetches.execute(key, () -> {
+            // A fetch that finished while this caller was missing the cache has just stored fresh data
+            CachedServiceData current = serviceDataCache.get(key);
+            if (isFresh(current)) {
+                return current.data();
+            }
+            Map<String, Object> data = fetch.get();
+            store(key, data);
+            return data;
+        });
     }
 
-    public Map<String, Object> getServiceData(String accountId) {
+    private void store(String key, Map<String, Object> data) {
+        serviceDataCache.put(key, new CachedServiceData(data, System.currentTimeMillis(), isPartial(data)));
+    }
+
+    private boolean isFresh(CachedServiceData entry) {
+        return entry != null && entry.isFresh(entry.partial() ? partialDataTtlSeconds : serviceDataTtlSeconds);
+    }
+
+    private static boolean isPartial(Map<String, Object> data) {
+        return data.get("meta") instanceof Map<?, ?> meta && Boolean.TRUE.equals(meta.get("partial"));
+    }
+
+    private record CachedServiceData(Map<String, Object> data, long fetchedAt, boolean partial) {
+        private boolean isFresh(long ttlSeconds) {
+            return System.currentTimeMillis() - fetchedAt < ttlSeconds * 1000;
+        }
+    }
+
+    private Map<String, Object> fetchServiceData(String accountId) {
         log.info("Fetching AWS service data for account: {}", accountId);
 
         if (!isAwsConfigured()) {
@@ -97,27 +244,17 @@ public class AwsService {
                 return getDummyServiceData(accountId);
             }
 
-            StaticCredentialsProvider credentialsProvider = StaticCredentialsProvider.create(credentials);
+            AwsCredentialsProvider credentialsProvider = accountCredentialsProvider(accountId);
             Region region = Region.of(defaultRegion);
 
-            // Fetch EC2 data
-            Map<String, Object> ec2Data = getEc2Data(credentialsProvider, region);
+            List<Map<String, Object>> services = collectServices(region, List.of(
+                    new ServiceCollector("EC2", () -> getEc2Data(accountId, credentialsProvider, region)),
+                    new ServiceCollector("S3", () -> getS3Data(accountId, credentialsProvider, region)),
+                    new ServiceCollector("Lambda", () -> getLambdaData(accountId, credentialsProvider, region))
+            ));
 
-            // Fetch S3 data
-            Map<String, Object> s3Data = getS3Data(credentialsProvider, region);
-
-            // Fetch Lambda data
-            Map<String, Object> lambdaData = getLambdaData(credentialsProvider, region);
-
-            log.info("Successfully fetched AWS data for account: {}", accountId);
-
-            return Map.of(
-                    "meta", Map.of(
-                            "accountId", accountId,
-                            "fetchedAt", Instant.now().toString()
-                    ),
-                    "services", List.of(ec2Data, s3Data, lambdaData)
-            );
+            log.info("Fetched AWS data for account: {}", accountId);
+            return serviceData(accountId, services);
 
         } catch (Exception e) {
             log.error("Failed to fetch AWS service data for account {}: {}",
@@ -126,7 +263,9 @@ public class AwsService {
         }
     }
 
-    public Map<String, Object> getServiceDataAllAccounts() {
+    // All accounts means every onboarded account, aggregated; the backend's own account is used
+    // only while none are onboarded
+    private Map<String, Object> fetchServiceDataAllAccounts() {
         log.info("Fetching AWS service data for all accounts");
 
         if (!isAwsConfigured()) {
@@ -134,183 +273,367 @@ public class AwsService {
             return getDummyServiceDataAllAccounts();
         }
 
+        List<String> accountIds = accountRepository.findAll().stream().map(Account::getId).toList();
+        if (!accountIds.isEmpty()) {
+            return fetchFleetServiceData(accountIds);
+        }
+
         try {
-            // For "all accounts", use default credentials
+            // No onboarded accounts: use default credentials
             Region region = Region.of(defaultRegion);
             DefaultCredentialsProvider credentialsProvider = DefaultCredentialsProvider.create();
 
-            Map<String, Object> ec2Data = getEc2DataDefault(credentialsProvider, region);
-            Map<String, Object> s3Data = getS3DataDefault(credentialsProvider, region);
-            Map<String, Object> lambdaData = getLambdaDataDefault(credentialsProvider, region);
+            List<Map<String, Object>> services = collectServices(region, List.of(
+                    new ServiceCollector("EC2", () -> getEc2DataDefault(credentialsProvider, region)),
+                    new ServiceCollector("S3", () -> getS3DataDefault(credentialsProvider, region)),
+                    new ServiceCollector("Lambda", () -> getLambdaDataDefault(credentialsProvider, region))
+            ));
+
+            log.info("Fetched AWS data for all accounts");
+            return serviceData(ALL_ACCOUNTS_KEY, services);
+
+        } catch (Exception e) {
+            log.error("Failed to fetch AWS service data for all accounts: {}", e.getMessage(), e);
+            throw new AwsServiceException("Failed to fetch AWS service data for all accounts", e);
+        }
+    }
+
+    private Map<String, Object> serviceData(String accountId, List<Map<String, Object>> services) {
+        return Map.of(
+                "meta", Map.of(
+                        "accountId", accountId,
+                        "fetchedAt", Instant.now().toString(),
+                        "partial", services.stream().anyMatch(service -> service.containsKey("error"))
+                ),
+                "services", services
+        );
+    }
+
+    // Scan the accounts on the fleet pool and fold each account's metrics into the totals as soon as
+    // it completes, so memory does not grow with the fleet. Accounts that fail or are still running
+    // at the deadline are left out and make the result partial.
+    private Map<String, Object> fetchFleetServiceData(List<String> accountIds) {
+        Region region = Region.of(defaultRegion);
+        long started = System.currentTimeMillis();
+
+        CompletionService<Map<String, Object>> completion = new ExecutorCompletionService<>(fleetExecutor);
+        Map<Future<Map<String, Object>>, String> pending = new HashMap<>();
+        for (String accountId : accountIds) {
+            pending.put(completion.submit(() -> fetchFleetAccountData(accountId, region)), accountId);
+        }
+
+        FleetTotals totals = new FleetTotals();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(fleetTimeoutMs);
+        try {
+            while (!pending.isEmpty()) {
+                Future<Map<String, Object>> scan = completion.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (scan == null) {
+                    break;
+                }
+                String accountId = pending.remove(scan);
+                try {
+                    totals.add(accountId, scan.get());
+                } catch (ExecutionException e) {
+                    totals.missing(accountId);
+                    log.warn("Fleet scan of account {} failed: {}", accountId, e.getCause().getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.keySet().forEach(scan -> scan.cancel(true));
+            throw new AwsServiceException("Interrupted while fetching AWS service data for all accounts", e);
+        }
+
+        int timedOut = pending.size();
+        if (timedOut > 0) {
+            pending.forEach((scan, accountId) -> {
+                scan.cancel(true);
+                totals.missing(accountId);
+            });
+            log.warn("Fleet scan timed out after {} ms with {} accounts pending", fleetTimeoutMs, timedOut);
+        }
+        log.info("Fleet scan of {} accounts finished in {} ms: {} succeeded, {} failed, {} timed out",
+                accountIds.size(), System.currentTimeMillis() - started, totals.accounts,
+                totals.missingAccounts - timedOut, timedOut);
+
+        if (totals.accounts == 0) {
+            throw new AwsServiceException("Failed to fetch AWS service data for every account", null);
+        }
+        return totals.toServiceData(region);
+    }
+
+    // One account of a fleet scan: its fresh cached data, or its collectors run one after another on
+    // this fleet thread, each behind its API's fleet-wide rate limiter. Results are cached per account.
+    private Map<String, Object> fetchFleetAccountData(String accountId, Region region) throws InterruptedException {
+        CachedServiceData entry = serviceDataCache.get(accountId);
+        if (isFresh(entry)) {
+            return entry.data();
+        }
+
+        // Assume the role up front so an account we cannot enter fails as a whole
+        getAccountCredentials(accountId);
+        AwsCredentialsProvider credentialsProvider = accountCredentialsProvider(accountId);
+
+        List<Map<String, Object>> services = new ArrayList<>();
+        for (ServiceCollector collector : List.of(
+                new ServiceCollector("EC2", () -> getEc2Data(accountId, credentialsProvider, region)),
+                new ServiceCollector("S3", () -> getS3Data(accountId, credentialsProvider, region)),
+                new ServiceCollector("Lambda", () -> getLambdaData(accountId, credentialsProvider, region))
+        )) {
+            fleetLimiters.get(collector.name()).acquire();
+            try {
+                services.add(collector.fetch().get());
+            } catch (RuntimeException e) {
+                log.warn("AWS collector {} failed for account {}: {}", collector.name(), accountId, e.getMessage());
+                services.add(serviceError(collector.name(), region, "failed"));
+            }
+        }
+
+        Map<String, Object> data = serviceData(accountId, services);
+        store(accountId, data);
+        return data;
+    }
 
-            log.info("Successfully fetched AWS data for all accounts");
+    // Streaming reducer for fleet scans: per-service metric sums across accounts. Accounts that are
+    // missing, or whose data has a failed service, are listed as failed and make the result partial.
+    private static final class FleetTotals {
+        private final Map<String, Map<String, Long>> metrics = new LinkedHashMap<>();
+        private final List<String> failedAccounts = new ArrayList<>();
+        private int accounts;
+        private int missingAccounts;
+
+        private FleetTotals() {
+            for (String name : List.of("EC2", "S3", "Lambda")) {
+                metrics.put(name, new LinkedHashMap<>());
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void add(String accountId, Map<String, Object> accountData) {
+            accounts++;
+            boolean incomplete = false;
+            for (Map<String, Object> service : (List<Map<String, Object>>) accountData.get("services")) {
+                if (service.containsKey("error")) {
+                    incomplete = true;
+                    continue;
+                }
+                Map<String, Long> sums = metrics.computeIfAbsent((String) service.get("name"), name -> new LinkedHashMap<>());
+                ((Map<String, Object>) service.get("metrics")).forEach((metric, value) ->
+                        sums.merge(metric, ((Number) value).longValue(), Long::sum));
+            }
+            if (incomplete) {
+                failedAccounts.add(accountId);
+            }
+        }
+
+        private void missing(String accountId) {
+            missingAccounts++;
+            failedAccounts.add(accountId);
+        }
+
+        private Map<String, Object> toServiceData(Region region) {
+            List<Map<String, Object>> services = new ArrayList<>();
+            metrics.forEach((name, sums) -> services.add(sums.isEmpty()
+                    ? Map.of("name", name, "region", region.id(), "error", "failed")
+                    : Map.of("name", name, "region", region.id(), "metrics", new LinkedHashMap<String, Object>(sums))));
 
             return Map.of(
                     "meta", Map.of(
-                            "accountId", "all",
-                            "fetchedAt", Instant.now().toString()
+                            "accountId", ALL_ACCOUNTS_KEY,
+                            "fetchedAt", Instant.now().toString(),
+                            "partial", !failedAccounts.isEmpty(),
+                            "accounts", accounts + missingAccounts,
+                            "missingAccounts", missingAccounts,
+                            "failedAccounts", List.copyOf(failedAccounts)
                     ),
-                    "services", List.of(ec2Data, s3Data, lambdaData)
+                    "services", services
             );
+        }
+    }
 
-        } catch (Exception e) {
-            log.error("Failed to fetch AWS service data for all accounts: {}", e.getMessage(), e);
-            throw new AwsServiceException("Failed to fetch AWS service data for all accounts", e);
+    private record ServiceCollector(String name, Supplier<Map<String, Object>> fetch) {
+    }
+
+    // Run the collectors concurrently and wait for each until a shared deadline, so the request takes
+    // about as long as the slowest collector. A collector that fails or misses the deadline is reported
+    // in place as {name, region, error}; only when every collector fails is the request an error.
+    private List<Map<String, Object>> collectServices(Region region, List<ServiceCollector> collectors) {
+        List<Future<Map<String, Object>>> futures = new ArrayList<>();
+        for (ServiceCollector collector : collectors) {
+            try {
+                futures.add(collectorExecutor.submit(collector.fetch()::get));
+            } catch (RejectedExecutionException e) {
+                futures.add(null);
+            }
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(collectorTimeoutMs);
+        List<Map<String, Object>> services = new ArrayList<>();
+        Exception lastFailure = null;
+        for (int i = 0; i < collectors.size(); i++) {
+            String name = collectors.get(i).name();
+            Future<Map<String, Object>> future = futures.get(i);
+            if (future == null) {
+                log.warn("AWS collector pool is full, skipping {}", name);
+                services.add(serviceError(name, region, "busy"));
+                continue;
+            }
+            try {
+                services.add(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                log.warn("AWS collector {} timed out after {} ms", name, collectorTimeoutMs);
+                services.add(serviceError(name, region, "timeout"));
+                lastFailure = e;
+            } catch (ExecutionException e) {
+                log.error("AWS collector {} failed: {}", name, e.getCause().getMessage(), e.getCause());
+                services.add(serviceError(name, region, "failed"));
+                lastFailure = e;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(f -> {
+                    if (f != null) f.cancel(true);
+                });
+                throw new AwsServiceException("Interrupted while fetching AWS service data", e);
+            }
+        }
+
+        if (services.stream().allMatch(service -> service.containsKey("error"))) {
+            throw new AwsServiceException("All AWS service collectors failed", lastFailure);
         }
+        return services;
+    }
+
+    private Map<String, Object> serviceError(String name, Region region, String error) {
+        return Map.of(
+                "name", name,
+                "region", region.id(),
+                "error", error
+        );
     }
 
     // EC2 data with assumed role credentials
-    private Map<String, Object> getEc2Data(StaticCredentialsProvider credentials, Region region) {
+    private Map<String, Object> getEc2Data(String accountId, AwsCredentialsProvider credentials, Region region) {
         log.debug("Fetching EC2 data for region: {}", region.id());
 
-        try (Ec2Client ec2 = Ec2Client.builder()
-                .region(region)
-                .credentialsProvider(credentials)
-                .build()) {
-
-            DescribeInstancesResponse response = ec2.describeInstances();
-            int runningInstances = 0;
-            int stoppedInstances = 0;
-
-            for (Reservation reservation : response.reservations()) {
-                for (Instance instance : reservation.instances()) {
-                    if (instance.state().name() == InstanceStateName.RUNNING) {
-                        runningInstances++;
-                    } else if (instance.state().name() == InstanceStateName.STOPPED) {
-                        stoppedInstances++;
-                    }
+        Ec2Client ec2 = clientRegistry.ec2(accountId, region, credentials);
+        DescribeInstancesResponse response = ec2.describeInstances();
+        int runningInstances = 0;
+        int stoppedInstances = 0;
+
+        for (Reservation reservation : response.reservations()) {
+            for (Instance instance : reservation.instances()) {
+                if (instance.state().name() == InstanceStateName.RUNNING) {
+                    runningInstances++;
+                } else if (instance.state().name() == InstanceStateName.STOPPED) {
+                    stoppedInstances++;
                 }
             }
+        }
 
-            log.info("EC2 data: running={}, stopped={}", runningInstances, stoppedInstances);
+        log.info("EC2 data: running={}, stopped={}", runningInstances, stoppedInstances);
 
-            return Map.of(
-                    "name", "EC2",
-                    "region", region.id(),
-                    "metrics", Map.of(
-                            "runningInstances", runningInstances,
-                            "stoppedInstances", stoppedInstances
-                    )
-            );
-        }
+        return Map.of(
+                "name", "EC2",
+                "region", region.id(),
+                "metrics", Map.of(
+                        "runningInstances", runningInstances,
+                        "stoppedInstances", stoppedInstances
+                )
+        );
     }
 
     // EC2 data with default credentials
     private Map<String, Object> getEc2DataDefault(DefaultCredentialsProvider credentials, Region region) {
         log.debug("Fetching EC2 data (default credentials) for region: {}", region.id());
 
-        try (Ec2Client ec2 = Ec2Client.builder()
-                .region(region)
-                .credentialsProvider(credentials)
-                .build()) {
+        Ec2Client ec2 = clientRegistry.ec2(AwsClientRegistry.DEFAULT_ACCOUNT, region, credentials);
+        DescribeInstancesResponse response = ec2.describeInstances();
+        int runningInstances = 0;
 
-            DescribeInstancesResponse response = ec2.describeInstances();
-            int runningInstances = 0;
-
-            for (Reservation reservation : response.reservations()) {
-                for (Instance instance : reservation.instances()) {
-                    if (instance.state().name() == InstanceStateName.RUNNING) {
-                        runningInstances++;
-                    }
+        for (Reservation reservation : response.reservations()) {
+            for (Instance instance : reservation.instances()) {
+                if (instance.state().name() == InstanceStateName.RUNNING) {
+                    runningInstances++;
                 }
             }
+        }
 
-            log.info("EC2 data (all accounts): running={}", runningInstances);
+        log.info("EC2 data (all accounts): running={}", runningInstances);
 
-            return Map.of(
-                    "name", "EC2",
-                    "region", region.id(),
-                    "metrics", Map.of("runningInstances", runningInstances)
-            );
-        }
+        return Map.of(
+                "name", "EC2",
+                "region", region.id(),
+                "metrics", Map.of("runningInstances", runningInstances)
+        );
     }
 
     // S3 data with assumed role credentials
-    private Map<String, Object> getS3Data(StaticCredentialsProvider credentials, Region region) {
+    private Map<String, Object> getS3Data(String accountId, AwsCredentialsProvider credentials, Region region) {
         log.debug("Fetching S3 data for region: {}", region.id());
 
-        try (S3Client s3 = S3Client.builder()
-                .region(region)
-                .credentialsProvider(credentials)
-                .build()) {
+        S3Client s3 = clientRegistry.s3(accountId, region, credentials);
+        ListBucketsResponse response = s3.listBuckets();
+        int bucketCount = response.buckets().size();
 
-            ListBucketsResponse response = s3.listBuckets();
-            int bucketCount = response.buckets().size();
+        log.info("S3 data: buckets={}", bucketCount);
 
-            log.info("S3 data: buckets={}", bucketCount);
-
-            return Map.of(
-                    "name", "S3",
-                    "region", region.id(),
-                    "metrics", Map.of("buckets", bucketCount)
-            );
-        }
+        return Map.of(
+                "name", "S3",
+                "region", region.id(),
+                "metrics", Map.of("buckets", bucketCount)
+        );
     }
 
     // S3 data with default credentials
     private Map<String, Object> getS3DataDefault(DefaultCredentialsProvider credentials, Region region) {
         log.debug("Fetching S3 data (default credentials) for region: {}", region.id());
 
-        try (S3Client s3 = S3Client.builder()
-                .region(region)
-                .credentialsProvider(credentials)
-                .build()) {
+        S3Client s3 = clientRegistry.s3(AwsClientRegistry.DEFAULT_ACCOUNT, region, credentials);
+        ListBucketsResponse response = s3.listBuckets();
+        int bucketCount = response.buckets().size();
 
-            ListBucketsResponse response = s3.listBuckets();
-            int bucketCount = response.buckets().size();
+        log.info("S3 data (all accounts): buckets={}", bucketCount);
 
-            log.info("S3 data (all accounts): buckets={}", bucketCount);
-
-            return Map.of(
-                    "name", "S3",
-                    "region", region.id(),
-                    "metrics", Map.of("buckets", bucketCount)
-            );
-        }
+        return Map.of(
+                "name", "S3",
+                "region", region.id(),
+                "metrics", Map.of("buckets", bucketCount)
+        );
     }
 
     // Lambda data with assumed role credentials
-    private Map<String, Object> getLambdaData(StaticCredentialsProvider credentials, Region region) {
+    private Map<String, Object> getLambdaData(String accountId, AwsCredentialsProvider credentials, Region region) {
         log.debug("Fetching Lambda data for region: {}", region.id());
 
-        try (LambdaClient lambda = LambdaClient.builder()
-                .region(region)
-                .credentialsProvider(credentials)
-                .build()) {
-
-            ListFunctionsResponse response = lambda.listFunctions();
-            int functionCount = response.functions().size();
+        LambdaClient lambda = clientRegistry.lambda(accountId, region, credentials);
+        ListFunctionsResponse response = lambda.listFunctions();
+        int functionCount = response.functions().size();
 
-            log.info("Lambda data: functions={}", functionCount);
+        log.info("Lambda data: functions={}", functionCount);
 
-            return Map.of(
-                    "name", "Lambda",
-                    "region", region.id(),
-                    "metrics", Map.of("functions", functionCount)
-            );
-        }
+        return Map.of(
+                "name", "Lambda",
+                "region", region.id(),
+                "metrics", Map.of("functions", functionCount)
+        );
     }
 
     // Lambda data with default credentials
     private Map<String, Object> getLambdaDataDefault(DefaultCredentialsProvider credentials, Region region) {
         log.debug("Fetching Lambda data (default credentials) for region: {}", region.id());
 
-        try (LambdaClient lambda = LambdaClient.builder()
-                .region(region)
-                .credentialsProvider(credentials)
-                .build()) {
+        LambdaClient lambda = clientRegistry.lambda(AwsClientRegistry.DEFAULT_ACCOUNT, region, credentials);
+        ListFunctionsResponse response = lambda.listFunctions();
+        int functionCount = response.functions().size();
 
-            ListFunctionsResponse response = lambda.listFunctions();
-            int functionCount = response.functions().size();
+        log.info("Lambda data (all accounts): functions={}", functionCount);
 
-            log.info("Lambda data (all accounts): functions={}", functionCount);
-
-            return Map.of(
-                    "name", "Lambda",
-                    "region", region.id(),
-                    "metrics", Map.of("functions", functionCount)
-            );
-        }
+        return Map.of(
+                "name", "Lambda",
+                "region", region.id(),
+                "metrics", Map.of("functions", functionCount)
+        );
     }
 
     // Fallback dummy data
@@ -0,0 +1,11 @@
+package com.example.cloudBalanceBackend.service.aws;
+
+import software.amazon.awssdk.services.sts.model.Credentials;
+
+// Obtains a fresh assumed-role session for an account. AssumeRoleCredentialCache decides when to
+// call it; implementations only talk to STS.
+@FunctionalInterface
+public interface RoleAssumer {
+
+    Credentials assumeRole(String accountId);
+}
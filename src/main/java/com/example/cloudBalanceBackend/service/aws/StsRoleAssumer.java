@@ -0,0 +1,47 @@
+package com.example.cloudBalanceBackend.service.aws;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.sts.StsClient;
+import software.amazon.awssdk.services.sts.model.AssumeRoleRequest;
+import software.amazon.awssdk.services.sts.model.Credentials;
+
+// Assumes the account's role through STS using the application's default credentials
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StsRoleAssumer implements RoleAssumer {
+
+    private final AwsClientRegistry clientRegistry;
+
+    @Value("${aws.assume-role.role-arn-template:}")
+    private String roleArnTemplate;
+
+    @Value("${aws.region:us-east-1}")
+    private String defaultRegion;
+
+    @Value("${aws.assume-role.duration-seconds:3600}")
+    private int durationSeconds;
+
+    @Override
+    public Credentials assumeRole(String accountId) {
+        StsClient stsClient = clientRegistry.sts(Region.of(defaultRegion), DefaultCredentialsProvider.create());
+
+        String roleArn = roleArnTemplate.replace("{accountId}", accountId);
+        String sessionName = "cloudbalance-session-" + System.currentTimeMillis();
+
+        log.debug("AssumeRole ARN: {}, SessionName: {}", roleArn, sessionName);
+
+        AssumeRoleRequest roleRequest = AssumeRoleRequest.builder()
+                .roleArn(roleArn)
+                .roleSessionName(sessionName)
+                .durationSeconds(durationSeconds)
+                .build();
+
+        return stsClient.assumeRole(roleRequest).credentials();
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.cloudBalanceBackend.service.cost;
+
+// Receives cost rows split by ACCOUNT_ID, one at a time as they are read
+@FunctionalInterface
+public interface AccountCostRowConsumer {
+    void accept(String accountId, String group, String month, double cost);
+}
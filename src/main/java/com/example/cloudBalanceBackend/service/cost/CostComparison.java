@@ -0,0 +1,40 @@
+package com.example.cloudBalanceBackend.service.cost;
+
+import java.util.*;
+
+// Current vs previous period cost per group, with the groups ranked by absolute change (top movers).
+// Totals cover every group, not only the returned movers.
+public record CostComparison(double currentTotal, double previousTotal, List<Mover> movers) {
+
+    public record Mover(String group, double currentCost, double previousCost) {
+
+        public double delta() {
+            return currentCost - previousCost;
+        }
+
+        // Percentage change against the previous period; null when there was no previous cost
+        public Double percentChange() {
+            return previousCost != 0 ? (currentCost - previousCost) / Math.abs(previousCost) * 100 : null;
+        }
+    }
+
+    // Rank per-group {current, previous} sums by absolute delta (group name as tie-breaker)
+    // and keep the first limit, or all when limit is null
+    public static CostComparison rank(Map<String, double[]> sums, Integer limit) {
+        double currentTotal = 0;
+        double previousTotal = 0;
+        List<Mover> movers = new ArrayList<>(sums.size());
+        for (Map.Entry<String, double[]> entry : sums.entrySet()) {
+            double[] periods = entry.getValue();
+            currentTotal += periods[0];
+            previousTotal += periods[1];
+            movers.add(new Mover(entry.getKey(), periods[0], periods[1]));
+        }
+
+        movers.sort(Comparator.comparingDouble((Mover m) -> -Math.abs(m.delta())).thenComparing(Mover::group));
+        if (limit != null && movers.size() > limit) {
+            movers = movers.subList(0, limit);
+        }
+        return new CostComparison(currentTotal, previousTotal, List.copyOf(movers));
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.cloudBalanceBackend.service.cost;
+
+import java.time.LocalDate;
+import java.util.*;
+
+// Source of aggregated (group, month, cost) rows for the cost explorer.
+// Rows are maps with "group", "month" (YYYY-MM) and "cost" keys, ordered by month.
+public interface CostDataSource {
+
+    List<Map<String, Object>> getCostData(
+            String groupBy,
+            LocalDate startDate,
+            LocalDate endDate,
+            Map<String, List<String>> filters,
+            Integer topN
+    );
+
+    // Hand rows to the consumer as they are produced instead of materializing them
+    void streamCostData(
+            String groupBy,
+            LocalDate startDate,
+            LocalDate endDate,
+            Map<String, List<String>> filters,
+            Integer topN,
+            CostRowConsumer consumer
+    );
+
+    // Unfiltered SUM(COST) per (accountId, group, month) over the range in one pass, for rollups
+    // that need every account's rows without a query per account
+    void streamCostDataByAccount(
+            String groupBy,
+            LocalDate startDate,
+            LocalDate endDate,
+            AccountCostRowConsumer consumer
+    );
+
+    // Values of each groupBy dimension per accountId over the range, e.g. for filter dropdowns. A value may
+    // be reported more than once. This default makes one streamCostDataByAccount pass per dimension;
+    // sources that can collect all dimensions in one scan should override it.
+    default void streamDistinctValuesByAccount(
+            List<String> groupBys,
+            LocalDate startDate,
+            LocalDate endDate,
+            DimensionValueConsumer consumer
+    ) {
+        for (String groupBy : groupBys) {
+            streamCostDataByAccount(groupBy, startDate, endDate,
+                    (accountId, group, month, cost) -> consumer.accept(accountId, groupBy, group));
+        }
+    }
+
+    // Cheap change fingerprint per accountId for rows billed since the given date, compared between polls
+    // to find changed accounts. Sources that are told about changes directly (the local engine, by
+    // ingestion) return none.
+    default Map<String, String> getDataFingerprints(LocalDate since) {
+        return Map.of();
+    }
+
+    // Drop results cached for these accounts after their data changed
+    default void invalidateCachedAccounts(Set<String> accountIds) {
+    }
+
+    default List<Map<String, Object>> getCostData(
+            String groupBy,
+            LocalDate startDate,
+            LocalDate endDate,
+            Map<String, List<String>> filters
+    ) {
+        return getCostData(groupBy, startDate, endDate, filters, null);
+    }
+
+    // Results for several groupBy dimensions sharing one date range, filters and topN, keyed by groupBy
+    // in request order. Sources that can answer all dimensions from one scan should override this.
+    default Map<String, List<Map<String, Object>>> getCostDataBatch(
+            List<String> groupBys,
+            LocalDate startDate,
+            LocalDate endDate,
+            Map<String, List<String>> filters,
+            Integer topN
+    ) {
+        Map<String, List<Map<String, Object>>> results = new LinkedHashMap<>();
+        for (String groupBy : groupBys) {
+            results.put(groupBy, getCostData(groupBy, startDate, endDate, filters, topN));
+        }
+        return results;
+    }
+
+    // Rows of the first pageSize groups (ascending) after afterGroup, or from the start when it is null.
+    // This default streams the full result and keeps only the smallest pageSize + 1 groups, so memory
+    // follows the page size; sources that can push the keyset down should override it.
+    default CostPage getCostDataPage(
+            String groupBy,
+            LocalDate startDate,
+            LocalDate endDate,
+            Map<String, List<String>> filters,
+            int pageSize,
+            String afterGroup
+    ) {
+        TreeMap<String, List<Map<String, Object>>> page = new TreeMap<>();
+        streamCostData(groupBy, startDate, endDate, filters, null, (group, month, cost) -> {
+            if (afterGroup != null && group.compareTo(afterGroup) <= 0) {
+                return;
+            }
+            List<Map<String, Object>> groupRows = page.get(group);
+            if (groupRows == null) {
+                if (page.size() > pageSize && group.compareTo(page.lastKey()) > 0) {
+                    return;
+                }
+                groupRows = new ArrayList<>();
+                page.put(group, groupRows);
+                if (page.size() > pageSize + 1) {
+                    page.pollLastEntry();
+                }
+            }
+            Map<String, Object> row = new HashMap<>();
+            row.put("group", group);
+            row.put("month", month);
+            row.put("cost", cost);
+            groupRows.add(row);
+        });
+
+        boolean hasMore = page.size() > pageSize;
+        if (hasMore) {
+            page.pollLastEntry();
+        }
+        List<Map<String, Object>> rows = new ArrayList<>();
+        page.values().forEach(rows::addAll);
+        return new CostPage(rows, page.isEmpty() ? null : page.lastKey(), hasMore);
+    }
+
+    // Cost per group in the current and previous periods, ranked by absolute change, keeping limit movers.
+    // This default aggregates each period with its own pass; sources that can compute both periods
+    // in one scan should override it.
+    default CostComparison getCostComparison(
+            String groupBy,
+            LocalDate currentStart,
+            LocalDate currentEnd,
+            LocalDate previousStart,
+            LocalDate previousEnd,
+            Map<String, List<String>> filters,
+            Integer limit
+    ) {
+        Map<String, double[]> sums = new HashMap<>();
+        streamCostData(groupBy, currentStart, currentEnd, filters, null,
+                (group, month, cost) -> sums.computeIfAbsent(group, g -> new double[2])[0] += cost);
+        streamCostData(groupBy, previousStart, previousEnd, filters, null,
+                (group, month, cost) -> sums.computeIfAbsent(group, g -> new double[2])[1] += cost);
+        return CostComparison.rank(sums, limit);
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.cloudBalanceBackend.service.cost;
+
+import com.example.cloudBalanceBackend.service.local.LocalCostDataSource;
+import com.example.cloudBalanceBackend.service.snowflake.SnowflakeService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Picks the cost data source for each query: the configured default (snowflake or local),
+// except for accounts listed as local, which are always answered by the embedded engine.
+@Slf4j
+@Primary
+@Component
+public class CostDataSourceRouter implements CostDataSource {
+
+    private final CostDataSource snowflakeService;
+    private final CostDataSource localCostDataSource;
+    private final boolean localByDefault;
+    private final Set<String> localAccounts;
+
+    @Autowired
+    public CostDataSourceRouter(
+            SnowflakeService snowflakeService,
+            LocalCostDataSource localCostDataSource,
+            @Value("${cost-explorer.source:snowflake}") String source,
+            @Value("${cost-explorer.local.accounts:}") List<String> localAccounts) {
+        this((CostDataSource) snowflakeService, (CostDataSource) localCostDataSource, source, localAccounts);
+    }
+
+    // Any pair of sources, for tests
+    CostDataSourceRouter(
+            CostDataSource snowflakeService,
+            CostDataSource localCostDataSource,
+            String source,
+            List<String> localAccounts) {
+        if (!"snowflake".equalsIgnoreCase(source) && !"local".equalsIgnoreCase(source)) {
+            throw new IllegalArgumentException("cost-explorer.source must be 'snowflake' or 'local': " + source);
+        }
+        this.snowflakeService = snowflakeService;
+        this.localCostDataSource = localCostDataSource;
+        this.localByDefault = "local".equalsIgnoreCase(source);
+        this.localAccounts = Set.copyOf(localAccounts);
+        log.info("Cost data source: default={}, localAccounts={}", source, this.localAccounts);
+    }
+
+    @Override
+    public List<Map<String, Object>> getCostData(
+            String groupBy,
+            LocalDate startDate,
+            LocalDate endDate,
+            Map<String, List<String>> filters,
+            Integer topN
+    ) {
+        return route(filters).getCostData(groupBy, startDate, endDate, filters, topN);
+    }
+
+    @Override
+    public void streamCostData(
+            String groupBy,
+            LocalDate startDate,
+            LocalDate endDate,
+            Map<String, List<String>> filters,
+            Integer topN,
+            CostRowConsumer consumer
+    ) {
+        route(filters).streamCostData(groupBy, startDate, endDate, filters, topN, consumer);
+    }
+
+    // Accounts listed as local come from the embedded engine and all others from the default source,
+    // the same split route makes for single-account queries
+    @Override
+    public void streamCostDataByAccount(
+            String groupBy,
+            LocalDate startDate,
+            LocalDate endDate,
+            AccountCostRowConsumer consumer
+    ) {
+        if (localByDefault) {
+            localCostDataSource.streamCostDataByAccount(groupBy, startDate, endDate, consumer);
+            return;
+        }
+        snowflakeService.streamCostDataByAccount(groupBy, startDate, endDate, (accountId, group, month, cost) -> {
+            if (!localAccounts.contains(accountId)) {
+                consumer.accept(accountId, group, month, cost);
+            }
+        });
+        if (!localAccounts.isEmpty()) {
+            localCostDataSource.streamCostDataByAccount(groupBy, startDate, endDate, (accountId, group, month, cost) -> {
+                if (localAccounts.contains(accountId)) {
+                    consumer.accept(accountId, group, month, cost);
+                }
+            });
+        }
+    }
+
+    @Override
+    public void streamDistinctValuesByAccount(
+            List<String> groupBys,
+            LocalDate startDate,
+            LocalDate endDate,
+            DimensionValueConsumer consumer
+    ) {
+        if (localByDefault) {
+            localCostDataSource.streamDistinctValuesByAccount(groupBys, startDate, endDate, consumer);
+            return;
+        }
+        snowflakeService.streamDistinctValuesByAccount(groupBys, startDate, endDate, (accountId, groupBy, value) -> {
+            if (!localAccounts.contains(accountId)) {
+                consumer.accept(accountId, groupBy, value);
+            }
+        });
+        if (!localAccounts.isEmpty()) {
+            localCostDataSource.streamDistinctValuesByAccount(groupBys, startDate, endDate, (accountId, groupBy, value) -> {
+                if (localAccounts.contains(accountId)) {
+                    consumer.accept(accountId, groupBy, value);
+                }
+            });
+        }
+    }
+
+    @Override
+    public Map<String, List<Map<String, Object>>> getCostDataBatch(
+            List<String> groupBys,
+            LocalDate startDate,
+            LocalDate endDate,
+            Map<String, List<String>> filters,
+            Integer topN
+    ) {
+        return route(filters).getCostDataBatch(groupBys, startDate, endDate, filters, topN);
+    }
+
+    @Override
+    public CostPage getCostDataPage(
+            String groupBy,
+            LocalDate startDate,
+            LocalDate endDate,
+            Map<String, List<String>> filters,
+            int pageSize,
+            String afterGroup
+    ) {
+        return route(filters).getCostDataPage(groupBy, startDate, endDate, filters, pageSize, afterGroup);
+    }
+
+    @Override
+    public CostComparison getCostComparison(
+            String groupBy,
+            LocalDate currentStart,
+            LocalDate currentEnd,
+            LocalDate previousStart,
+            LocalDate previousEnd,
+            Map<String, List<String>> filters,
+            Integer limit
+    ) {
+        return route(filters).getCostComparison(
+                groupBy, currentStart, currentEnd, previousStart, previousEnd, filters, limit);
+    }
+
+    // Local accounts are versioned by ingestion, so only Snowflake accounts are fingerprinted,
+    // and nothing is queried when every account is local
+    @Override
+    public Map<String, String> getDataFingerprints(LocalDate since) {
+        if (localByDefault) {
+            return Map.of();
+        }
+        Map<String, String> fingerprints = new HashMap<>(snowflakeService.getDataFingerprints(since));
+        fingerprints.keySet().removeAll(localAccounts);
+        return fingerprints;
+    }
+
+    @Override
+    public void invalidateCachedAccounts(Set<String> accountIds) {
+        if (!localByDefault) {
+            snowflakeService.invalidateCachedAccounts(accountIds);
+        }
+    }
+
+    private CostDataSource route(Map<String, List<String>> filters) {
+        if (localByDefault) {
+            return localCostDataSource;
+        }
+        List<String> accountIds = filters != null ? filters.get("accountId") : null;
+        if (accountIds != null && !accountIds.isEmpty() && localAccounts.containsAll(accountIds)) {
+            return localCostDataSource;
+        }
+        return snowflakeService;
+    }
+}
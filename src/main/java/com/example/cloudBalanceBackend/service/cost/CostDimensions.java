@@ -0,0 +1,57 @@
+package com.example.cloudBalanceBackend.service.cost;
+
+import java.util.List;
+import java.util.Map;
+
+// Cost-report dimensions shared by every cost data source
+public final class CostDimensions {
+
+    private CostDimensions() {
+        // Constants holder - no instantiation
+    }
+
+    // Series that collects every group outside the top N. Reserved rather than a plain "Others":
+    // the trailing zero-width space never occurs in CUR values, so a real group named "Others"
+    // stays a separate series and remains drillable, while the label still renders as "Others".
+    public static final String OTHERS_GROUP = "Others\u200B";
+
+    // Map frontend groupBy to COSTREPORT columns
+    public static final Map<String, String> GROUP_BY_MAPPING = Map.of(
+            "service", "SERVICE",
+            "instanceType", "INSTANCE_TYPE",
+            "accountId", "ACCOUNT_ID",
+            "usageType", "USAGE_TYPE",
+            "platform", "PLATFORM",
+            "region", "REGION",
+            "usageTypeGroup", "USAGE_TYPE_GROUP",
+            "purchaseOption", "PURCHASE_OPTION",
+            "resource", "RESOURCE",
+            "availabilityZone", "AVAILABILITY_ZONE"
+    );
+
+    // Dimension columns of COSTREPORT besides BILL_DATE and COST, in a fixed order
+    public static final List<String> COLUMNS = List.of(
+            "SERVICE",
+            "INSTANCE_TYPE",
+            "ACCOUNT_ID",
+            "USAGE_TYPE",
+            "PLATFORM",
+            "REGION",
+            "USAGE_TYPE_GROUP",
+            "PURCHASE_OPTION",
+            "RESOURCE",
+            "AVAILABILITY_ZONE"
+    );
+
+    // Resolve the column for a frontend groupBy value
+    public static String resolveColumn(String groupBy) {
+        String columnName = GROUP_BY_MAPPING.get(groupBy);
+        if (columnName == null) throw new IllegalArgumentException("Invalid groupBy: " + groupBy);
+        return columnName;
+    }
+
+    // Column for a filter key; unknown keys are passed through upper-cased
+    public static String filterColumn(String filterKey) {
+        return GROUP_BY_MAPPING.getOrDefault(filterKey, filterKey.toUpperCase());
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.cloudBalanceBackend.service.cost;
+
+import com.example.cloudBalanceBackend.model.Account;
+import com.example.cloudBalanceBackend.repository.AccountRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Distinct values of every filter dimension, for all accounts and per accountId, kept in sorted sets
+// so dropdowns can be populated and prefix-searched without querying the cost data source.
+// Refreshes are incremental: each account key remembers the last month it indexed, and later
+// refreshes only scan from that month (which may still be open) to the current one. Every account
+// key is filled from one scan split by ACCOUNT_ID.
+@Slf4j
+@Service
+public class CostFilterValueIndex {
+
+    private static final String ALL_ACCOUNTS = "";
+    // Case-insensitive order for prefix search, falling back to exact order so values differing only in case are kept
+    private static final Comparator<String> VALUE_ORDER =
+            String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.naturalOrder());
+
+    private final CostDataSource costDataSource;
+    private final AccountRepository accountRepository;
+    private final boolean enabled;
+    private final int initialMonths;
+    private final int maxValuesPerDimension;
+
+    // account key -> groupBy -> values
+    private final Map<String, Map<String, DimensionValues>> values = new ConcurrentHashMap<>();
+    // account key -> first month the next refresh has to scan
+    private final Map<String, YearMonth> watermarks = new ConcurrentHashMap<>();
+    // "account key/groupBy" of the dimensions already reported as truncated by the current refresh
+    private final Set<String> truncated = ConcurrentHashMap.newKeySet();
+
+    public CostFilterValueIndex(
+            CostDataSource costDataSource,
+            AccountRepository accountRepository,
+            @Value("${cost-explorer.filter-values.enabled:true}") boolean enabled,
+            @Value("${cost-explorer.filter-values.initial-months:13}") int initialMonths,
+            @Value("${cost-explorer.filter-values.max-per-dimension:100000}") int maxValuesPerDimension) {
+        this.costDataSource = costDataSource;
+        this.accountRepository = accountRepository;
+        this.enabled = enabled;
+        this.initialMonths = initialMonths;
+        this.maxValuesPerDimension = maxValuesPerDimension;
+    }
+
+    @Scheduled(fixedDelayString = "${cost-explorer.filter-values.refresh-interval-ms:900000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        truncated.clear();
+        YearMonth currentMonth = YearMonth.now(ZoneOffset.UTC);
+        Set<String> accountKeys = new HashSet<>();
+        accountKeys.add(ALL_ACCOUNTS);
+        accountRepository.findAll().stream().map(Account::getId).forEach(accountKeys::add);
+
+        // One scan for every account key, from the earliest month any of them still needs
+        // (the initial window for a newly onboarded account)
+        YearMonth from = currentMonth;
+        for (String accountKey : accountKeys) {
+            YearMonth watermark = watermarks.getOrDefault(accountKey, currentMonth.minusMonths(initialMonths - 1L));
+            if (watermark.isBefore(from)) {
+                from = watermark;
+            }
+        }
+
+        int added;
+        try {
+            added = index(accountKeys, from, currentMonth);
+        } catch (RuntimeException e) {
+            log.error("Filter value refresh failed: {}", e.getMessage(), e);
+            return;
+        }
+        // The current month can still gain values, so the next refresh starts from it again
+        for (String accountKey : accountKeys) {
+            watermarks.put(accountKey, currentMonth);
+        }
+
+        log.info("Filter value index refreshed for {} account keys from {}: {} new values, "
+                        + "{} dimensions truncated, in {} ms",
+                accountKeys.size(), from, added, truncated.size(), System.currentTimeMillis() - start);
+    }
+
+    // Values of the dimension starting with prefix (case-insensitive), in sorted order
+    public List<String> search(String groupBy, String accountId, String prefix, int limit) {
+        CostDimensions.resolveColumn(groupBy);
+        Map<String, DimensionValues> byDimension = values.get(accountId != null ? accountId : ALL_ACCOUNTS);
+        DimensionValues dimension = byDimension != null ? byDimension.get(groupBy) : null;
+        if (dimension == null) {
+            return List.of();
+        }
+        NavigableSet<String> dimensionValues = dimension.values;
+
+        // Values equal to the prefix ignoring case may sort before it (e.g. "EC2" before "ec2"),
+        // so start from the first of them
+        String p = prefix != null ? prefix : "";
+        String from = p;
+        for (String lower = dimensionValues.lower(p); lower != null && lower.equalsIgnoreCase(p);
+             lower = dimensionValues.lower(lower)) {
+            from = lower;
+        }
+
+        List<String> matches = new ArrayList<>();
+        for (String value : dimensionValues.tailSet(from, true)) {
+            if (matches.size() >= limit || !value.regionMatches(true, 0, p, 0, p.length())) {
+                break;
+            }
+            matches.add(value);
+        }
+        return matches;
+    }
+
+    // One scan of [from, to] for every dimension, split by account; returns the number of values added.
+    // ALL_ACCOUNTS gets the values of every account in the data, the other keys only their own.
+    private int index(Set<String> accountKeys, YearMonth from, YearMonth to) {
+        List<String> groupBys = new ArrayList<>(CostDimensions.GROUP_BY_MAPPING.keySet());
+        int[] added = {0};
+        costDataSource.streamDistinctValuesByAccount(groupBys, from.atDay(1), to.atEndOfMonth(),
+                (accountId, groupBy, value) -> {
+                    if (value == null || value.isEmpty()) {
+                        return;
+                    }
+                    added[0] += add(ALL_ACCOUNTS, groupBy, value);
+                    if (!accountId.equals(ALL_ACCOUNTS) && accountKeys.contains(accountId)) {
+                        added[0] += add(accountId, groupBy, value);
+                    }
+                });
+        return added[0];
+    }
+
+    private int add(String accountKey, String groupBy, String value) {
+        DimensionValues dimension = values
+                .computeIfAbsent(accountKey, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(groupBy, k -> new DimensionValues());
+        if (dimension.size.get() >= maxValuesPerDimension) {
+            if (!dimension.values.contains(value) && truncated.add(accountKey + "/" + groupBy)) {
+                log.warn("Filter values of {} for account '{}' truncated at {} values; raise "
+                                + "cost-explorer.filter-values.max-per-dimension to index the rest",
+                        groupBy, accountKey, maxValuesPerDimension);
+            }
+            return 0;
+        }
+        if (!dimension.values.add(value)) {
+            return 0;
+        }
+        dimension.size.incrementAndGet();
+        return 1;
+    }
+
+    // The sorted values of one dimension with their count, since size() of a skip list set walks every element
+    private static final class DimensionValues {
+        private final NavigableSet<String> values = new ConcurrentSkipListSet<>(VALUE_ORDER);
+        private final AtomicInteger size = new AtomicInteger();
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.cloudBalanceBackend.service.cost;
+
+import java.util.List;
+import java.util.Map;
+
+// One page of cost rows for consecutive groups in ascending group order.
+// lastGroup is the keyset position to continue after; hasMore tells whether another page exists.
+public record CostPage(List<Map<String, Object>> rows, String lastGroup, boolean hasMore) {
+}
@@ -0,0 +1,47 @@
+package com.example.cloudBalanceBackend.service.cost;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Builds a CostPage from rows ordered by group, as the keyset page query returns them: the rows of the
+// first pageSize groups are kept, and any row of a further group (the query's look-ahead group) only
+// marks that another page exists.
+public final class CostPageCollector implements CostRowConsumer {
+
+    private final int pageSize;
+    private final List<Map<String, Object>> rows = new ArrayList<>();
+    private String lastGroup;
+    private int groups;
+    private boolean hasMore;
+
+    public CostPageCollector(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public void accept(String group, String month, double cost) {
+        if (groups == 0 || !group.equals(lastGroup)) {
+            if (groups == pageSize) {
+                hasMore = true;
+                return;
+            }
+            groups++;
+            lastGroup = group;
+        }
+        Map<String, Object> row = new HashMap<>();
+        row.put("group", group);
+        row.put("month", month);
+        row.put("cost", cost);
+        rows.add(row);
+    }
+
+    public int getGroupCount() {
+        return groups;
+    }
+
+    public CostPage toPage() {
+        return new CostPage(rows, lastGroup, hasMore);
+    }
+}
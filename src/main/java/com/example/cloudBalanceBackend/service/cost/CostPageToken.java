@@ -0,0 +1,41 @@
+package com.example.cloudBalanceBackend.service.cost;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Continuation token of a keyset page: the page's last group behind a version prefix, base64url-encoded
+// so clients treat it as opaque. The prefix keeps the token of the empty-string group from being empty,
+// which would read as "no token" and restart at the first page, and rejects tokens not made by encode.
+public final class CostPageToken {
+
+    private static final String PREFIX = "g1:";
+
+    private CostPageToken() {
+    }
+
+    // Token for the page after this one, or null if it is the last page
+    public static String encode(CostPage page) {
+        if (!page.hasMore()) {
+            return null;
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + page.lastGroup()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // The group to continue after, or null for the first page
+    public static String decode(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid pageToken");
+        }
+        if (!decoded.startsWith(PREFIX)) {
+            throw new IllegalArgumentException("Invalid pageToken");
+        }
+        return decoded.substring(PREFIX.length());
+    }
+}
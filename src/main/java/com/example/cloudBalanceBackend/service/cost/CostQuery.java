@@ -0,0 +1,80 @@
+package com.example.cloudBalanceBackend.service.cost;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDate;
+import java.util.*;
+
+// Normalized cost-explorer query, used as the cache key for cost data.
+// Filter keys and values are sorted and de-duplicated so that equivalent requests
+// (same filters in a different order) map to the same key. The accountId scope is
+// carried as a regular "accountId" filter entry.
+@Getter
+@ToString
+@EqualsAndHashCode
+public final class CostQuery {
+
+    private final String groupBy;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private final SortedMap<String, List<String>> filters;
+    // Keep only the N most expensive groups and fold the rest into "Others"; null for all groups
+    private final Integer topN;
+
+    private CostQuery(String groupBy, LocalDate startDate, LocalDate endDate,
+                      SortedMap<String, List<String>> filters, Integer topN) {
+        this.groupBy = groupBy;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.filters = filters;
+        this.topN = topN;
+    }
+
+    public static CostQuery of(String groupBy, LocalDate startDate, LocalDate endDate,
+                               Map<String, List<String>> filters) {
+        return of(groupBy, startDate, endDate, filters, null);
+    }
+
+    public static CostQuery of(String groupBy, LocalDate startDate, LocalDate endDate,
+                               Map<String, List<String>> filters, Integer topN) {
+        if (topN != null && topN < 1) {
+            throw new IllegalArgumentException("topN must be at least 1");
+        }
+        return new CostQuery(groupBy, startDate, endDate, normalizeFilters(filters), topN);
+    }
+
+    // Same groupBy and filters, restricted to the given date range
+    public CostQuery withDates(LocalDate startDate, LocalDate endDate) {
+        return new CostQuery(groupBy, startDate, endDate, filters, topN);
+    }
+
+    // Account the query is scoped to, or null when it spans several (or all) accounts
+    public String getAccountId() {
+        List<String> accountIds = filters.get("accountId");
+        return accountIds != null && accountIds.size() == 1 ? accountIds.get(0) : null;
+    }
+
+    private static SortedMap<String, List<String>> normalizeFilters(Map<String, List<String>> filters) {
+        SortedMap<String, List<String>> normalized = new TreeMap<>();
+        if (filters == null) {
+            return Collections.unmodifiableSortedMap(normalized);
+        }
+
+        for (Map.Entry<String, List<String>> entry : filters.entrySet()) {
+            if (entry.getKey() == null || entry.getValue() == null || entry.getValue().isEmpty()) {
+                continue;
+            }
+            List<String> values = entry.getValue().stream()
+                    .filter(Objects::nonNull)
+                    .distinct()
+                    .sorted()
+                    .toList();
+            if (!values.isEmpty()) {
+                normalized.put(entry.getKey(), values);
+            }
+        }
+        return Collections.unmodifiableSortedMap(normalized);
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.cloudBalanceBackend.service.cost;
+
+import com.example.cloudBalanceBackend.model.Account;
+import com.example.cloudBalanceBackend.repository.AccountRepository;
+import com.example.cloudBalanceBackend.service.DataVersionTracker;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.*;
+
+// Pre-aggregated monthly SUM(COST) per groupBy dimension, for all accounts and per accountId,
+// materialized on a schedule over a rolling window of months. Each dimension is loaded with one
+// query grouped by account, and the all-accounts cells are summed from it.
+// Requests over whole months with no filters or only an accountId filter are answered from the cube;
+// everything else goes to the cost data source. The open month is included, so those numbers can
+// lag the source by up to one refresh interval.
+@Slf4j
+@Service
+public class CostRollupCube {
+
+    private static final String ALL_ACCOUNTS = "";
+    // Near one group per resource and account: too many cells to hold, so resource queries go to the source
+    private static final Set<String> EXCLUDED_DIMENSIONS = Set.of("resource");
+
+    private final CostDataSource costDataSource;
+    private final AccountRepository accountRepository;
+    private final DataVersionTracker dataVersionTracker;
+    private final boolean enabled;
+    private final int months;
+
+    private volatile Snapshot snapshot;
+
+    public CostRollupCube(
+            CostDataSource costDataSource,
+            AccountRepository accountRepository,
+            DataVersionTracker dataVersionTracker,
+            @Value("${cost-explorer.rollup.enabled:true}") boolean enabled,
+            @Value("${cost-explorer.rollup.months:13}") int months) {
+        this.costDataSource = costDataSource;
+        this.accountRepository = accountRepository;
+        this.dataVersionTracker = dataVersionTracker;
+        this.enabled = enabled;
+        this.months = months;
+    }
+
+    // Rebuild the cube and swap it in; on failure the previous cube stays in use
+    @Scheduled(fixedDelayString = "${cost-explorer.rollup.refresh-interval-ms:3600000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        YearMonth lastMonth = YearMonth.now(ZoneOffset.UTC);
+        YearMonth firstMonth = lastMonth.minusMonths(months - 1L);
+        LocalDate startDate = firstMonth.atDay(1);
+        LocalDate endDate = lastMonth.atEndOfMonth();
+
+        Set<String> accountIds = new HashSet<>(accountRepository.findAll().stream().map(Account::getId).toList());
+        Map<String, Map<String, List<Cell>>> cells = new HashMap<>();
+        int cellCount = 0;
+
+        try {
+            for (String groupBy : CostDimensions.GROUP_BY_MAPPING.keySet()) {
+                if (EXCLUDED_DIMENSIONS.contains(groupBy)) {
+                    continue;
+                }
+                Map<String, List<Cell>> byAccount = load(groupBy, startDate, endDate, accountIds);
+                for (List<Cell> accountCells : byAccount.values()) {
+                    cellCount += accountCells.size();
+                }
+                cells.put(groupBy, byAccount);
+            }
+        } catch (RuntimeException e) {
+            log.error("Cost rollup refresh failed, keeping previous cube: {}", e.getMessage(), e);
+            return;
+        }
+
+        Snapshot previous = snapshot;
+        snapshot = new Snapshot(GroupMonthSums.monthIndex(startDate), GroupMonthSums.monthIndex(endDate), cells);
+        // Answers served from the cube change with it, so responses cached by clients must be revalidated
+        if (previous != null && !previous.equals(snapshot)) {
+            dataVersionTracker.markAllChanged();
+        }
+        log.info("Cost rollup cube refreshed: {} dimensions, {} accounts, {} months, {} cells in {} ms",
+                cells.size(), accountIds.size(), months, cellCount, System.currentTimeMillis() - start);
+    }
+
+    // Whether stream would answer this request from the cube
+    public boolean canServe(String groupBy, LocalDate startDate, LocalDate endDate, Map<String, List<String>> filters) {
+        Snapshot current = snapshot;
+        return current != null && select(current, groupBy, startDate, endDate, filters) != null;
+    }
+
+    // Answer from the cube if the request allows it; returns false if the caller must query the source
+    public boolean stream(
+            String groupBy,
+            LocalDate startDate,
+            LocalDate endDate,
+            Map<String, List<String>> filters,
+            Integer topN,
+            CostRowConsumer consumer
+    ) {
+        Snapshot current = snapshot;
+        List<List<Cell>> selected = current != null ? select(current, groupBy, startDate, endDate, filters) : null;
+        if (selected == null) {
+            return false;
+        }
+
+        int firstMonth = GroupMonthSums.monthIndex(startDate);
+        int lastMonth = GroupMonthSums.monthIndex(endDate);
+        GroupMonthSums sums = new GroupMonthSums(startDate, endDate);
+        for (List<Cell> accountCells : selected) {
+            for (Cell cell : accountCells) {
+                if (cell.month >= firstMonth && cell.month <= lastMonth) {
+                    sums.add(sums.groupId(cell.group), cell.month - firstMonth, cell.cost);
+                }
+            }
+        }
+        sums.emit(topN, CostDimensions.OTHERS_GROUP, consumer);
+        log.info("Answered groupBy={} from the cost rollup cube", groupBy);
+        return true;
+    }
+
+    // Cells of the accounts the request covers, or null if the snapshot cannot answer it
+    private static List<List<Cell>> select(
+            Snapshot current,
+            String groupBy,
+            LocalDate startDate,
+            LocalDate endDate,
+            Map<String, List<String>> filters
+    ) {
+        if (!isWholeMonths(startDate, endDate)) {
+            return null;
+        }
+
+        int firstMonth = GroupMonthSums.monthIndex(startDate);
+        int lastMonth = GroupMonthSums.monthIndex(endDate);
+        if (firstMonth < current.firstMonth || lastMonth > current.lastMonth) {
+            return null;
+        }
+
+        Map<String, List<Cell>> byAccount = current.cells.get(groupBy);
+        List<String> accountIds = accountScope(filters);
+        if (byAccount == null || accountIds == null) {
+            return null;
+        }
+
+        List<List<Cell>> selected = new ArrayList<>();
+        for (String accountId : accountIds) {
+            List<Cell> accountCells = byAccount.get(accountId);
+            if (accountCells == null) {
+                return null;
+            }
+            selected.add(accountCells);
+        }
+        return selected;
+    }
+
+    // One per-account scan of the dimension: cells per onboarded account (empty if it has no rows) and,
+    // under ALL_ACCOUNTS, their sum over every account in the data
+    private Map<String, List<Cell>> load(String groupBy, LocalDate startDate, LocalDate endDate, Set<String> accountIds) {
+        Map<String, List<Cell>> byAccount = new HashMap<>();
+        for (String accountId : accountIds) {
+            byAccount.put(accountId, new ArrayList<>());
+        }
+        GroupMonthSums all = new GroupMonthSums(startDate, endDate);
+        costDataSource.streamCostDataByAccount(groupBy, startDate, endDate, (accountId, group, month, cost) -> {
+            int monthIndex = GroupMonthSums.monthIndex(month);
+            all.add(all.groupId(group), monthIndex - all.getFirstMonth(), cost);
+            List<Cell> accountCells = byAccount.get(accountId);
+            if (accountCells != null) {
+                accountCells.add(new Cell(group, monthIndex, cost));
+            }
+        });
+
+        List<Cell> allCells = new ArrayList<>();
+        all.emit(null, null, (group, month, cost) -> allCells.add(new Cell(group, GroupMonthSums.monthIndex(month), cost)));
+        byAccount.put(ALL_ACCOUNTS, allCells);
+        // Row order is up to the source; sorted cells let an unchanged refresh compare equal to the last one
+        for (List<Cell> accountCells : byAccount.values()) {
+            accountCells.sort(Comparator.comparingInt(Cell::month).thenComparing(Cell::group));
+        }
+        return byAccount;
+    }
+
+    // Accounts the filters restrict to (ALL_ACCOUNTS if none); null if any other filter is set
+    private static List<String> accountScope(Map<String, List<String>> filters) {
+        if (filters == null) {
+            return List.of(ALL_ACCOUNTS);
+        }
+
+        List<String> accountIds = null;
+        for (Map.Entry<String, List<String>> entry : filters.entrySet()) {
+            if (entry.getValue() == null || entry.getValue().isEmpty()) {
+                continue;
+            }
+            if (!entry.getKey().equals("accountId")) {
+                return null;
+            }
+            accountIds = entry.getValue().stream().distinct().toList();
+        }
+        return accountIds != null ? accountIds : List.of(ALL_ACCOUNTS);
+    }
+
+    private static boolean isWholeMonths(LocalDate startDate, LocalDate endDate) {
+        return startDate.getDayOfMonth() == 1
+                && endDate.equals(YearMonth.from(endDate).atEndOfMonth())
+                && !startDate.isAfter(endDate);
+    }
+
+    private record Cell(String group, int month, double cost) {
+    }
+
+    private record Snapshot(int firstMonth, int lastMonth, Map<String, Map<String, List<Cell>>> cells) {
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.cloudBalanceBackend.service.cost;
+
+// Receives cost rows one at a time as they are read, instead of a materialized list
+@FunctionalInterface
+public interface CostRowConsumer {
+    void accept(String group, String month, double cost);
+}
@@ -0,0 +1,7 @@
+package com.example.cloudBalanceBackend.service.cost;
+
+// Receives the values of groupBy dimensions seen for an ACCOUNT_ID, one at a time as they are read
+@FunctionalInterface
+public interface DimensionValueConsumer {
+    void accept(String accountId, String groupBy, String value);
+}
@@ -0,0 +1,119 @@
+package com.example.cloudBalanceBackend.service.cost;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+
+// Accumulates SUM(COST) per (group, month) for one query, e.g. across local segments or rollup cells.
+// Groups get dense ids in first-seen order and each owns a month array covering the query range;
+// NaN marks a month with no rows, so absent (group, month) pairs are not emitted, as in SQL.
+public final class GroupMonthSums {
+
+    private final int firstMonth;
+    private final int monthSpan;
+    private final Map<String, Integer> groupIds = new HashMap<>();
+    private final List<String> groups = new ArrayList<>();
+    private final List<double[]> sums = new ArrayList<>();
+
+    public GroupMonthSums(LocalDate startDate, LocalDate endDate) {
+        this.firstMonth = monthIndex(startDate);
+        this.monthSpan = Math.max(0, monthIndex(endDate) - firstMonth + 1);
+    }
+
+    public int getFirstMonth() {
+        return firstMonth;
+    }
+
+    public int getMonthSpan() {
+        return monthSpan;
+    }
+
+    public int groupId(String group) {
+        Integer id = groupIds.get(group);
+        if (id == null) {
+            id = groups.size();
+            groupIds.put(group, id);
+            groups.add(group);
+            double[] monthSums = new double[monthSpan];
+            Arrays.fill(monthSums, Double.NaN);
+            sums.add(monthSums);
+        }
+        return id;
+    }
+
+    public void add(int groupId, int monthOffset, double cost) {
+        double[] monthSums = sums.get(groupId);
+        monthSums[monthOffset] = Double.isNaN(monthSums[monthOffset]) ? cost : monthSums[monthOffset] + cost;
+    }
+
+    // Emit month by month. With topN set, only the topN groups by total cost are kept
+    // (name as tie-breaker) and the rest are summed into otherGroup.
+    public void emit(Integer topN, String otherGroup, CostRowConsumer consumer) {
+        if (topN == null || topN >= groups.size()) {
+            emit(groups, sums, consumer);
+            return;
+        }
+
+        double[] totals = new double[groups.size()];
+        for (int i = 0; i < totals.length; i++) {
+            for (double v : sums.get(i)) {
+                if (!Double.isNaN(v)) {
+                    totals[i] += v;
+                }
+            }
+        }
+        Integer[] ranked = new Integer[groups.size()];
+        for (int i = 0; i < ranked.length; i++) {
+            ranked[i] = i;
+        }
+        Arrays.sort(ranked, Comparator.<Integer>comparingDouble(i -> -totals[i]).thenComparing(groups::get));
+
+        List<String> topGroups = new ArrayList<>();
+        List<double[]> topSums = new ArrayList<>();
+        double[] others = new double[monthSpan];
+        Arrays.fill(others, Double.NaN);
+        for (int r = 0; r < ranked.length; r++) {
+            double[] monthSums = sums.get(ranked[r]);
+            if (r < topN) {
+                topGroups.add(groups.get(ranked[r]));
+                topSums.add(monthSums);
+                continue;
+            }
+            for (int m = 0; m < monthSpan; m++) {
+                if (!Double.isNaN(monthSums[m])) {
+                    others[m] = Double.isNaN(others[m]) ? monthSums[m] : others[m] + monthSums[m];
+                }
+            }
+        }
+
+        topGroups.add(otherGroup);
+        topSums.add(others);
+        emit(topGroups, topSums, consumer);
+    }
+
+    private void emit(List<String> names, List<double[]> values, CostRowConsumer consumer) {
+        for (int m = 0; m < monthSpan; m++) {
+            String month = monthName(firstMonth + m);
+            for (int i = 0; i < names.size(); i++) {
+                double v = values.get(i)[m];
+                if (!Double.isNaN(v)) {
+                    consumer.accept(names.get(i), month, v);
+                }
+            }
+        }
+    }
+
+    public static int monthIndex(LocalDate date) {
+        return date.getYear() * 12 + date.getMonthValue() - 1;
+    }
+
+    // Inverse of monthName, for "YYYY-MM" month strings
+    public static int monthIndex(String month) {
+        YearMonth yearMonth = YearMonth.parse(month);
+        return yearMonth.getYear() * 12 + yearMonth.getMonthValue() - 1;
+    }
+
+    private static String monthName(int monthIndex) {
+        return YearMonth.of(monthIndex / 12, monthIndex % 12 + 1).toString();
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.cloudBalanceBackend.service.local;
+
+import com.example.cloudBalanceBackend.service.cost.CostDimensions;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+// On-disk columnar segment holding the rows of one ingested CUR file.
+// Layout (big-endian):
+//   magic "CBSEG001", int rowCount, int dimensionCount, int minDay, int maxDay (epoch days)
+//   per dimension: int dictionarySize, then per value: int byteLength + UTF-8 bytes
+//   per dimension: byte codeWidth (1, 2 or 4 bytes, the narrowest that fits the dictionary)
+//   int[rowCount] BILL_DATE epoch days, double[rowCount] COST,
+//   then per dimension the code column at its width
+final class CostSegmentFile {
+
+    static final String EXTENSION = ".seg";
+    private static final byte[] MAGIC = "CBSEG001".getBytes(StandardCharsets.US_ASCII);
+
+    private CostSegmentFile() {
+        // Utility class - no instantiation
+    }
+
+    // Write the table to target atomically (temp file + move), so readers never see a partial segment
+    static void write(CostTable table, Path target) throws IOException {
+        int rowCount = table.getRowCount();
+        int dimensions = CostDimensions.COLUMNS.size();
+        int[] days = table.days();
+
+        int minDay = Integer.MAX_VALUE;
+        int maxDay = Integer.MIN_VALUE;
+        for (int row = 0; row < rowCount; row++) {
+            minDay = Math.min(minDay, days[row]);
+            maxDay = Math.max(maxDay, days[row]);
+        }
+
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.write(MAGIC);
+            out.writeInt(rowCount);
+            out.writeInt(dimensions);
+            out.writeInt(minDay);
+            out.writeInt(maxDay);
+
+            for (int d = 0; d < dimensions; d++) {
+                String[] dictionary = table.dictionary(d);
+                out.writeInt(dictionary.length);
+                for (String value : dictionary) {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+            }
+
+            int[] widths = new int[dimensions];
+            for (int d = 0; d < dimensions; d++) {
+                widths[d] = codeWidth(table.dictionary(d).length);
+                out.writeByte(widths[d]);
+            }
+
+            for (int row = 0; row < rowCount; row++) {
+                out.writeInt(days[row]);
+            }
+            double[] costs = table.costs();
+            for (int row = 0; row < rowCount; row++) {
+                out.writeDouble(costs[row]);
+            }
+            for (int d = 0; d < dimensions; d++) {
+                int[] codes = table.codes(d);
+                for (int row = 0; row < rowCount; row++) {
+                    switch (widths[d]) {
+                        case 1 -> out.writeByte(codes[row]);
+                        case 2 -> out.writeShort(codes[row]);
+                        default -> out.writeInt(codes[row]);
+                    }
+                }
+            }
+        }
+
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    record Header(int rowCount, int minDay, int maxDay, String[][] dictionaries, int[] codeWidths) {
+    }
+
+    // Decode the header, dictionaries and code widths, leaving the buffer positioned at the BILL_DATE column
+    static Header readHeader(Path path, ByteBuffer buffer) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        buffer.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a cost segment file: " + path);
+        }
+        int rowCount = buffer.getInt();
+        int dimensions = buffer.getInt();
+        if (dimensions != CostDimensions.COLUMNS.size()) {
+            throw new IOException("Segment " + path + " has " + dimensions + " dimensions, expected "
+                    + CostDimensions.COLUMNS.size());
+        }
+        int minDay = buffer.getInt();
+        int maxDay = buffer.getInt();
+
+        String[][] dictionaries = new String[dimensions][];
+        for (int d = 0; d < dimensions; d++) {
+            dictionaries[d] = new String[buffer.getInt()];
+            for (int code = 0; code < dictionaries[d].length; code++) {
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                dictionaries[d][code] = new String(bytes, StandardCharsets.UTF_8);
+            }
+        }
+
+        int[] widths = new int[dimensions];
+        for (int d = 0; d < dimensions; d++) {
+            widths[d] = buffer.get();
+        }
+        return new Header(rowCount, minDay, maxDay, dictionaries, widths);
+    }
+
+    private static int codeWidth(int dictionarySize) {
+        if (dictionarySize <= 1 << 8) {
+            return 1;
+        }
+        return dictionarySize <= 1 << 16 ? 2 : 4;
+    }
+}
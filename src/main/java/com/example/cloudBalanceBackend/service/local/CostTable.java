@@ -0,0 +1,112 @@
+package com.example.cloudBalanceBackend.service.local;
+
+import com.example.cloudBalanceBackend.service.cost.CostDimensions;
+
+import java.time.LocalDate;
+import java.util.*;
+
+// In-memory columnar buffer of COSTREPORT rows, filled while parsing one CUR file and then written
+// out as a segment file. Every dimension is dictionary-encoded to an int column, BILL_DATE is kept
+// as epoch days and COST as a double column.
+public final class CostTable {
+
+    private static final int DIMENSIONS = CostDimensions.COLUMNS.size();
+
+    private final int rowCount;
+    private final int[] days;
+    private final double[] costs;
+    private final int[][] codes;            // [dimension][row]
+    private final String[][] dictionaries;  // [dimension][code]
+
+    private CostTable(int rowCount, int[] days, double[] costs, int[][] codes, String[][] dictionaries) {
+        this.rowCount = rowCount;
+        this.days = days;
+        this.costs = costs;
+        this.codes = codes;
+        this.dictionaries = dictionaries;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    // Raw column access for the segment writer
+
+    int[] days() {
+        return days;
+    }
+
+    double[] costs() {
+        return costs;
+    }
+
+    int[] codes(int dimension) {
+        return codes[dimension];
+    }
+
+    String[] dictionary(int dimension) {
+        return dictionaries[dimension];
+    }
+
+    // Appends rows into growable primitive columns, dictionary-encoding dimension values
+    public static final class Builder {
+
+        private int size;
+        private int[] days = new int[1024];
+        private double[] costs = new double[1024];
+        private final int[][] codes = new int[DIMENSIONS][1024];
+        private final List<Map<String, Integer>> dictionaryIds = new ArrayList<>();
+        private final List<List<String>> dictionaryValues = new ArrayList<>();
+
+        private Builder() {
+            for (int d = 0; d < DIMENSIONS; d++) {
+                dictionaryIds.add(new HashMap<>());
+                dictionaryValues.add(new ArrayList<>());
+            }
+        }
+
+        // dimensionValues follow CostDimensions.COLUMNS; null values are stored as ""
+        public Builder add(LocalDate billDate, double cost, String[] dimensionValues) {
+            if (size == days.length) {
+                int capacity = size * 2;
+                days = Arrays.copyOf(days, capacity);
+                costs = Arrays.copyOf(costs, capacity);
+                for (int d = 0; d < DIMENSIONS; d++) {
+                    codes[d] = Arrays.copyOf(codes[d], capacity);
+                }
+            }
+
+            days[size] = (int) billDate.toEpochDay();
+            costs[size] = cost;
+            for (int d = 0; d < DIMENSIONS; d++) {
+                String value = dimensionValues[d] != null ? dimensionValues[d] : "";
+                Map<String, Integer> ids = dictionaryIds.get(d);
+                Integer code = ids.get(value);
+                if (code == null) {
+                    code = ids.size();
+                    ids.put(value, code);
+                    dictionaryValues.get(d).add(value);
+                }
+                codes[d][size] = code;
+            }
+            size++;
+            return this;
+        }
+
+        public CostTable build() {
+            int[][] trimmedCodes = new int[DIMENSIONS][];
+            String[][] dictionaries = new String[DIMENSIONS][];
+            for (int d = 0; d < DIMENSIONS; d++) {
+                trimmedCodes[d] = Arrays.copyOf(codes[d], size);
+                dictionaries[d] = dictionaryValues.get(d).toArray(new String[0]);
+            }
+
+            return new CostTable(size, Arrays.copyOf(days, size), Arrays.copyOf(costs, size),
+                    trimmedCodes, dictionaries);
+        }
+    }
+}
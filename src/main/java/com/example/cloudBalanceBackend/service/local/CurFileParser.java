@@ -0,0 +1,139 @@
+package com.example.cloudBalanceBackend.service.local;
+
+import com.example.cloudBalanceBackend.service.cost.CostDimensions;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+
+// Parses CUR extracts (CSV, optionally gzip-compressed) with COSTREPORT columns:
+// BILL_DATE, COST and the CostDimensions columns. Header names are matched case-insensitively
+// and without separators, so "bill_date", "BillDate" and "BILL_DATE" are all accepted.
+@Slf4j
+public final class CurFileParser {
+
+    private CurFileParser() {
+        // Utility class - no instantiation
+    }
+
+    public static boolean isCurFile(Path path) {
+        String name = path.getFileName().toString().toLowerCase();
+        return name.endsWith(".csv") || name.endsWith(".csv.gz");
+    }
+
+    // Stream the file's records and hand them to the consumer in chunks of up to chunkRows as they fill,
+    // so chunks can be converted in parallel while the rest of the file is still being read.
+    // Returns the number of chunks; an empty file still yields one (empty) chunk.
+    public static int read(Path path, int chunkRows, ChunkConsumer consumer) throws IOException, InterruptedException {
+        try (Reader reader = open(path);
+             CSVParser parser = CSVFormat.DEFAULT.builder()
+                     .setHeader()
+                     .setSkipHeaderRecord(true)
+                     .setTrim(true)
+                     .build()
+                     .parse(reader)) {
+
+            Map<String, String> headers = new HashMap<>();
+            for (String header : parser.getHeaderNames()) {
+                headers.put(normalize(header), header);
+            }
+
+            List<String> dimensions = CostDimensions.COLUMNS;
+            String[] dimensionHeaders = new String[dimensions.size()];
+            for (int d = 0; d < dimensions.size(); d++) {
+                dimensionHeaders[d] = headers.get(normalize(dimensions.get(d)));
+            }
+            Columns columns = new Columns(require(headers, "BILL_DATE", path), require(headers, "COST", path),
+                    dimensionHeaders);
+
+            int chunks = 0;
+            List<CSVRecord> records = new ArrayList<>();
+            for (CSVRecord record : parser) {
+                records.add(record);
+                if (records.size() == chunkRows) {
+                    consumer.accept(new Chunk(path, chunks++, columns, records));
+                    records = new ArrayList<>();
+                }
+            }
+            if (!records.isEmpty() || chunks == 0) {
+                consumer.accept(new Chunk(path, chunks++, columns, records));
+            }
+            return chunks;
+        }
+    }
+
+    // Convert a chunk's records into the builder; returns the number of rows added
+    public static int parse(Chunk chunk, CostTable.Builder builder) {
+        Columns columns = chunk.columns();
+        int added = 0;
+        int skipped = 0;
+        String[] values = new String[columns.dimensionHeaders().length];
+        for (CSVRecord record : chunk.records()) {
+            try {
+                String billDate = record.get(columns.billDateHeader());
+                String cost = record.get(columns.costHeader());
+                if (billDate == null || billDate.length() < 10 || cost == null || cost.isBlank()) {
+                    skipped++;
+                    continue;
+                }
+
+                for (int d = 0; d < values.length; d++) {
+                    String header = columns.dimensionHeaders()[d];
+                    values[d] = header != null ? record.get(header) : null;
+                }
+                // Dates may carry a time part (2024-10-01T00:00:00Z); only the day matters
+                builder.add(LocalDate.parse(billDate.substring(0, 10)), Double.parseDouble(cost), values);
+                added++;
+            } catch (RuntimeException e) {
+                skipped++;
+                log.debug("Skipping CUR row {} in {}: {}", record.getRecordNumber(), chunk.path(), e.getMessage());
+            }
+        }
+
+        if (skipped > 0) {
+            log.warn("Skipped {} malformed rows in chunk {} of {}", skipped, chunk.index(), chunk.path());
+        }
+        return added;
+    }
+
+    private static Reader open(Path path) throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(path), 1 << 16);
+        if (path.getFileName().toString().toLowerCase().endsWith(".gz")) {
+            in = new GZIPInputStream(in, 1 << 16);
+        }
+        return new InputStreamReader(in, StandardCharsets.UTF_8);
+    }
+
+    private static String require(Map<String, String> headers, String column, Path path) {
+        String header = headers.get(normalize(column));
+        if (header == null) {
+            throw new IllegalArgumentException("CUR file " + path + " has no " + column + " column");
+        }
+        return header;
+    }
+
+    private static String normalize(String header) {
+        return header.replaceAll("[^A-Za-z0-9]", "").toUpperCase();
+    }
+
+    // Header names of the BILL_DATE and COST columns and of each CostDimensions column (null when absent)
+    public record Columns(String billDateHeader, String costHeader, String[] dimensionHeaders) {
+    }
+
+    // Consecutive records of one file; chunk index 0 holds the first records
+    public record Chunk(Path path, int index, Columns columns, List<CSVRecord> records) {
+    }
+
+    @FunctionalInterface
+    public interface ChunkConsumer {
+        void accept(Chunk chunk) throws InterruptedException;
+    }
+}
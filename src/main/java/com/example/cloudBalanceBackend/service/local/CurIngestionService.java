@@ -0,0 +1,344 @@
+package com.example.cloudBalanceBackend.service.local;
+
+import com.example.cloudBalanceBackend.service.DataVersionTracker;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Watches the CUR inbox directory and ingests new or changed CUR files into the columnar store.
+// Files are read one after another on the polling thread and split into row chunks; the parse pool
+// converts the chunks in parallel and writes each as a segment part named after the source file, its
+// size/modification time and the chunk index, so unchanged files are never re-ingested. Part 0 is
+// moved into place last: a file counts as ingested once it exists. Segments of re-delivered files
+// are replaced, and segments of files removed from the inbox are deleted.
+// Ingestion is opt-in (cost-explorer.ingest.enabled) and runs on the scheduler, never during startup.
+@Slf4j
+@Service
+public class CurIngestionService {
+
+    // <source>__<size hex>-<mtime hex>__<chunk index>.seg
+    private static final Pattern SEGMENT_NAME = Pattern.compile(
+            "(.+)__([0-9a-f]+-[0-9a-f]+)__(\\d{4,})" + Pattern.quote(CostSegmentFile.EXTENSION));
+    private static final String STAGED_SUFFIX = ".staged";
+
+    private final LocalCostDataSource localCostDataSource;
+    private final DataVersionTracker dataVersionTracker;
+    private final boolean enabled;
+    private final Path inboxDir;
+    private final Path storeDir;
+    private final long settleMillis;
+    private final int chunkRows;
+    private final ExecutorService parsePool;
+    // Bounds the chunks read but not yet written, so the reader cannot run far ahead of the pool
+    private final Semaphore chunkPermits;
+
+    public CurIngestionService(
+            LocalCostDataSource localCostDataSource,
+            DataVersionTracker dataVersionTracker,
+            @Value("${cost-explorer.ingest.enabled:false}") boolean enabled,
+            @Value("${cost-explorer.local.data-dir:data/cur}") String inboxDir,
+            @Value("${cost-explorer.local.store-dir:data/cost-store}") String storeDir,
+            @Value("${cost-explorer.ingest.threads:0}") int threads,
+            @Value("${cost-explorer.ingest.settle-seconds:5}") long settleSeconds,
+            @Value("${cost-explorer.ingest.chunk-rows:200000}") int chunkRows) {
+        this.localCostDataSource = localCostDataSource;
+        this.dataVersionTracker = dataVersionTracker;
+        this.enabled = enabled;
+        this.inboxDir = Paths.get(inboxDir);
+        this.storeDir = Paths.get(storeDir);
+        this.settleMillis = settleSeconds * 1000;
+        this.chunkRows = chunkRows;
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.chunkPermits = new Semaphore(poolSize * 2);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.parsePool = Executors.newFixedThreadPool(poolSize, r -> {
+            Thread t = new Thread(r, "cur-ingest-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // First run right after startup, on the scheduler thread
+    @Scheduled(initialDelayString = "${cost-explorer.ingest.initial-delay-ms:0}",
+            fixedDelayString = "${cost-explorer.ingest.poll-interval-ms:30000}")
+    public void poll() {
+        if (enabled) {
+            ingestPending();
+        }
+    }
+
+    // Ingest every CUR file in the inbox that has no up-to-date segment yet, drop segments of removed or
+    // replaced files, then reload the store
+    public synchronized Map<String, Object> ingestPending() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        if (!Files.isDirectory(inboxDir)) {
+            summary.put("files", 0);
+            return summary;
+        }
+
+        long start = System.currentTimeMillis();
+        List<Path> curFiles;
+        List<Path> pending;
+        try {
+            Files.createDirectories(storeDir);
+            curFiles = listCurFiles();
+            pending = findPendingFiles(curFiles);
+        } catch (IOException e) {
+            log.error("Failed to scan CUR inbox {}: {}", inboxDir, e.getMessage(), e);
+            summary.put("error", e.getMessage());
+            return summary;
+        }
+
+        int rows = 0;
+        List<String> failed = new ArrayList<>();
+        if (!pending.isEmpty()) {
+            log.info("Ingesting {} CUR files from {}", pending.size(), inboxDir);
+            rows = ingest(pending, failed);
+        }
+
+        int removed = 0;
+        try {
+            removed = removeStaleSegments(curFiles);
+        } catch (IOException e) {
+            log.error("Failed to clean up cost store {}: {}", storeDir, e.getMessage(), e);
+        }
+
+        if (failed.size() < pending.size() || removed > 0) {
+            localCostDataSource.reload();
+            // A CUR file can hold any number of accounts
+            dataVersionTracker.markAllChanged();
+        }
+
+        if (pending.isEmpty() && removed == 0) {
+            summary.put("files", 0);
+            return summary;
+        }
+
+        long elapsed = System.currentTimeMillis() - start;
+        log.info("Ingested {} rows from {} CUR files in {} ms ({} failed, {} stale segments removed)",
+                rows, pending.size() - failed.size(), elapsed, failed.size(), removed);
+
+        summary.put("files", pending.size() - failed.size());
+        summary.put("rows", rows);
+        summary.put("removedSegments", removed);
+        summary.put("elapsedMillis", elapsed);
+        summary.put("failed", failed);
+        return summary;
+    }
+
+    // Read the files in turn, converting their chunks on the parse pool while later chunks are read,
+    // then complete each file once all of its parts are written; returns the rows ingested
+    private int ingest(List<Path> files, List<String> failed) {
+        Map<Path, List<Future<Integer>>> parts = new LinkedHashMap<>();
+        Map<Path, String> prefixes = new HashMap<>();
+        Map<Path, Long> started = new HashMap<>();
+        for (Path file : files) {
+            started.put(file, System.currentTimeMillis());
+            List<Future<Integer>> fileParts = new ArrayList<>();
+            parts.put(file, fileParts);
+            try {
+                String prefix = segmentPrefix(file);
+                prefixes.put(file, prefix);
+                CurFileParser.read(file, chunkRows, chunk -> {
+                    chunkPermits.acquire();
+                    try {
+                        fileParts.add(parsePool.submit(() -> writeChunk(chunk, prefix)));
+                    } catch (RejectedExecutionException e) {
+                        chunkPermits.release();
+                        throw e;
+                    }
+                });
+            } catch (InterruptedException e) {
+                // Submitted chunks still run and release their permits; their parts are overwritten next time
+                Thread.currentThread().interrupt();
+                files.forEach(pending -> failed.add(pending.toString()));
+                return 0;
+            } catch (Exception e) {
+                log.error("Failed to read CUR file {}: {}", file, e.getMessage(), e);
+                fileParts.add(CompletableFuture.failedFuture(e));
+            }
+        }
+
+        int rows = 0;
+        for (Map.Entry<Path, List<Future<Integer>>> entry : parts.entrySet()) {
+            Path file = entry.getKey();
+            if (Thread.currentThread().isInterrupted()) {
+                failed.add(file.toString());
+                continue;
+            }
+            try {
+                int fileRows = 0;
+                for (Future<Integer> part : entry.getValue()) {
+                    fileRows += part.get();
+                }
+                completeFile(prefixes.get(file));
+                rows += fileRows;
+                log.info("Ingested {} rows from {} in {} parts in {} ms", fileRows, file.getFileName(),
+                        entry.getValue().size(), System.currentTimeMillis() - started.get(file));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failed.add(file.toString());
+            } catch (ExecutionException | IOException e) {
+                Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                log.error("Failed to ingest CUR file {}: {}", file, cause.getMessage(), cause);
+                failed.add(file.toString());
+                awaitAll(entry.getValue());
+                if (prefixes.containsKey(file)) {
+                    discardParts(prefixes.get(file));
+                }
+            }
+        }
+        return rows;
+    }
+
+    // Let the file's other parts finish, so none is written after its parts are discarded
+    private static void awaitAll(List<Future<Integer>> parts) {
+        for (Future<Integer> part : parts) {
+            try {
+                part.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                // Already failed; the first failure has been logged
+            }
+        }
+    }
+
+    // Convert one chunk and write it as a segment part; runs on the parse pool.
+    // Part 0 is staged under a name the store does not load until completeFile moves it into place.
+    private int writeChunk(CurFileParser.Chunk chunk, String prefix) throws IOException {
+        try {
+            CostTable.Builder builder = CostTable.builder();
+            int rows = CurFileParser.parse(chunk, builder);
+            Path part = partPath(prefix, chunk.index());
+            CostSegmentFile.write(builder.build(), chunk.index() == 0 ? staged(part) : part);
+            return rows;
+        } finally {
+            chunkPermits.release();
+        }
+    }
+
+    private void completeFile(String prefix) throws IOException {
+        Path first = partPath(prefix, 0);
+        Files.move(staged(first), first, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Remove whatever parts a failed ingest left behind, so a partially ingested file is never loaded
+    private void discardParts(String prefix) {
+        try (Stream<Path> entries = Files.list(storeDir)) {
+            for (Path entry : entries.toList()) {
+                if (entry.getFileName().toString().startsWith(prefix + "__")) {
+                    Files.deleteIfExists(entry);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to discard segment parts {}: {}", prefix, e.getMessage());
+        }
+    }
+
+    // Segments are removed when their source file left the inbox, or when the current version of the
+    // source has been ingested under a new fingerprint. Leftover staged or temp files and segments with
+    // unrecognised names are removed too. Returns the number of segments removed.
+    private int removeStaleSegments(List<Path> curFiles) throws IOException {
+        Map<String, String> currentPrefixes = new HashMap<>();
+        for (Path file : curFiles) {
+            currentPrefixes.put(sourceName(file), segmentPrefix(file));
+        }
+
+        int removed = 0;
+        try (Stream<Path> entries = Files.list(storeDir)) {
+            for (Path entry : entries.toList()) {
+                String name = entry.getFileName().toString();
+                if (name.endsWith(STAGED_SUFFIX) || name.endsWith(".tmp")) {
+                    Files.deleteIfExists(entry);
+                    continue;
+                }
+                if (!name.endsWith(CostSegmentFile.EXTENSION)) {
+                    continue;
+                }
+
+                Matcher matcher = SEGMENT_NAME.matcher(name);
+                String reason = null;
+                if (!matcher.matches()) {
+                    reason = "unrecognised name";
+                } else {
+                    String currentPrefix = currentPrefixes.get(matcher.group(1));
+                    String prefix = matcher.group(1) + "__" + matcher.group(2);
+                    if (currentPrefix == null) {
+                        reason = "source file removed";
+                    } else if (!currentPrefix.equals(prefix) && Files.exists(partPath(currentPrefix, 0))) {
+                        reason = "superseded";
+                    }
+                }
+
+                if (reason != null) {
+                    Files.deleteIfExists(entry);
+                    removed++;
+                    log.info("Removed segment {} ({})", name, reason);
+                }
+            }
+        }
+        return removed;
+    }
+
+    private List<Path> listCurFiles() throws IOException {
+        try (Stream<Path> paths = Files.walk(inboxDir)) {
+            return paths.filter(Files::isRegularFile).filter(CurFileParser::isCurFile).sorted().toList();
+        }
+    }
+
+    private List<Path> findPendingFiles(List<Path> curFiles) throws IOException {
+        long settledBefore = System.currentTimeMillis() - settleMillis;
+        List<Path> pending = new ArrayList<>();
+        for (Path file : curFiles) {
+            // Skip files that may still be being written
+            if (Files.getLastModifiedTime(file).toMillis() > settledBefore) {
+                continue;
+            }
+            if (!Files.exists(partPath(segmentPrefix(file), 0))) {
+                pending.add(file);
+            }
+        }
+        return pending;
+    }
+
+    private String segmentPrefix(Path file) throws IOException {
+        String fingerprint = Long.toHexString(Files.size(file)) + "-"
+                + Long.toHexString(Files.getLastModifiedTime(file).toMillis());
+        return sourceName(file) + "__" + fingerprint;
+    }
+
+    private Path partPath(String prefix, int index) {
+        return storeDir.resolve(prefix + "__" + String.format("%04d", index) + CostSegmentFile.EXTENSION);
+    }
+
+    private static Path staged(Path part) {
+        return part.resolveSibling(part.getFileName() + STAGED_SUFFIX);
+    }
+
+    // Inbox-relative path flattened into a file-name-safe string
+    private String sourceName(Path file) {
+        return inboxDir.relativize(file).toString().replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        parsePool.shutdownNow();
+    }
+}
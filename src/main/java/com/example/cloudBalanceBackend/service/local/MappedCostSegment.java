@@ -0,0 +1,224 @@
+package com.example.cloudBalanceBackend.service.local;
+
+import com.example.cloudBalanceBackend.service.cost.GroupMonthSums;
+
+import java.io.IOException;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.function.Function;
+
+// A segment file (see CostSegmentFile) mapped read-only into memory.
+// Only the header and dictionaries are decoded on open; the columns stay in the page cache and are
+// read through typed buffer views. Scans run over fixed-size row batches: the BILL_DATE range and
+// each filter narrow a selection vector of row positions, and only the selected rows have their
+// group code and COST gathered into the aggregate.
+final class MappedCostSegment {
+
+    private static final int BATCH_SIZE = 1024;
+
+    private final Path path;
+    private final int rowCount;
+    private final int minDay;
+    private final int maxDay;
+    private final String[][] dictionaries;  // [dimension][code]
+    private final IntBuffer days;
+    private final DoubleBuffer costs;
+    private final Buffer[] codes;           // ByteBuffer, ShortBuffer or IntBuffer per dimension
+
+    private MappedCostSegment(Path path, int rowCount, int minDay, int maxDay, String[][] dictionaries,
+                              IntBuffer days, DoubleBuffer costs, Buffer[] codes) {
+        this.path = path;
+        this.rowCount = rowCount;
+        this.minDay = minDay;
+        this.maxDay = maxDay;
+        this.dictionaries = dictionaries;
+        this.days = days;
+        this.costs = costs;
+        this.codes = codes;
+    }
+
+    static MappedCostSegment open(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        CostSegmentFile.Header header = CostSegmentFile.readHeader(path, buffer);
+        int rowCount = header.rowCount();
+        int dimensions = header.dictionaries().length;
+
+        int offset = buffer.position();
+        IntBuffer days = buffer.slice(offset, rowCount * Integer.BYTES).asIntBuffer();
+        offset += rowCount * Integer.BYTES;
+        DoubleBuffer costs = buffer.slice(offset, rowCount * Double.BYTES).asDoubleBuffer();
+        offset += rowCount * Double.BYTES;
+
+        Buffer[] codes = new Buffer[dimensions];
+        for (int d = 0; d < dimensions; d++) {
+            int width = header.codeWidths()[d];
+            ByteBuffer column = buffer.slice(offset, rowCount * width);
+            codes[d] = switch (width) {
+                case 1 -> column;
+                case 2 -> column.asShortBuffer();
+                default -> column.asIntBuffer();
+            };
+            offset += rowCount * width;
+        }
+
+        return new MappedCostSegment(path, rowCount, header.minDay(), header.maxDay(),
+                header.dictionaries(), days, costs, codes);
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    int getRowCount() {
+        return rowCount;
+    }
+
+    String[] dictionary(int dimension) {
+        return dictionaries[dimension];
+    }
+
+    // Add the rows with BILL_DATE in [startDay, endDay] that pass every filter to sums.
+    // filters is indexed by dimension, null meaning unfiltered.
+    void scan(int groupDimension, int startDay, int endDay, Set<String>[] filters, GroupMonthSums sums) {
+        scan(-1, groupDimension, startDay, endDay, filters, key -> sums);
+    }
+
+    // As scan, but split by the value of keyDimension: rows go to the sums sumsFor returns for their key.
+    // All sums must cover the same range starting at startDay's month. A keyDimension of -1 sends every
+    // row to sumsFor.apply(null).
+    void scan(int keyDimension, int groupDimension, int startDay, int endDay, Set<String>[] filters,
+              Function<String, GroupMonthSums> sumsFor) {
+        if (rowCount == 0 || maxDay < startDay || minDay > endDay) {
+            return;
+        }
+
+        // Translate this segment's dictionaries into the query: allowed codes per filter, global group ids
+        boolean[][] allowed = new boolean[filters.length][];
+        for (int d = 0; d < filters.length; d++) {
+            if (filters[d] == null) {
+                continue;
+            }
+            allowed[d] = new boolean[dictionaries[d].length];
+            boolean any = false;
+            for (int code = 0; code < allowed[d].length; code++) {
+                allowed[d][code] = filters[d].contains(dictionaries[d][code]);
+                any |= allowed[d][code];
+            }
+            if (!any) {
+                return;
+            }
+        }
+
+        // Per key: its sums and the global group id of each group code, resolved on first use
+        String[] groupDictionary = dictionaries[groupDimension];
+        int keyCount = keyDimension < 0 ? 1 : dictionaries[keyDimension].length;
+        GroupMonthSums[] keySums = new GroupMonthSums[keyCount];
+        int[][] groupIds = new int[keyCount][];
+
+        // BILL_DATE -> month offset in the query range, for the days this segment covers
+        int firstMonth = GroupMonthSums.monthIndex(LocalDate.ofEpochDay(startDay));
+        int fromDay = Math.max(minDay, startDay);
+        int toDay = Math.min(maxDay, endDay);
+        int[] monthOffsets = new int[toDay - fromDay + 1];
+        for (int day = fromDay; day <= toDay; day++) {
+            monthOffsets[day - fromDay] = GroupMonthSums.monthIndex(LocalDate.ofEpochDay(day)) - firstMonth;
+        }
+        boolean allDaysInRange = fromDay == minDay && toDay == maxDay;
+
+        int[] dayBatch = new int[BATCH_SIZE];
+        int[] codeBatch = new int[BATCH_SIZE];
+        int[] keyBatch = new int[BATCH_SIZE];
+        int[] selection = new int[BATCH_SIZE];
+
+        for (int base = 0; base < rowCount; base += BATCH_SIZE) {
+            int size = Math.min(BATCH_SIZE, rowCount - base);
+            days.get(base, dayBatch, 0, size);
+
+            int selected = 0;
+            if (allDaysInRange) {
+                for (int i = 0; i < size; i++) {
+                    selection[i] = i;
+                }
+                selected = size;
+            } else {
+                for (int i = 0; i < size; i++) {
+                    int day = dayBatch[i];
+                    if (day >= fromDay && day <= toDay) {
+                        selection[selected++] = i;
+                    }
+                }
+            }
+
+            for (int d = 0; d < allowed.length && selected > 0; d++) {
+                if (allowed[d] == null) {
+                    continue;
+                }
+                readCodes(d, base, size, codeBatch);
+                boolean[] accepted = allowed[d];
+                int kept = 0;
+                for (int j = 0; j < selected; j++) {
+                    int i = selection[j];
+                    if (accepted[codeBatch[i]]) {
+                        selection[kept++] = i;
+                    }
+                }
+                selected = kept;
+            }
+
+            if (selected == 0) {
+                continue;
+            }
+
+            readCodes(groupDimension, base, size, codeBatch);
+            if (keyDimension >= 0) {
+                readCodes(keyDimension, base, size, keyBatch);
+            }
+            for (int j = 0; j < selected; j++) {
+                int i = selection[j];
+                int key = keyDimension < 0 ? 0 : keyBatch[i];
+                int[] ids = groupIds[key];
+                if (ids == null) {
+                    ids = new int[groupDictionary.length];
+                    Arrays.fill(ids, -1);
+                    groupIds[key] = ids;
+                    keySums[key] = sumsFor.apply(keyDimension < 0 ? null : dictionaries[keyDimension][key]);
+                }
+                int code = codeBatch[i];
+                int groupId = ids[code];
+                if (groupId < 0) {
+                    groupId = keySums[key].groupId(groupDictionary[code]);
+                    ids[code] = groupId;
+                }
+                keySums[key].add(groupId, monthOffsets[dayBatch[i] - fromDay], costs.get(base + i));
+            }
+        }
+    }
+
+    // Decode size codes of a dimension starting at row base into out
+    private void readCodes(int dimension, int base, int size, int[] out) {
+        Buffer column = codes[dimension];
+        if (column instanceof IntBuffer ints) {
+            ints.get(base, out, 0, size);
+        } else if (column instanceof ShortBuffer shorts) {
+            for (int i = 0; i < size; i++) {
+                out[i] = Short.toUnsignedInt(shorts.get(base + i));
+            }
+        } else {
+            ByteBuffer bytes = (ByteBuffer) column;
+            for (int i = 0; i < size; i++) {
+                out[i] = Byte.toUnsignedInt(bytes.get(base + i));
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.cloudBalanceBackend.service.local;
+
+import com.example.cloudBalanceBackend.service.cost.AccountCostRowConsumer;
+import com.example.cloudBalanceBackend.service.cost.CostDimensions;
+import com.example.cloudBalanceBackend.service.cost.CostRowConsumer;
+import com.example.cloudBalanceBackend.service.cost.GroupMonthSums;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Immutable snapshot of the memory-mapped segments in the local cost store.
+// A query scans every segment whose BILL_DATE range overlaps it into one GroupMonthSums,
+// which matches what SnowflakeService.buildSQLQuery computes for the same groupBy, range, filters and topN.
+final class MappedCostStore {
+
+    private final List<MappedCostSegment> segments;
+    private final long rowCount;
+
+    private MappedCostStore(List<MappedCostSegment> segments) {
+        this.segments = List.copyOf(segments);
+        this.rowCount = segments.stream().mapToLong(MappedCostSegment::getRowCount).sum();
+    }
+
+    static MappedCostStore empty() {
+        return new MappedCostStore(List.of());
+    }
+
+    // Map every segment in dir. Segments are immutable (their names carry the source fingerprint),
+    // so ones already mapped by previous are reused as is.
+    static MappedCostStore open(Path dir, MappedCostStore previous) throws IOException {
+        Map<Path, MappedCostSegment> mapped = previous.segments.stream()
+                .collect(Collectors.toMap(MappedCostSegment::getPath, Function.identity()));
+
+        List<MappedCostSegment> segments = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(dir)) {
+            for (Path path : paths.filter(p -> p.getFileName().toString().endsWith(CostSegmentFile.EXTENSION))
+                    .sorted().toList()) {
+                MappedCostSegment segment = mapped.get(path);
+                segments.add(segment != null ? segment : MappedCostSegment.open(path));
+            }
+        }
+        return new MappedCostStore(segments);
+    }
+
+    int getSegmentCount() {
+        return segments.size();
+    }
+
+    long getRowCount() {
+        return rowCount;
+    }
+
+    void aggregate(
+            String groupColumn,
+            LocalDate startDate,
+            LocalDate endDate,
+            Map<String, List<String>> filters,
+            Integer topN,
+            String otherGroup,
+            CostRowConsumer consumer
+    ) {
+        int groupDimension = dimensionIndex(groupColumn);
+        GroupMonthSums sums = new GroupMonthSums(startDate, endDate);
+        if (sums.getMonthSpan() == 0) {
+            return;
+        }
+
+        Set<String>[] dimensionFilters = resolveFilters(filters);
+        int startDay = (int) startDate.toEpochDay();
+        int endDay = (int) endDate.toEpochDay();
+        for (MappedCostSegment segment : segments) {
+            segment.scan(groupDimension, startDay, endDay, dimensionFilters, sums);
+        }
+
+        sums.emit(topN, otherGroup, consumer);
+    }
+
+    // Unfiltered SUM(COST) per (ACCOUNT_ID, group, month), split by account within one scan of each segment
+    void aggregateByAccount(
+            String groupColumn,
+            LocalDate startDate,
+            LocalDate endDate,
+            AccountCostRowConsumer consumer
+    ) {
+        int groupDimension = dimensionIndex(groupColumn);
+        int accountDimension = dimensionIndex(CostDimensions.filterColumn("accountId"));
+        if (new GroupMonthSums(startDate, endDate).getMonthSpan() == 0) {
+            return;
+        }
+
+        Map<String, GroupMonthSums> byAccount = new HashMap<>();
+        Set<String>[] noFilters = resolveFilters(null);
+        int startDay = (int) startDate.toEpochDay();
+        int endDay = (int) endDate.toEpochDay();
+        for (MappedCostSegment segment : segments) {
+            segment.scan(accountDimension, groupDimension, startDay, endDay, noFilters,
+                    accountId -> byAccount.computeIfAbsent(accountId, a -> new GroupMonthSums(startDate, endDate)));
+        }
+
+        byAccount.forEach((accountId, sums) -> sums.emit(null, null,
+                (group, month, cost) -> consumer.accept(accountId, group, month, cost)));
+    }
+
+    // Accepted values per dimension, null for unfiltered ones. Two filter keys on the same column
+    // must both match, as the ANDed IN lists do in SQL.
+    @SuppressWarnings("unchecked")
+    private static Set<String>[] resolveFilters(Map<String, List<String>> filters) {
+        Set<String>[] resolved = new Set[CostDimensions.COLUMNS.size()];
+        if (filters == null) {
+            return resolved;
+        }
+
+        for (Map.Entry<String, List<String>> entry : filters.entrySet()) {
+            if (entry.getValue() == null || entry.getValue().isEmpty()) {
+                continue;
+            }
+            int dimension = dimensionIndex(CostDimensions.filterColumn(entry.getKey()));
+            Set<String> values = new HashSet<>(entry.getValue());
+            if (resolved[dimension] != null) {
+                values.retainAll(resolved[dimension]);
+            }
+            resolved[dimension] = values;
+        }
+        return resolved;
+    }
+
+    private static int dimensionIndex(String column) {
+        int index = CostDimensions.COLUMNS.indexOf(column);
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown cost column: " + column);
+        }
+        return index;
+    }
+}
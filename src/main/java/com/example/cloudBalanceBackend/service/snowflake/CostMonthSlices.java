@@ -0,0 +1,106 @@
+package com.example.cloudBalanceBackend.service.snowflake;
+
+import com.example.cloudBalanceBackend.service.cost.CostQuery;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Assembles a cost result month by month: settled months fully covered by the range come from the
+// month-slice cache, and each contiguous run of missing months is fetched with one query.
+// A month counts as settled only once settleDays have passed after it closed, because AWS keeps
+// restating the previous month's CUR (credits, refunds, late usage) for a few days into the next one.
+@Component
+public class CostMonthSlices {
+
+    private final CostResultCache resultCache;
+    private final int settleDays;
+
+    public CostMonthSlices(
+            CostResultCache resultCache,
+            @Value("${cost-explorer.cache.month-slices.settle-days:5}") int settleDays) {
+        this.resultCache = resultCache;
+        this.settleDays = settleDays;
+    }
+
+    // fetch runs the query over the given date range, which is always within the query's own range
+    public List<Map<String, Object>> assemble(CostQuery query, Function<CostQuery, List<Map<String, Object>>> fetch) {
+        return assemble(query, fetch, LocalDate.now(ZoneOffset.UTC));
+    }
+
+    List<Map<String, Object>> assemble(CostQuery query, Function<CostQuery, List<Map<String, Object>>> fetch,
+                                       LocalDate today) {
+        LocalDate startDate = query.getStartDate();
+        LocalDate endDate = query.getEndDate();
+
+        List<Map<String, Object>> merged = new ArrayList<>();
+        List<List<YearMonth>> missingRuns = new ArrayList<>();
+        List<YearMonth> run = new ArrayList<>();
+
+        for (YearMonth month = YearMonth.from(startDate); !month.isAfter(YearMonth.from(endDate)); month = month.plusMonths(1)) {
+            List<Map<String, Object>> slice = isCacheableMonth(month, query, today)
+                    ? resultCache.getMonth(monthQuery(query, month))
+                    : null;
+
+            if (slice != null) {
+                merged.addAll(slice);
+                if (!run.isEmpty()) {
+                    missingRuns.add(run);
+                    run = new ArrayList<>();
+                }
+            } else {
+                run.add(month);
+            }
+        }
+        if (!run.isEmpty()) {
+            missingRuns.add(run);
+        }
+
+        for (List<YearMonth> missing : missingRuns) {
+            YearMonth first = missing.get(0);
+            YearMonth last = missing.get(missing.size() - 1);
+            LocalDate runStart = max(startDate, first.atDay(1));
+            LocalDate runEnd = min(endDate, last.atEndOfMonth());
+
+            List<Map<String, Object>> rows = fetch.apply(query.withDates(runStart, runEnd));
+            merged.addAll(rows);
+
+            Map<String, List<Map<String, Object>>> rowsByMonth = rows.stream()
+                    .collect(Collectors.groupingBy(r -> (String) r.get("month")));
+            for (YearMonth month : missing) {
+                if (isCacheableMonth(month, query, today)) {
+                    resultCache.putMonth(monthQuery(query, month),
+                            rowsByMonth.getOrDefault(month.toString(), List.of()));
+                }
+            }
+        }
+
+        // Keep the ORDER BY MONTH contract; cheap when the merged rows are already in order
+        merged.sort(Comparator.comparing(r -> (String) r.get("month")));
+        return merged;
+    }
+
+    // Settled months fully covered by the requested range no longer change, so their rows can be reused
+    boolean isCacheableMonth(YearMonth month, CostQuery query, LocalDate today) {
+        return today.isAfter(month.atEndOfMonth().plusDays(settleDays))
+                && !query.getStartDate().isAfter(month.atDay(1))
+                && !query.getEndDate().isBefore(month.atEndOfMonth());
+    }
+
+    private static CostQuery monthQuery(CostQuery query, YearMonth month) {
+        return query.withDates(month.atDay(1), month.atEndOfMonth());
+    }
+
+    static LocalDate max(LocalDate a, LocalDate b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    static LocalDate min(LocalDate a, LocalDate b) {
+        return a.isBefore(b) ? a : b;
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.cloudBalanceBackend.service.snowflake;
+
+import com.example.cloudBalanceBackend.service.cost.CostDimensions;
+import com.example.cloudBalanceBackend.service.cost.CostQuery;
+import com.example.cloudBalanceBackend.utils.JsonStrings;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Compiled SQL shapes for the cost queries.
+// The statement text depends only on the groupBy column, the set of filter keys and whether top-N is
+// applied; dates, filter value lists and N are bind parameters. Each shape is built once, and identical
+// dashboard loads send byte-identical statements that Snowflake can answer from its result cache.
+// Filter lists are bound as one JSON array each and expanded with FLATTEN, so the text does not
+// depend on how many values are selected.
+final class CostQueryTemplates {
+
+    static final String COST_TABLE = "SNOWFLAKE_LEARNING_DB.AWS_CUR.COSTREPORT";
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    private final Map<String, String> templates = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    // SUM(COST) per (group, month), with the tail folded into "Others" when the query has a topN
+    SqlStatement costQuery(String columnName, CostQuery query) {
+        List<String> filterKeys = filterKeys(query.getFilters());
+        String shape = columnName + "|" + filterKeys + "|" + (query.getTopN() != null);
+
+        String sql = templates.get(shape);
+        if (sql == null) {
+            misses.increment();
+            sql = templates.computeIfAbsent(shape, s -> buildCostQuery(columnName, filterKeys, query.getTopN() != null));
+        } else {
+            hits.increment();
+        }
+
+        List<Object> params = new ArrayList<>();
+        bindWhereClause(params, query.getStartDate(), query.getEndDate(), query.getFilters(), filterKeys);
+        if (query.getTopN() != null) {
+            params.add(query.getTopN());
+        }
+        return new SqlStatement(sql, params);
+    }
+
+    Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("templates", templates.size());
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        return stats;
+    }
+
+    private static String buildCostQuery(String columnName, List<String> filterKeys, boolean topN) {
+        StringBuilder sql = new StringBuilder();
+
+        if (!topN) {
+            sql.append("SELECT ")
+                    .append(columnName).append(" AS GROUP_NAME, ")
+                    .append("TO_VARCHAR(BILL_DATE, 'YYYY-MM') AS MONTH, ")
+                    .append("SUM(COST) AS COSTS ")
+                    .append("FROM ").append(COST_TABLE).append(" ");
+            appendWhereClause(sql, filterKeys);
+            sql.append("GROUP BY ")
+                    .append(columnName).append(", ")
+                    .append("TO_VARCHAR(BILL_DATE, 'YYYY-MM') ")
+                    .append("ORDER BY TO_VARCHAR(BILL_DATE, 'YYYY-MM')");
+            return sql.toString();
+        }
+
+        // Rank groups by total cost over the range inside Snowflake and fold the tail into "Others",
+        // so at most topN + 1 series per month leave the warehouse
+        sql.append("WITH BASE AS (SELECT ")
+                .append(columnName).append(" AS GROUP_NAME, ")
+                .append("TO_VARCHAR(BILL_DATE, 'YYYY-MM') AS MONTH, ")
+                .append("SUM(COST) AS COSTS ")
+                .append("FROM ").append(COST_TABLE).append(" ");
+        appendWhereClause(sql, filterKeys);
+        sql.append("GROUP BY ")
+                .append(columnName).append(", ")
+                .append("TO_VARCHAR(BILL_DATE, 'YYYY-MM')), ")
+                .append("RANKED AS (SELECT GROUP_NAME, ")
+                .append("ROW_NUMBER() OVER (ORDER BY SUM(COSTS) DESC, GROUP_NAME) AS RNK ")
+                .append("FROM BASE GROUP BY GROUP_NAME) ")
+                .append("SELECT CASE WHEN R.RNK <= ?")
+                .append(" THEN B.GROUP_NAME ELSE '").append(CostDimensions.OTHERS_GROUP).append("' END AS GROUP_NAME, ")
+                .append("B.MONTH AS MONTH, ")
+                .append("SUM(B.COSTS) AS COSTS ")
+                .append("FROM BASE B JOIN RANKED R ON B.GROUP_NAME IS NOT DISTINCT FROM R.GROUP_NAME ")
+                .append("GROUP BY 1, 2 ")
+                .append("ORDER BY 2, MIN(R.RNK)");
+        return sql.toString();
+    }
+
+    // Keys of the non-empty filters in a stable order; every key must map to a cost column,
+    // since it becomes part of the statement text
+    static List<String> filterKeys(Map<String, List<String>> filters) {
+        if (filters == null) {
+            return List.of();
+        }
+        List<String> keys = new ArrayList<>();
+        for (Map.Entry<String, List<String>> entry : filters.entrySet()) {
+            if (entry.getValue() == null || entry.getValue().isEmpty()) {
+                continue;
+            }
+            if (!CostDimensions.COLUMNS.contains(CostDimensions.filterColumn(entry.getKey()))) {
+                throw new IllegalArgumentException("Invalid filter: " + entry.getKey());
+            }
+            keys.add(entry.getKey());
+        }
+        Collections.sort(keys);
+        return keys;
+    }
+
+    // WHERE clause shared by the cost queries: date range plus one bound value list per filter key
+    static void appendWhereClause(StringBuilder sql, List<String> filterKeys) {
+        sql.append("WHERE BILL_DATE BETWEEN TO_DATE(?) AND TO_DATE(?) ");
+        for (String key : filterKeys) {
+            sql.append("AND ")
+                    .append(CostDimensions.filterColumn(key))
+                    .append(" IN (SELECT VALUE::STRING FROM TABLE(FLATTEN(INPUT => PARSE_JSON(?)))) ");
+        }
+    }
+
+    // Parameters for appendWhereClause with the same filter keys
+    static void bindWhereClause(
+            List<Object> params,
+            LocalDate startDate,
+            LocalDate endDate,
+            Map<String, List<String>> filters,
+            List<String> filterKeys
+    ) {
+        params.add(formatDate(startDate));
+        params.add(formatDate(endDate));
+        for (String key : filterKeys) {
+            // Each value list is bound as a JSON array for PARSE_JSON
+            params.add(JsonStrings.array(filters.get(key)));
+        }
+    }
+
+    static String formatDate(LocalDate date) {
+        return date.format(DATE_FORMATTER);
+    }
+}
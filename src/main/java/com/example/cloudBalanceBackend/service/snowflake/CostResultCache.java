@@ -0,0 +1,186 @@
+package com.example.cloudBalanceBackend.service.snowflake;
+
+import com.example.cloudBalanceBackend.service.cost.CostQuery;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+// In-process LRU caches of cost-explorer data with TTL expiry.
+// Whole results are cached per normalized query for a short TTL. Month slices hold the rows of a
+// single closed billing month for a query shape, so long ranges can be assembled from them.
+// Memory is bounded by the total number of cached rows in each store,
+// since a single groupBy=resource result can be orders of magnitude larger than a groupBy=service one.
+@Slf4j
+@Component
+public class CostResultCache {
+
+    private final boolean enabled;
+    private final Store results;
+    private final Store monthSlices;
+
+    public CostResultCache(
+            @Value("${cost-explorer.cache.enabled:true}") boolean enabled,
+            @Value("${cost-explorer.cache.max-rows:500000}") long maxRows,
+            @Value("${cost-explorer.cache.ttl-seconds:900}") long ttlSeconds,
+            @Value("${cost-explorer.cache.month-slices.max-rows:2000000}") long monthSliceMaxRows,
+            @Value("${cost-explorer.cache.month-slices.ttl-seconds:86400}") long monthSliceTtlSeconds) {
+        this.enabled = enabled;
+        this.results = new Store(maxRows, ttlSeconds);
+        this.monthSlices = new Store(monthSliceMaxRows, monthSliceTtlSeconds);
+        log.info("Cost result cache: enabled={}, maxRows={}, ttlSeconds={}, monthSliceMaxRows={}, monthSliceTtlSeconds={}",
+                enabled, maxRows, ttlSeconds, monthSliceMaxRows, monthSliceTtlSeconds);
+    }
+
+    // Returns the cached rows, or null on a miss or expired entry
+    public List<Map<String, Object>> get(CostQuery query) {
+        return enabled ? results.get(query) : null;
+    }
+
+    public void put(CostQuery query, List<Map<String, Object>> rows) {
+        if (enabled) {
+            results.put(query, rows);
+        }
+    }
+
+    // Rows of one closed month; the query's dates must span exactly that month
+    public List<Map<String, Object>> getMonth(CostQuery monthQuery) {
+        return enabled ? monthSlices.get(monthQuery) : null;
+    }
+
+    public void putMonth(CostQuery monthQuery, List<Map<String, Object>> rows) {
+        if (enabled) {
+            monthSlices.put(monthQuery, rows);
+        }
+    }
+
+    public void clear() {
+        results.clear();
+        monthSlices.clear();
+    }
+
+    // Drop every entry whose query matches, e.g. all queries touching an account whose data changed
+    public void invalidate(Predicate<CostQuery> matching) {
+        int removed = results.invalidate(matching) + monthSlices.invalidate(matching);
+        if (removed > 0) {
+            log.info("Invalidated {} cost cache entries", removed);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("results", results.getStats());
+        stats.put("monthSlices", monthSlices.getStats());
+        return stats;
+    }
+
+    private static final class Store {
+
+        private final long maxRows;
+        private final long ttlMillis;
+
+        // Access-ordered, so iteration starts at the least recently used entry
+        private final LinkedHashMap<CostQuery, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long cachedRows;
+
+        private long hits;
+        private long misses;
+        private long evictions;
+        private long expirations;
+
+        private Store(long maxRows, long ttlSeconds) {
+            this.maxRows = maxRows;
+            this.ttlMillis = ttlSeconds * 1000;
+        }
+
+        private synchronized List<Map<String, Object>> get(CostQuery query) {
+            Entry entry = entries.get(query);
+            if (entry == null) {
+                misses++;
+                return null;
+            }
+
+            if (entry.expiresAt <= System.currentTimeMillis()) {
+                entries.remove(query);
+                cachedRows -= entry.rows.size();
+                expirations++;
+                misses++;
+                return null;
+            }
+
+            hits++;
+            return entry.rows;
+        }
+
+        private synchronized void put(CostQuery query, List<Map<String, Object>> rows) {
+            if (rows.size() > maxRows) {
+                log.debug("Result of {} rows exceeds cache capacity, not caching", rows.size());
+                return;
+            }
+
+            Entry previous = entries.put(query, new Entry(rows, System.currentTimeMillis() + ttlMillis));
+            if (previous != null) {
+                cachedRows -= previous.rows.size();
+            }
+            cachedRows += rows.size();
+
+            Iterator<Map.Entry<CostQuery, Entry>> it = entries.entrySet().iterator();
+            while (cachedRows > maxRows && it.hasNext()) {
+                Map.Entry<CostQuery, Entry> eldest = it.next();
+                if (eldest.getKey().equals(query)) {
+                    continue;
+                }
+                cachedRows -= eldest.getValue().rows.size();
+                it.remove();
+                evictions++;
+            }
+        }
+
+        private synchronized void clear() {
+            entries.clear();
+            cachedRows = 0;
+        }
+
+        private synchronized int invalidate(Predicate<CostQuery> matching) {
+            int removed = 0;
+            Iterator<Map.Entry<CostQuery, Entry>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<CostQuery, Entry> entry = it.next();
+                if (matching.test(entry.getKey())) {
+                    cachedRows -= entry.getValue().rows.size();
+                    it.remove();
+                    removed++;
+                }
+            }
+            return removed;
+        }
+
+        private synchronized Map<String, Object> getStats() {
+            long lookups = hits + misses;
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("entries", entries.size());
+            stats.put("cachedRows", cachedRows);
+            stats.put("maxRows", maxRows);
+            stats.put("ttlSeconds", ttlMillis / 1000);
+            stats.put("hits", hits);
+            stats.put("misses", misses);
+            stats.put("hitRatio", lookups == 0 ? 0.0 : (double) hits / lookups);
+            stats.put("evictions", evictions);
+            stats.put("expirations", expirations);
+            return stats;
+        }
+    }
+
+    private static final class Entry {
+        private final List<Map<String, Object>> rows;
+        private final long expiresAt;
+
+        private Entry(List<Map<String, Object>> rows, long expiresAt) {
+            this.rows = List.copyOf(rows);
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -1,120 +1,582 @@
 package com.example.cloudBalanceBackend.service.snowflake;
 
+import com.example.cloudBalanceBackend.Snowflake.SnowflakeSessionPool;
 import com.example.cloudBalanceBackend.exception.AnalyticsQueryException;
+import com.example.cloudBalanceBackend.exception.SnowflakeException;
+import com.example.cloudBalanceBackend.service.cost.AccountCostRowConsumer;
+import com.example.cloudBalanceBackend.service.cost.CostComparison;
+import com.example.cloudBalanceBackend.service.cost.CostDataSource;
+import com.example.cloudBalanceBackend.service.cost.CostDimensions;
+import com.example.cloudBalanceBackend.service.cost.CostPage;
+import com.example.cloudBalanceBackend.service.cost.CostPageCollector;
+import com.example.cloudBalanceBackend.service.cost.CostQuery;
+import com.example.cloudBalanceBackend.service.cost.CostRowConsumer;
+import com.example.cloudBalanceBackend.service.cost.DimensionValueConsumer;
+import com.example.cloudBalanceBackend.service.cost.GroupMonthSums;
+import com.example.cloudBalanceBackend.utils.SingleFlight;
 import com.snowflake.snowpark.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import scala.jdk.javaapi.CollectionConverters;
 import org.springframework.stereotype.Service;
 
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
-public class SnowflakeService {
-
-    private final Session session;
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-
-    // Map frontend groupBy to Snowflake columns
-    private static final Map<String, String> GROUP_BY_MAPPING = Map.of(
-            "service", "SERVICE",
-            "instanceType", "INSTANCE_TYPE",
-            "accountId", "ACCOUNT_ID",
-            "usageType", "USAGE_TYPE",
-            "platform", "PLATFORM",
-            "region", "REGION",
-            "usageTypeGroup", "USAGE_TYPE_GROUP",
-            "purchaseOption", "PURCHASE_OPTION",
-            "resource", "RESOURCE",
-            "availabilityZone", "AVAILABILITY_ZONE"
-    );
-
-    // Fetch cost data grouped by the given column and date range with optional filters
+public class SnowflakeService implements CostDataSource {
+
+    private final SnowflakeSessionPool sessionPool;
+    private final CostResultCache resultCache;
+    private final CostMonthSlices monthSlices;
+    // Identical queries already running are shared instead of re-issued
+    private final SingleFlight<CostQuery, List<Map<String, Object>>> inFlightQueries = new SingleFlight<>();
+    // Statement text per query shape; values are always bound, never inlined
+    private final CostQueryTemplates queryTemplates = new CostQueryTemplates();
+
+    // Fetch cost data grouped by the given column and date range with optional filters,
+    // keeping only the topN most expensive groups plus an "Others" series when topN is set
+    @Override
     public List<Map<String, Object>> getCostData(
             String groupBy,
             LocalDate startDate,
             LocalDate endDate,
-            Map<String, List<String>> filters
+            Map<String, List<String>> filters,
+            Integer topN
+    ) {
+        String columnName = CostDimensions.resolveColumn(groupBy);
+
+        CostQuery query = CostQuery.of(groupBy, startDate, endDate, filters, topN);
+        List<Map<String, Object>> cached = resultCache.get(query);
+        if (cached != null) {
+            log.info("Cost data cache hit for {}", query);
+            return cached;
+        }
+
+        // Cache is populated before the in-flight entry is released, so late arrivals hit it.
+        // The leader, every waiting caller and the cache all receive the same immutable rows.
+        return inFlightQueries.execute(query, () -> {
+            List<Map<String, Object>> rows = immutableRows(loadCostData(columnName, query));
+            resultCache.put(query, rows);
+            return rows;
+        });
+    }
+
+    private static List<Map<String, Object>> immutableRows(List<Map<String, Object>> rows) {
+        return rows.stream().<Map<String, Object>>map(Map::copyOf).toList();
+    }
+
+    // Stream cost rows to the consumer as Snowflake yields them, without materializing the result.
+    // A cached result is replayed; otherwise the query bypasses the caches to keep memory flat.
+    @Override
+    public void streamCostData(
+            String groupBy,
+            LocalDate startDate,
+            LocalDate endDate,
+            Map<String, List<String>> filters,
+            Integer topN,
+            CostRowConsumer consumer
+    ) {
+        String columnName = CostDimensions.resolveColumn(groupBy);
+
+        CostQuery query = CostQuery.of(groupBy, startDate, endDate, filters, topN);
+        List<Map<String, Object>> cached = resultCache.get(query);
+        if (cached != null) {
+            log.info("Streaming {} cached rows for {}", cached.size(), query);
+            for (Map<String, Object> row : cached) {
+                consumer.accept((String) row.get("group"), (String) row.get("month"), (Double) row.get("cost"));
+            }
+            return;
+        }
+
+        SqlStatement statement = queryTemplates.costQuery(columnName, query);
+        log.info("Streaming SQL: {} {}", statement.sql(), statement.params());
+        long count = scanCostRows(statement, consumer);
+        log.info("Successfully streamed {} rows", count);
+    }
+
+    // One GROUP BY ACCOUNT_ID, group, month scan instead of a query per account
+    @Override
+    public void streamCostDataByAccount(
+            String groupBy,
+            LocalDate startDate,
+            LocalDate endDate,
+            AccountCostRowConsumer consumer
+    ) {
+        String columnName = CostDimensions.resolveColumn(groupBy);
+        SqlStatement statement = buildAccountRollupQuery(columnName, startDate, endDate);
+        log.info("Executing account rollup SQL: {} {}", statement.sql(), statement.params());
+
+        long count = scanRows(statement, r -> {
+            Object costObj = r.get(3);
+            consumer.accept(
+                    r.get(0) != null ? r.get(0).toString() : "",
+                    r.get(1) != null ? r.get(1).toString() : "",
+                    r.getString(2),
+                    costObj instanceof Number ? ((Number) costObj).doubleValue() : 0.0
+            );
+        });
+        log.info("Successfully fetched {} account rollup rows for groupBy={}", count, groupBy);
+    }
+
+    // One GROUPING SETS scan with a (ACCOUNT_ID, column) set per dimension; accountId values are the
+    // ACCOUNT_ID of each row rather than a set of their own
+    @Override
+    public void streamDistinctValuesByAccount(
+            List<String> groupBys,
+            LocalDate startDate,
+            LocalDate endDate,
+            DimensionValueConsumer consumer
+    ) {
+        String accountColumn = CostDimensions.resolveColumn("accountId");
+        boolean withAccountIds = groupBys.contains("accountId");
+        List<String> dimensions = groupBys.stream().filter(groupBy -> !groupBy.equals("accountId")).toList();
+        List<String> columns = dimensions.stream().map(CostDimensions::resolveColumn).toList();
+        SqlStatement statement = buildAccountValuesQuery(accountColumn, columns, startDate, endDate);
+        log.info("Executing distinct values SQL: {} {}", statement.sql(), statement.params());
+
+        int groupingOffset = 1 + columns.size();
+        long count = scanRows(statement, r -> {
+            String accountId = r.get(0) != null ? r.get(0).toString() : "";
+            if (withAccountIds) {
+                consumer.accept(accountId, "accountId", accountId);
+            }
+            for (int i = 0; i < columns.size(); i++) {
+                if (((Number) r.get(groupingOffset + i)).intValue() != 0) {
+                    continue;
+                }
+                Object value = r.get(1 + i);
+                consumer.accept(accountId, dimensions.get(i), value != null ? value.toString() : "");
+                return;
+            }
+        });
+        log.info("Successfully fetched {} distinct value rows for {} dimensions", count, groupBys.size());
+    }
+
+    // Several groupBy dimensions over the same range and filters. Cached dimensions are served from the
+    // cache; the rest are answered by one GROUPING SETS query, i.e. one scan instead of one per widget.
+    @Override
+    public Map<String, List<Map<String, Object>>> getCostDataBatch(
+            List<String> groupBys,
+            LocalDate startDate,
+            LocalDate endDate,
+            Map<String, List<String>> filters,
+            Integer topN
+    ) {
+        Map<String, List<Map<String, Object>>> found = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String groupBy : new LinkedHashSet<>(groupBys)) {
+            CostDimensions.resolveColumn(groupBy);
+            List<Map<String, Object>> cached = resultCache.get(CostQuery.of(groupBy, startDate, endDate, filters, topN));
+            if (cached != null) {
+                found.put(groupBy, cached);
+            } else {
+                missing.add(groupBy);
+            }
+        }
+        log.info("Cost batch for {}: {} cached, {} to query", groupBys, found.size(), missing.size());
+
+        if (missing.size() == 1) {
+            // A single dimension keeps the regular path (month slices, in-flight sharing)
+            String groupBy = missing.get(0);
+            found.put(groupBy, getCostData(groupBy, startDate, endDate, filters, topN));
+        } else if (!missing.isEmpty()) {
+            Map<String, List<Map<String, Object>>> fetched = queryGroupingSets(missing, startDate, endDate, filters);
+            for (String groupBy : missing) {
+                List<Map<String, Object>> rows = fetched.get(groupBy);
+                if (topN != null) {
+                    rows = foldTopN(rows, startDate, endDate, topN);
+                }
+                rows = immutableRows(rows);
+                resultCache.put(CostQuery.of(groupBy, startDate, endDate, filters, topN), rows);
+                found.put(groupBy, rows);
+            }
+        }
+
+        Map<String, List<Map<String, Object>>> results = new LinkedHashMap<>();
+        for (String groupBy : groupBys) {
+            results.put(groupBy, found.get(groupBy));
+        }
+        return results;
+    }
+
+    // Keyset pagination pushed into SQL: only the next pageSize + 1 groups after afterGroup are aggregated,
+    // and the extra group just signals that another page exists. Pages are not cached.
+    @Override
+    public CostPage getCostDataPage(
+            String groupBy,
+            LocalDate startDate,
+            LocalDate endDate,
+            Map<String, List<String>> filters,
+            int pageSize,
+            String afterGroup
     ) {
-        String columnName = GROUP_BY_MAPPING.get(groupBy);
-        if (columnName == null) throw new IllegalArgumentException("Invalid groupBy: " + groupBy);
+        String columnName = CostDimensions.resolveColumn(groupBy);
+        SqlStatement statement = buildPageQuery(columnName, startDate, endDate, filters, pageSize, afterGroup);
+        log.info("Executing page SQL: {} {}", statement.sql(), statement.params());
+
+        CostPageCollector collector = new CostPageCollector(pageSize);
+        scanCostRows(statement, collector);
+
+        CostPage page = collector.toPage();
+        log.info("Fetched page of {} groups ({} rows), hasMore={}",
+                collector.getGroupCount(), page.rows().size(), page.hasMore());
+        return page;
+    }
+
+    // Both periods in one scan with conditional aggregation; Snowflake ranks the movers and computes
+    // the all-group totals with window functions, so only the returned movers leave the warehouse
+    @Override
+    public CostComparison getCostComparison(
+            String groupBy,
+            LocalDate currentStart,
+            LocalDate currentEnd,
+            LocalDate previousStart,
+            LocalDate previousEnd,
+            Map<String, List<String>> filters,
+            Integer limit
+    ) {
+        String columnName = CostDimensions.resolveColumn(groupBy);
+        SqlStatement statement = buildComparisonQuery(columnName, currentStart, currentEnd, previousStart, previousEnd, filters, limit);
+        log.info("Executing comparison SQL: {} {}", statement.sql(), statement.params());
+
+        List<CostComparison.Mover> movers = new ArrayList<>();
+        double[] totals = {0, 0};
+        scanRows(statement, r -> {
+            movers.add(new CostComparison.Mover(
+                    r.get(0) != null ? r.get(0).toString() : "",
+                    toDouble(r.get(1)),
+                    toDouble(r.get(2))
+            ));
+            totals[0] = toDouble(r.get(3));
+            totals[1] = toDouble(r.get(4));
+        });
+
+        log.info("Fetched {} movers", movers.size());
+        return new CostComparison(totals[0], totals[1], movers);
+    }
+
+    private static double toDouble(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : 0.0;
+    }
+
+    // Cheap change fingerprint (row count, cost sum, latest BILL_DATE) per ACCOUNT_ID for rows billed since the given date
+    @Override
+    public Map<String, String> getDataFingerprints(LocalDate since) {
+        SqlStatement statement = new SqlStatement(
+                "SELECT ACCOUNT_ID, COUNT(*), SUM(COST), MAX(BILL_DATE) "
+                        + "FROM SNOWFLAKE_LEARNING_DB.AWS_CUR.COSTREPORT "
+                        + "WHERE BILL_DATE >= TO_DATE(?) "
+                        + "GROUP BY ACCOUNT_ID",
+                List.of(CostQueryTemplates.formatDate(since)));
+        log.debug("Executing fingerprint SQL: {} {}", statement.sql(), statement.params());
+
+        Map<String, String> fingerprints = new HashMap<>();
+        scanRows(statement, r -> fingerprints.put(
+                r.get(0) != null ? r.get(0).toString() : "",
+                r.get(1) + ":" + r.get(2) + ":" + r.get(3)
+        ));
+        return fingerprints;
+    }
+
+    @Override
+    public void invalidateCachedAccounts(Set<String> accountIds) {
+        // Queries without an account filter span every account, so they are stale too
+        resultCache.invalidate(query -> query.getAccountId() == null || accountIds.contains(query.getAccountId()));
+    }
+
+    public Map<String, Object> getPoolStats() {
+        return sessionPool.getStats();
+    }
+
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(resultCache.getStats());
+        stats.put("inFlightQueries", inFlightQueries.getInFlightCount());
+        stats.put("queryExecutions", inFlightQueries.getExecutions());
+        stats.put("coalescedQueries", inFlightQueries.getCoalesced());
+        stats.put("queryTemplates", queryTemplates.getStats());
+        return stats;
+    }
 
-        String sql = buildSQLQuery(columnName, startDate, endDate, filters);
-        log.info("Executing SQL: {}", sql);
+    // Long ranges are assembled from cached month slices; only missing or unsettled months are queried
+    private List<Map<String, Object>> loadCostData(String columnName, CostQuery query) {
+        // Top-N ranks groups over the whole range, so it cannot be assembled from month slices
+        if (query.getTopN() != null) {
+            return queryCostData(columnName, query);
+        }
+        return monthSlices.assemble(query, range -> queryCostData(columnName, range));
+    }
+
+    // Run the aggregation query against Snowflake
+    private List<Map<String, Object>> queryCostData(String columnName, CostQuery query) {
+        SqlStatement statement = queryTemplates.costQuery(columnName, query);
+        log.info("Executing SQL: {} {}", statement.sql(), statement.params());
 
         List<Map<String, Object>> transformedData = new ArrayList<>();
-        try {
-            var df = session.sql(sql);
-            var iter = df.toLocalIterator();
-            while (iter.hasNext()) {
-                var r = iter.next();
+        scanCostRows(statement, (group, month, cost) -> {
+            Map<String, Object> row = new HashMap<>();
+            row.put("group", group);
+            row.put("month", month);
+            row.put("cost", cost);
+            transformedData.add(row);
+        });
+        log.info("Successfully fetched {} rows", transformedData.size());
+        return transformedData;
+    }
+
+    // One GROUPING SETS query over the shared WHERE clause, split back into rows per groupBy.
+    // GROUPING(column) is 0 only for the set a row belongs to, which keeps real NULL groups apart.
+    private Map<String, List<Map<String, Object>>> queryGroupingSets(
+            List<String> groupBys,
+            LocalDate startDate,
+            LocalDate endDate,
+            Map<String, List<String>> filters
+    ) {
+        List<String> columns = groupBys.stream().map(CostDimensions::resolveColumn).toList();
+        SqlStatement statement = buildGroupingSetsQuery(columns, startDate, endDate, filters);
+        log.info("Executing batch SQL: {} {}", statement.sql(), statement.params());
+
+        Map<String, List<Map<String, Object>>> results = new HashMap<>();
+        for (String groupBy : groupBys) {
+            results.put(groupBy, new ArrayList<>());
+        }
+
+        int groupingOffset = 2 + columns.size();
+        long count = scanRows(statement, r -> {
+            for (int i = 0; i < columns.size(); i++) {
+                if (((Number) r.get(groupingOffset + i)).intValue() != 0) {
+                    continue;
+                }
+                Object group = r.get(2 + i);
+                Object costObj = r.get(1);
                 Map<String, Object> row = new HashMap<>();
-                row.put("group", r.get(0) != null ? r.get(0).toString() : "");
-                row.put("month", r.getString(1));
-                Object costObj = r.get(2);
+                row.put("group", group != null ? group.toString() : "");
+                row.put("month", r.getString(0));
                 row.put("cost", costObj instanceof Number ? ((Number) costObj).doubleValue() : 0.0);
-                transformedData.add(row);
+                results.get(groupBys.get(i)).add(row);
+                return;
             }
-            log.info("Successfully fetched {} rows", transformedData.size());
-            return transformedData;
+        });
+        log.info("Successfully fetched {} rows for {} dimensions", count, groupBys.size());
+        return results;
+    }
+
+    // Keep the topN groups by total cost over the range and fold the rest into "Others", as the top-N SQL does
+    private List<Map<String, Object>> foldTopN(
+            List<Map<String, Object>> rows,
+            LocalDate startDate,
+            LocalDate endDate,
+            int topN
+    ) {
+        GroupMonthSums sums = new GroupMonthSums(startDate, endDate);
+        for (Map<String, Object> row : rows) {
+            int monthOffset = GroupMonthSums.monthIndex((String) row.get("month")) - sums.getFirstMonth();
+            sums.add(sums.groupId((String) row.get("group")), monthOffset, (Double) row.get("cost"));
+        }
+
+        List<Map<String, Object>> folded = new ArrayList<>();
+        sums.emit(topN, CostDimensions.OTHERS_GROUP, (group, month, cost) -> {
+            Map<String, Object> row = new HashMap<>();
+            row.put("group", group);
+            row.put("month", month);
+            row.put("cost", cost);
+            folded.add(row);
+        });
+        return folded;
+    }
+
+    // Execute the query and hand each (group, month, cost) row to the consumer as it arrives
+    private long scanCostRows(SqlStatement statement, CostRowConsumer consumer) {
+        return scanRows(statement, r -> {
+            Object costObj = r.get(2);
+            consumer.accept(
+                    r.get(0) != null ? r.get(0).toString() : "",
+                    r.getString(1),
+                    costObj instanceof Number ? ((Number) costObj).doubleValue() : 0.0
+            );
+        });
+    }
+
+    // Execute the query on a pooled session and hand each row to the consumer as it arrives
+    private long scanRows(SqlStatement statement, Consumer<Row> consumer) {
+        long[] count = {0};
+        try {
+            return sessionPool.execute(session -> {
+                var df = statement.params().isEmpty()
+                        ? session.sql(statement.sql())
+                        : session.sql(statement.sql(), CollectionConverters.asScala(statement.params()).toSeq());
+                var iter = df.toLocalIterator();
+                while (iter.hasNext()) {
+                    consumer.accept(iter.next());
+                    count[0]++;
+                }
+                return count[0];
+            });
+        } catch (UncheckedIOException e) {
+            // The consumer's output went away (e.g. client disconnected mid-stream)
+            log.warn("Cost data consumer failed after {} rows: {}", count[0], e.getMessage());
+            throw e;
+        } catch (SnowflakeException e) {
+            // Pool exhausted or closed
+            throw e;
         } catch (Exception e) {
             log.error("Snowflake query failed", e);
             throw new RuntimeException("Failed to fetch cost data: " + e.getMessage(), e);
         }
     }
 
-    // Build SQL query dynamically based on groupBy, date range, and filters
-    private String buildSQLQuery(
+    // Per group, SUM(COST) in each period via CASE, plus window totals over all groups, ordered by |delta|.
+    // The WHERE range spans both periods; the CASE conditions keep any gap between them out of the sums.
+    private SqlStatement buildComparisonQuery(
+            String columnName,
+            LocalDate currentStart,
+            LocalDate currentEnd,
+            LocalDate previousStart,
+            LocalDate previousEnd,
+            Map<String, List<String>> filters,
+            Integer limit
+    ) {
+        String current = "SUM(CASE WHEN BILL_DATE BETWEEN TO_DATE(?) AND TO_DATE(?) THEN COST ELSE 0 END)";
+        String previous = "SUM(CASE WHEN BILL_DATE BETWEEN TO_DATE(?) AND TO_DATE(?) THEN COST ELSE 0 END)";
+        List<String> filterKeys = CostQueryTemplates.filterKeys(filters);
+
+        // Binds follow the placeholders in text order: both period pairs, again for the window totals, then WHERE
+        List<Object> params = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            params.add(CostQueryTemplates.formatDate(currentStart));
+            params.add(CostQueryTemplates.formatDate(currentEnd));
+            params.add(CostQueryTemplates.formatDate(previousStart));
+            params.add(CostQueryTemplates.formatDate(previousEnd));
+        }
+        CostQueryTemplates.bindWhereClause(params,
+                CostMonthSlices.min(currentStart, previousStart), CostMonthSlices.max(currentEnd, previousEnd),
+                filters, filterKeys);
+
+        StringBuilder sql = new StringBuilder();
+        sql.append("SELECT ")
+                .append(columnName).append(" AS GROUP_NAME, ")
+                .append(current).append(" AS CURRENT_COST, ")
+                .append(previous).append(" AS PREVIOUS_COST, ")
+                .append("SUM(").append(current).append(") OVER () AS CURRENT_TOTAL, ")
+                .append("SUM(").append(previous).append(") OVER () AS PREVIOUS_TOTAL ")
+                .append("FROM SNOWFLAKE_LEARNING_DB.AWS_CUR.COSTREPORT ");
+        CostQueryTemplates.appendWhereClause(sql, filterKeys);
+        sql.append("GROUP BY ").append(columnName).append(" ")
+                .append("ORDER BY ABS(CURRENT_COST - PREVIOUS_COST) DESC, GROUP_NAME");
+        if (limit != null) {
+            sql.append(" LIMIT ").append(limit);
+        }
+        return new SqlStatement(sql.toString(), params);
+    }
+
+    // Monthly rows of the next pageSize + 1 groups after afterGroup, ordered by group then month.
+    // NULL groups are read as '' (as scanCostRows does) so they have a stable keyset position.
+    private SqlStatement buildPageQuery(
             String columnName,
             LocalDate startDate,
             LocalDate endDate,
-            Map<String, List<String>> filters
+            Map<String, List<String>> filters,
+            int pageSize,
+            String afterGroup
     ) {
+        String groupKey = "COALESCE(" + columnName + ", '')";
+        List<String> filterKeys = CostQueryTemplates.filterKeys(filters);
+        List<Object> params = new ArrayList<>();
+
         StringBuilder sql = new StringBuilder();
+        sql.append("WITH PAGE AS (SELECT DISTINCT ").append(groupKey).append(" AS GROUP_NAME ")
+                .append("FROM SNOWFLAKE_LEARNING_DB.AWS_CUR.COSTREPORT ");
+        CostQueryTemplates.appendWhereClause(sql, filterKeys);
+        CostQueryTemplates.bindWhereClause(params, startDate, endDate, filters, filterKeys);
+        if (afterGroup != null) {
+            sql.append("AND ").append(groupKey).append(" > ? ");
+            params.add(afterGroup);
+        }
+        sql.append("ORDER BY GROUP_NAME LIMIT ").append(pageSize + 1).append(") ")
+                .append("SELECT P.GROUP_NAME AS GROUP_NAME, ")
+                .append("TO_VARCHAR(BILL_DATE, 'YYYY-MM') AS MONTH, ")
+                .append("SUM(COST) AS COSTS ")
+                .append("FROM SNOWFLAKE_LEARNING_DB.AWS_CUR.COSTREPORT ")
+                .append("JOIN PAGE P ON ").append(groupKey).append(" = P.GROUP_NAME ");
+        CostQueryTemplates.appendWhereClause(sql, filterKeys);
+        CostQueryTemplates.bindWhereClause(params, startDate, endDate, filters, filterKeys);
+        sql.append("GROUP BY P.GROUP_NAME, TO_VARCHAR(BILL_DATE, 'YYYY-MM') ")
+                .append("ORDER BY P.GROUP_NAME, TO_VARCHAR(BILL_DATE, 'YYYY-MM')");
+        return new SqlStatement(sql.toString(), params);
+    }
 
-        sql.append("SELECT ")
+    // Unfiltered SUM(COST) per (ACCOUNT_ID, column, month) over the range
+    private SqlStatement buildAccountRollupQuery(String columnName, LocalDate startDate, LocalDate endDate) {
+        List<Object> params = new ArrayList<>();
+        CostQueryTemplates.bindWhereClause(params, startDate, endDate, null, List.of());
+
+        StringBuilder sql = new StringBuilder();
+        sql.append("SELECT ACCOUNT_ID, ")
                 .append(columnName).append(" AS GROUP_NAME, ")
                 .append("TO_VARCHAR(BILL_DATE, 'YYYY-MM') AS MONTH, ")
                 .append("SUM(COST) AS COSTS ")
-                .append("FROM SNOWFLAKE_LEARNING_DB.AWS_CUR.COSTREPORT ")
-                .append("WHERE BILL_DATE BETWEEN '")
-                .append(startDate.format(DATE_FORMATTER))
-                .append("' AND '")
-                .append(endDate.format(DATE_FORMATTER))
-                .append("' ");
-
-        // Add filters dynamically
-        if (filters != null && !filters.isEmpty()) {
-            for (Map.Entry<String, List<String>> entry : filters.entrySet()) {
-                if (entry.getValue() != null && !entry.getValue().isEmpty()) {
-                    String filterColumn = GROUP_BY_MAPPING.getOrDefault(
-                            entry.getKey(),
-                            entry.getKey().toUpperCase()
-                    );
-
-                    String values = entry.getValue().stream()
-                            .map(v -> "'" + v.replace("'", "''") + "'")
-                            .collect(Collectors.joining(", "));
-
-                    sql.append("AND ")
-                            .append(filterColumn)
-                            .append(" IN (")
-                            .append(values)
-                            .append(") ");
-                }
-            }
-        }
+                .append("FROM ").append(CostQueryTemplates.COST_TABLE).append(" ");
+        CostQueryTemplates.appendWhereClause(sql, List.of());
+        sql.append("GROUP BY ACCOUNT_ID, ").append(columnName).append(", TO_VARCHAR(BILL_DATE, 'YYYY-MM')");
+        return new SqlStatement(sql.toString(), params);
+    }
 
-        sql.append("GROUP BY ")
-                .append(columnName).append(", ")
-                .append("TO_VARCHAR(BILL_DATE, 'YYYY-MM') ")
-                .append("ORDER BY TO_VARCHAR(BILL_DATE, 'YYYY-MM')");
+    // ACCOUNT_ID, the columns and a GROUPING() flag per column, for an (ACCOUNT_ID, column) set per column
+    private SqlStatement buildAccountValuesQuery(
+            String accountColumn,
+            List<String> columns,
+            LocalDate startDate,
+            LocalDate endDate
+    ) {
+        List<Object> params = new ArrayList<>();
+        CostQueryTemplates.bindWhereClause(params, startDate, endDate, null, List.of());
+
+        List<String> select = new ArrayList<>();
+        select.add(accountColumn);
+        select.addAll(columns);
+        columns.forEach(c -> select.add("GROUPING(" + c + ")"));
+        List<String> sets = columns.isEmpty()
+                ? List.of("(" + accountColumn + ")")
+                : columns.stream().map(c -> "(" + accountColumn + ", " + c + ")").toList();
 
-        return sql.toString();
+        StringBuilder sql = new StringBuilder();
+        sql.append("SELECT ").append(String.join(", ", select))
+                .append(" FROM ").append(CostQueryTemplates.COST_TABLE).append(" ");
+        CostQueryTemplates.appendWhereClause(sql, List.of());
+        sql.append("GROUP BY GROUPING SETS (").append(String.join(", ", sets)).append(")");
+        return new SqlStatement(sql.toString(), params);
+    }
+
+    // Per month, SUM(COST) for each column's grouping set plus a GROUPING() flag per column
+    private SqlStatement buildGroupingSetsQuery(
+            List<String> columns,
+            LocalDate startDate,
+            LocalDate endDate,
+            Map<String, List<String>> filters
+    ) {
+        List<String> filterKeys = CostQueryTemplates.filterKeys(filters);
+        List<Object> params = new ArrayList<>();
+        CostQueryTemplates.bindWhereClause(params, startDate, endDate, filters, filterKeys);
+
+        StringBuilder sql = new StringBuilder();
+        sql.append("SELECT TO_VARCHAR(BILL_DATE, 'YYYY-MM') AS MONTH, ")
+                .append("SUM(COST) AS COSTS, ")
+                .append(String.join(", ", columns)).append(", ")
+                .append(columns.stream().map(c -> "GROUPING(" + c + ")").collect(Collectors.joining(", ")))
+                .append(" FROM SNOWFLAKE_LEARNING_DB.AWS_CUR.COSTREPORT ");
+        CostQueryTemplates.appendWhereClause(sql, filterKeys);
+        sql.append("GROUP BY GROUPING SETS (")
+                .append(columns.stream()
+                        .map(c -> "(TO_VARCHAR(BILL_DATE, 'YYYY-MM'), " + c + ")")
+                        .collect(Collectors.joining(", ")))
+                .append(") ")
+                .append("ORDER BY TO_VARCHAR(BILL_DATE, 'YYYY-MM')");
+        return new SqlStatement(sql.toString(), params);
     }
 
     // Test Snowflake connection and fetch sample data
@@ -122,9 +584,9 @@ public class SnowflakeService {
         log.info("Testing Snowflake connection...");
 
         try {
-            Row[] rows = session.sql(
+            Row[] rows = sessionPool.execute(session -> session.sql(
                     "SELECT * FROM SNOWFLAKE_LEARNING_DB.AWS_CUR.COSTREPORT  LIMIT 5"
-            ).collect();
+            ).collect());
 
             log.info("Connection test successful. Retrieved {} rows", rows.length);
 
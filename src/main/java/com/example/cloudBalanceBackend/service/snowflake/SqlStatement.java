@@ -0,0 +1,7 @@
+package com.example.cloudBalanceBackend.service.snowflake;
+
+import java.util.List;
+
+// SQL text with its positional (?) bind parameters, in order of appearance
+record SqlStatement(String sql, List<Object> params) {
+}
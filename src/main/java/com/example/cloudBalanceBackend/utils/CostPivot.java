@@ -0,0 +1,215 @@
+package com.example.cloudBalanceBackend.utils;
+
+import java.io.IOException;
+import java.util.*;
+
+// Columnar (group x month) cost pivot.
+// Groups and months are dictionary-encoded to ints and costs live in a dense row-major double[] matrix,
+// so pivoting allocates a handful of arrays instead of one boxed map per group and per output row.
+// toResponse() exposes the matrix through lightweight map views in the existing JSON shape:
+// {"data": [{"name": <group>, <month>: <cost>, ...}], "months": [...], "groupBy": ...}
+// writeTo() encodes the arrays as columnar MessagePack without building any maps.
+public final class CostPivot {
+
+    private final String groupBy;
+    private final String[] groups;   // first-seen order, as returned by the query
+    private final String[] months;   // ascending
+    private final double[] costs;    // costs[group * months.length + month]
+
+    private CostPivot(String groupBy, String[] groups, String[] months, double[] costs) {
+        this.groupBy = groupBy;
+        this.groups = groups;
+        this.months = months;
+        this.costs = costs;
+    }
+
+    // Pivot rows of {group, month, cost}; rows missing any of them are skipped
+    public static CostPivot from(List<Map<String, Object>> rows, String groupBy) {
+        Builder builder = new Builder(groupBy, rows.size());
+        for (Map<String, Object> row : rows) {
+            Object group = row.get("group");
+            Object month = row.get("month");
+            Object cost = row.get("cost");
+            if (group == null || month == null || cost == null) {
+                continue;
+            }
+            builder.add((String) group, (String) month, cost instanceof Number ? ((Number) cost).doubleValue() : 0.0);
+        }
+        return builder.build();
+    }
+
+    public String getGroupBy() {
+        return groupBy;
+    }
+
+    public int getGroupCount() {
+        return groups.length;
+    }
+
+    public int getMonthCount() {
+        return months.length;
+    }
+
+    public String getGroup(int group) {
+        return groups[group];
+    }
+
+    public String getMonth(int month) {
+        return months[month];
+    }
+
+    public double getCost(int group, int month) {
+        return costs[group * months.length + month];
+    }
+
+    public Map<String, Object> toResponse() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("data", new RowList());
+        response.put("months", List.of(months));
+        response.put("groupBy", groupBy);
+        return response;
+    }
+
+    // Columnar MessagePack: {"groupBy": str, "groups": [str], "months": [str], "costs": [float64]},
+    // where costs is the row-major matrix (costs[group * months.length + month], 0.0 for empty cells)
+    public void writeTo(MessagePackWriter writer) throws IOException {
+        writer.writeMapHeader(4);
+        writer.writeString("groupBy").writeString(groupBy);
+        writer.writeString("groups").writeArrayHeader(groups.length);
+        for (String group : groups) {
+            writer.writeString(group);
+        }
+        writer.writeString("months").writeArrayHeader(months.length);
+        for (String month : months) {
+            writer.writeString(month);
+        }
+        writer.writeString("costs").writeArrayHeader(costs.length);
+        for (double cost : costs) {
+            writer.writeDouble(cost);
+        }
+        writer.flush();
+    }
+
+    // Accumulates encoded rows in growable primitive columns, then lays out the matrix
+    public static final class Builder {
+
+        private final String groupBy;
+        private final Map<String, Integer> groupIds = new HashMap<>();
+        private final List<String> groupNames = new ArrayList<>();
+        private final Map<String, Integer> monthIds = new HashMap<>();
+        private final List<String> monthNames = new ArrayList<>();
+
+        private int[] rowGroups;
+        private int[] rowMonths;
+        private double[] rowCosts;
+        private int size;
+
+        public Builder(String groupBy, int expectedRows) {
+            int capacity = Math.max(expectedRows, 16);
+            this.groupBy = groupBy;
+            this.rowGroups = new int[capacity];
+            this.rowMonths = new int[capacity];
+            this.rowCosts = new double[capacity];
+        }
+
+        public Builder add(String group, String month, double cost) {
+            if (size == rowCosts.length) {
+                int capacity = size * 2;
+                rowGroups = Arrays.copyOf(rowGroups, capacity);
+                rowMonths = Arrays.copyOf(rowMonths, capacity);
+                rowCosts = Arrays.copyOf(rowCosts, capacity);
+            }
+            rowGroups[size] = encode(group, groupIds, groupNames);
+            rowMonths[size] = encode(month, monthIds, monthNames);
+            rowCosts[size] = cost;
+            size++;
+            return this;
+        }
+
+        public CostPivot build() {
+            // Months are encoded in arrival order; remap the ids to their sorted position
+            String[] months = monthNames.toArray(new String[0]);
+            Arrays.sort(months);
+            int[] monthPosition = new int[months.length];
+            for (int i = 0; i < months.length; i++) {
+                monthPosition[monthIds.get(months[i])] = i;
+            }
+
+            int monthCount = months.length;
+            double[] costs = new double[groupNames.size() * monthCount];
+            for (int i = 0; i < size; i++) {
+                costs[rowGroups[i] * monthCount + monthPosition[rowMonths[i]]] = rowCosts[i];
+            }
+
+            return new CostPivot(groupBy, groupNames.toArray(new String[0]), months, costs);
+        }
+
+        private static int encode(String value, Map<String, Integer> ids, List<String> names) {
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = names.size();
+                ids.put(value, id);
+                names.add(value);
+            }
+            return id;
+        }
+    }
+
+    // List view over the matrix rows; nothing is materialized until a row is read
+    private final class RowList extends AbstractList<Map<String, Object>> implements RandomAccess {
+        @Override
+        public Map<String, Object> get(int index) {
+            Objects.checkIndex(index, groups.length);
+            return new RowView(index);
+        }
+
+        @Override
+        public int size() {
+            return groups.length;
+        }
+    }
+
+    // Map view of one output row: "name" followed by one entry per month
+    private final class RowView extends AbstractMap<String, Object> {
+
+        private final int group;
+
+        private RowView(int group) {
+            this.group = group;
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new Iterator<>() {
+                        private int column = -1;
+
+                        @Override
+                        public boolean hasNext() {
+                            return column < months.length;
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            Entry<String, Object> entry = column < 0
+                                    ? new SimpleImmutableEntry<>("name", groups[group])
+                                    : new SimpleImmutableEntry<>(months[column], costs[group * months.length + column]);
+                            column++;
+                            return entry;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return months.length + 1;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.cloudBalanceBackend.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+// Minimal JSON string encoding shared by the hand-written JSON writers: the NDJSON cost stream
+// and the filter value lists bound to Snowflake queries.
+public final class JsonStrings {
+
+    private JsonStrings() {
+    }
+
+    // Append the value as a quoted JSON string, or null
+    public static void append(Appendable out, String value) throws IOException {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+
+    // JSON array of strings
+    public static String array(List<String> values) {
+        StringBuilder json = new StringBuilder("[");
+        try {
+            for (int i = 0; i < values.size(); i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                append(json, values.get(i));
+            }
+        } catch (IOException e) {
+            // A StringBuilder never throws
+            throw new UncheckedIOException(e);
+        }
+        return json.append(']').toString();
+    }
+}
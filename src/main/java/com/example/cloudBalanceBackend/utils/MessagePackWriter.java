@@ -0,0 +1,78 @@
+package com.example.cloudBalanceBackend.utils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+// Minimal MessagePack encoder for the types the cost-explorer responses need:
+// maps, arrays, strings, nil and float64. Each value uses the smallest header MessagePack allows.
+public final class MessagePackWriter implements Flushable {
+
+    private final DataOutputStream out;
+
+    public MessagePackWriter(OutputStream out) {
+        this.out = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+    }
+
+    public MessagePackWriter writeMapHeader(int size) throws IOException {
+        if (size < 16) {
+            out.writeByte(0x80 | size);
+        } else if (size < 1 << 16) {
+            out.writeByte(0xde);
+            out.writeShort(size);
+        } else {
+            out.writeByte(0xdf);
+            out.writeInt(size);
+        }
+        return this;
+    }
+
+    public MessagePackWriter writeArrayHeader(int size) throws IOException {
+        if (size < 16) {
+            out.writeByte(0x90 | size);
+        } else if (size < 1 << 16) {
+            out.writeByte(0xdc);
+            out.writeShort(size);
+        } else {
+            out.writeByte(0xdd);
+            out.writeInt(size);
+        }
+        return this;
+    }
+
+    public MessagePackWriter writeString(String value) throws IOException {
+        if (value == null) {
+            return writeNil();
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length < 32) {
+            out.writeByte(0xa0 | bytes.length);
+        } else if (bytes.length < 1 << 8) {
+            out.writeByte(0xd9);
+            out.writeByte(bytes.length);
+        } else if (bytes.length < 1 << 16) {
+            out.writeByte(0xda);
+            out.writeShort(bytes.length);
+        } else {
+            out.writeByte(0xdb);
+            out.writeInt(bytes.length);
+        }
+        out.write(bytes);
+        return this;
+    }
+
+    public MessagePackWriter writeDouble(double value) throws IOException {
+        out.writeByte(0xcb);
+        out.writeDouble(value);
+        return this;
+    }
+
+    public MessagePackWriter writeNil() throws IOException {
+        out.writeByte(0xc0);
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.cloudBalanceBackend.utils;
+
+import java.util.concurrent.TimeUnit;
+
+// Token bucket allowing permitsPerSecond acquisitions per second on average, with bursts of up to
+// one second's worth. A caller that finds the bucket empty reserves the next token and sleeps until
+// it is due, so waiting callers are served in arrival order without holding the lock.
+public class RateLimiter {
+
+    private final double permitsPerNano;
+    private final double maxPermits;
+    private double available;
+    private long lastRefillNanos;
+
+    private long acquired;
+    private long throttled;
+
+    public RateLimiter(double permitsPerSecond) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("Rate must be positive");
+        }
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.maxPermits = Math.max(1, permitsPerSecond);
+        this.available = maxPermits;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    public void acquire() throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            available = Math.min(maxPermits, available + (now - lastRefillNanos) * permitsPerNano);
+            lastRefillNanos = now;
+
+            available -= 1;
+            acquired++;
+            waitNanos = available >= 0 ? 0 : (long) Math.ceil(-available / permitsPerNano);
+            if (waitNanos > 0) {
+                throttled++;
+            }
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    public synchronized long getAcquired() {
+        return acquired;
+    }
+
+    public synchronized long getThrottled() {
+        return throttled;
+    }
+}
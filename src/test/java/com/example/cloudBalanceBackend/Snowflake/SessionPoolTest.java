@@ -0,0 +1,167 @@
+package com.example.cloudBalanceBackend.Snowflake;
+
+import com.example.cloudBalanceBackend.exception.SnowflakeException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionPoolTest {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final List<FakeSession> opened = new CopyOnWriteArrayList<>();
+    private volatile boolean factoryFails;
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void idleSessionIsReused() {
+        SessionPool<FakeSession> pool = pool(2, 0, 1000, 60_000, 60_000);
+
+        FakeSession first = pool.execute(session -> session);
+        FakeSession second = pool.execute(session -> session);
+
+        assertSame(first, second);
+        assertEquals(1, opened.size());
+    }
+
+    @Test
+    void borrowTimesOutWhenEverySessionIsCheckedOut() throws Exception {
+        SessionPool<FakeSession> pool = pool(1, 0, 50, 60_000, 60_000);
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> holder = executor.submit(() -> pool.execute(session -> {
+            holding.countDown();
+            return await(release);
+        }));
+        assertTrue(holding.await(5, TimeUnit.SECONDS));
+
+        SnowflakeException e = assertThrows(SnowflakeException.class, () -> pool.execute(session -> session));
+
+        assertTrue(e.getMessage().contains("Timed out"));
+        assertEquals(1L, pool.getStats().get("timeouts"));
+        release.countDown();
+        holder.get(5, TimeUnit.SECONDS);
+        assertNotNull(pool.execute(session -> session));
+    }
+
+    @Test
+    void invalidIdleSessionIsClosedAndReplaced() {
+        // Validation interval 0: every reuse is validated
+        SessionPool<FakeSession> pool = pool(1, 0, 1000, 60_000, 0);
+        FakeSession broken = pool.execute(session -> session);
+        broken.valid = false;
+
+        FakeSession replacement = pool.execute(session -> session);
+
+        assertNotSame(broken, replacement);
+        assertTrue(broken.closed);
+        assertEquals(1L, pool.getStats().get("validationFailures"));
+        assertEquals(1, pool.getStats().get("totalSessions"));
+    }
+
+    @Test
+    void permitIsReleasedWhenReplacingAnInvalidSessionFails() {
+        SessionPool<FakeSession> pool = pool(1, 0, 50, 60_000, 0);
+        pool.execute(session -> session).valid = false;
+        factoryFails = true;
+
+        assertThrows(IllegalStateException.class, () -> pool.execute(session -> session));
+
+        // The only permit is free again, so the next borrow does not time out
+        factoryFails = false;
+        assertNotNull(pool.execute(session -> session));
+        assertEquals(0L, pool.getStats().get("timeouts"));
+        assertEquals(0, pool.getStats().get("activeSessions"));
+    }
+
+    @Test
+    void sessionIsReturnedWhenWorkFails() {
+        SessionPool<FakeSession> pool = pool(1, 0, 50, 60_000, 60_000);
+
+        assertThrows(IllegalStateException.class, () -> pool.execute(session -> {
+            throw new IllegalStateException("query failed");
+        }));
+
+        assertEquals(1, pool.getStats().get("idleSessions"));
+        assertNotNull(pool.execute(session -> session));
+    }
+
+    @Test
+    void evictionClosesSessionsIdlePastTheTimeoutDownToMinIdle() throws Exception {
+        SessionPool<FakeSession> pool = pool(3, 1, 1000, 1, 60_000);
+        // Nested checkouts open three sessions
+        pool.execute(a -> pool.execute(b -> pool.execute(c -> c)));
+        assertEquals(3, pool.getStats().get("idleSessions"));
+        Thread.sleep(10);
+
+        pool.evictIdleSessions();
+
+        assertEquals(1, pool.getStats().get("idleSessions"));
+        assertEquals(1, pool.getStats().get("totalSessions"));
+        assertEquals(2, opened.stream().filter(session -> session.closed).count());
+    }
+
+    @Test
+    void evictionKeepsRecentlyUsedSessions() {
+        SessionPool<FakeSession> pool = pool(3, 0, 1000, 60_000, 60_000);
+        pool.execute(a -> pool.execute(b -> b));
+
+        pool.evictIdleSessions();
+
+        assertEquals(2, pool.getStats().get("idleSessions"));
+        assertTrue(opened.stream().noneMatch(session -> session.closed));
+    }
+
+    @Test
+    void closedPoolRejectsBorrowsAndClosesIdleSessions() {
+        SessionPool<FakeSession> pool = pool(2, 0, 1000, 60_000, 60_000);
+        FakeSession session = pool.execute(s -> s);
+
+        pool.close();
+
+        assertTrue(session.closed);
+        assertThrows(SnowflakeException.class, () -> pool.execute(s -> s));
+    }
+
+    private SessionPool<FakeSession> pool(int maxSize, int minIdle, long borrowTimeoutMillis,
+                                          long idleTimeoutMillis, long validationIntervalMillis) {
+        return new SessionPool<>(
+                () -> {
+                    if (factoryFails) {
+                        throw new IllegalStateException("cannot connect");
+                    }
+                    FakeSession session = new FakeSession();
+                    opened.add(session);
+                    return session;
+                },
+                session -> {
+                    if (!session.valid) {
+                        throw new IllegalStateException("session expired");
+                    }
+                },
+                session -> session.closed = true,
+                maxSize, minIdle, borrowTimeoutMillis, idleTimeoutMillis, validationIntervalMillis);
+    }
+
+    private static Object await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        return null;
+    }
+
+    private static final class FakeSession {
+        private volatile boolean valid = true;
+        private volatile boolean closed;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.cloudBalanceBackend.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SecurityConfigTest {
+
+    @Test
+    void browserMayRevalidateCostResponsesWithTheirETag() {
+        UrlBasedCorsConfigurationSource source =
+                (UrlBasedCorsConfigurationSource) new SecurityConfig(null, null, null).corsConfigurationSource();
+        CorsConfiguration config = source.getCorsConfigurations().get("/**");
+
+        // Cost endpoints are POSTs, so the client reads the ETag and sends it back itself
+        assertEquals(List.of("If-None-Match"), config.checkHeaders(List.of("If-None-Match")));
+        assertTrue(config.getExposedHeaders().contains("ETag"));
+    }
+}
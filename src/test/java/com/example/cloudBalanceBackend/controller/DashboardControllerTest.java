@@ -0,0 +1,110 @@
+package com.example.cloudBalanceBackend.controller;
+
+import com.example.cloudBalanceBackend.dto.CostExplorerRequest;
+import com.example.cloudBalanceBackend.service.DashboardService;
+import com.example.cloudBalanceBackend.service.DataVersionTracker;
+import com.example.cloudBalanceBackend.utils.CostDataTransformer;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DashboardControllerTest {
+
+    // Customers scoped to accounts a1 and a2
+    private static final Authentication ALICE = new UsernamePasswordAuthenticationToken("alice", null);
+    private static final Authentication BOB = new UsernamePasswordAuthenticationToken("bob", null);
+
+    private final FakeDashboardService dashboardService = new FakeDashboardService();
+    private final DataVersionTracker dataVersionTracker = new DataVersionTracker(null, false);
+    private final DashboardController controller = new DashboardController(
+            dashboardService, null, new CostDataTransformer(), null, null, null, dataVersionTracker, null);
+
+    @Test
+    void matchingETagIsAnsweredWithNotModifiedWithoutAQuery() {
+        ResponseEntity<Map<String, Object>> first = controller.getCostExplorer(request("service"), null, ALICE);
+        String eTag = first.getHeaders().getETag();
+
+        ResponseEntity<Map<String, Object>> second = controller.getCostExplorer(request("service"), eTag, ALICE);
+
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        assertNotNull(eTag);
+        assertEquals(HttpStatus.NOT_MODIFIED, second.getStatusCode());
+        assertEquals(eTag, second.getHeaders().getETag());
+        assertNull(second.getBody());
+        assertEquals(1, dashboardService.queries.get());
+    }
+
+    @Test
+    void changedDataAnswersAnOldETagWithFreshData() {
+        String eTag = controller.getCostExplorer(request("service"), null, ALICE).getHeaders().getETag();
+        dataVersionTracker.markChanged(List.of("a1"));
+
+        ResponseEntity<Map<String, Object>> response = controller.getCostExplorer(request("service"), eTag, ALICE);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotEquals(eTag, response.getHeaders().getETag());
+        assertEquals(2, dashboardService.queries.get());
+    }
+
+    @Test
+    void changeToAnotherAccountKeepsTheETag() {
+        String eTag = controller.getCostExplorer(request("service"), null, ALICE).getHeaders().getETag();
+        dataVersionTracker.markChanged(List.of("a2"));
+
+        ResponseEntity<Map<String, Object>> response = controller.getCostExplorer(request("service"), eTag, ALICE);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+    }
+
+    @Test
+    void eTagOfAnotherRequestOrCallerDoesNotMatch() {
+        String eTag = controller.getCostExplorer(request("service"), null, ALICE).getHeaders().getETag();
+
+        assertEquals(HttpStatus.OK, controller.getCostExplorer(request("region"), eTag, ALICE).getStatusCode());
+        assertEquals(HttpStatus.OK, controller.getCostExplorer(request("service"), eTag, BOB).getStatusCode());
+        assertEquals(3, dashboardService.queries.get());
+    }
+
+    private static CostExplorerRequest request(String groupBy) {
+        CostExplorerRequest request = new CostExplorerRequest();
+        request.setGroupBy(groupBy);
+        request.setStartDate(LocalDate.of(2024, 1, 1));
+        request.setEndDate(LocalDate.of(2024, 1, 31));
+        return request;
+    }
+
+    // Scopes alice to a1 and everyone else to a2, and counts the cost queries it answers
+    private static final class FakeDashboardService extends DashboardService {
+        private final AtomicInteger queries = new AtomicInteger();
+
+        private FakeDashboardService() {
+            super(null, null, null, null);
+        }
+
+        @Override
+        public Map<String, List<String>> resolveCostFilters(Authentication auth, String accountId,
+                                                            Map<String, List<String>> filters) {
+            Map<String, List<String>> scoped = new HashMap<>(filters);
+            scoped.put("accountId", List.of(auth.getName().equals("alice") ? "a1" : "a2"));
+            return scoped;
+        }
+
+        @Override
+        public List<Map<String, Object>> getCostExplorer(Authentication auth, String accountId, String groupBy,
+                                                         LocalDate startDate, LocalDate endDate,
+                                                         Map<String, List<String>> filters, Integer topN) {
+            queries.incrementAndGet();
+            return List.of(Map.of("group", "EC2", "month", "2024-01", "cost", 1.0));
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.cloudBalanceBackend.service;
+
+import com.example.cloudBalanceBackend.dto.CostDrillDownRequest;
+import com.example.cloudBalanceBackend.exception.AccountNotAssignedException;
+import com.example.cloudBalanceBackend.utils.CostDataTransformer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CostDrillDownServiceTest {
+
+    // A customer assigned to account a1
+    private static final Authentication CUSTOMER = new UsernamePasswordAuthenticationToken("alice", null);
+
+    private final FakeDashboardService dashboardService = new FakeDashboardService();
+    private final CostDrillDownService drillDown =
+            new CostDrillDownService(dashboardService, null, new CostDataTransformer(), 5, 1, 10);
+
+    @AfterEach
+    void shutdown() {
+        drillDown.shutdown();
+    }
+
+    @Test
+    void customerCannotDrillIntoAnAccountOutsideTheirScope() {
+        CostDrillDownRequest request = request(List.of("accountId", "service"), List.of("a2"), null);
+
+        assertThrows(AccountNotAssignedException.class, () -> drillDown.getLevel(request, CUSTOMER));
+        assertNull(dashboardService.queried);
+    }
+
+    @Test
+    void customerCanDrillIntoTheirOwnAccount() {
+        drillDown.getLevel(request(List.of("accountId", "service"), List.of("a1"), null), CUSTOMER);
+
+        assertEquals(Map.of("accountId", List.of("a1")), dashboardService.queried);
+    }
+
+    @Test
+    void selectionOnAnUnfilteredDimensionKeepsTheResolvedAccount() {
+        drillDown.getLevel(request(List.of("service", "region"), List.of("EC2"), null), CUSTOMER);
+
+        assertEquals(Map.of("accountId", List.of("a1"), "service", List.of("EC2")), dashboardService.queried);
+    }
+
+    @Test
+    void selectionNarrowsAFilterOnTheSameDimension() {
+        Map<String, List<String>> filters = Map.of("region", List.of("us-east-1", "eu-west-1"));
+
+        drillDown.getLevel(request(List.of("region", "service"), List.of("eu-west-1"), filters), CUSTOMER);
+
+        assertEquals(List.of("eu-west-1"), dashboardService.queried.get("region"));
+    }
+
+    @Test
+    void selectionOutsideAFilterOnTheSameDimensionIsRejected() {
+        Map<String, List<String>> filters = Map.of("region", List.of("us-east-1"));
+        CostDrillDownRequest request = request(List.of("region", "service"), List.of("eu-west-1"), filters);
+
+        assertThrows(IllegalArgumentException.class, () -> drillDown.getLevel(request, CUSTOMER));
+        assertNull(dashboardService.queried);
+    }
+
+    private static CostDrillDownRequest request(List<String> path, List<String> selection,
+                                                Map<String, List<String>> filters) {
+        return new CostDrillDownRequest(path, selection, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31),
+                filters, null, null);
+    }
+
+    // Scopes every caller to account a1, as for a customer, and records the filters of the level query
+    private static final class FakeDashboardService extends DashboardService {
+        private volatile Map<String, List<String>> queried;
+
+        private FakeDashboardService() {
+            super(null, null, null, null);
+        }
+
+        @Override
+        public Map<String, List<String>> resolveCostFilters(Authentication auth, String accountId,
+                                                            Map<String, List<String>> filters) {
+            Map<String, List<String>> scoped = new HashMap<>(filters);
+            scoped.put("accountId", List.of("a1"));
+            return scoped;
+        }
+
+        @Override
+        public List<Map<String, Object>> getCostExplorer(Authentication auth, String accountId, String groupBy,
+                                                         LocalDate startDate, LocalDate endDate,
+                                                         Map<String, List<String>> filters, Integer topN) {
+            queried = filters;
+            return List.of();
+        }
+    }
+}
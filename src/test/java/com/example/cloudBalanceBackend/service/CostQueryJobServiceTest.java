@@ -0,0 +1,205 @@
+package com.example.cloudBalanceBackend.service;
+
+import com.example.cloudBalanceBackend.dto.CostExplorerRequest;
+import com.example.cloudBalanceBackend.model.JobStatus;
+import com.example.cloudBalanceBackend.utils.CostDataTransformer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CostQueryJobServiceTest {
+
+    private static final Authentication ALICE = new UsernamePasswordAuthenticationToken("alice", null);
+    private static final Authentication BOB = new UsernamePasswordAuthenticationToken("bob", null);
+
+    private final FakeDashboardService dashboardService = new FakeDashboardService();
+    private CostQueryJobService jobs;
+
+    @AfterEach
+    void shutdown() {
+        dashboardService.release.countDown();
+        if (jobs != null) {
+            jobs.shutdown();
+        }
+    }
+
+    @Test
+    void jobsWithoutAuthenticationBelongToAnonymous() throws Exception {
+        jobs = jobs(2, 30);
+        dashboardService.release.countDown();
+
+        String jobId = jobId(jobs.submit(request(), null));
+
+        assertTrue(jobs.getJob(jobId, null).isPresent());
+        assertTrue(jobs.getJob(jobId, ALICE).isEmpty());
+        awaitFinished(jobId, null);
+    }
+
+    @Test
+    void jobsOfOtherOwnersAreHidden() {
+        jobs = jobs(2, 30);
+
+        String jobId = jobId(jobs.submit(request(), ALICE));
+
+        assertTrue(jobs.getJob(jobId, ALICE).isPresent());
+        assertTrue(jobs.getJob(jobId, BOB).isEmpty());
+    }
+
+    @Test
+    void ownerWithOnlyActiveJobsIsRejectedAtTheLimit() {
+        jobs = jobs(2, 30);
+        jobs.submit(request(), ALICE);
+        jobs.submit(request(), ALICE);
+
+        assertThrows(RejectedExecutionException.class, () -> jobs.submit(request(), ALICE));
+        // The limit is per owner
+        assertNotNull(jobs.submit(request(), BOB));
+    }
+
+    @Test
+    void finishedJobsAreEvictedOldestFirstToMakeRoom() throws Exception {
+        jobs = jobs(2, 30);
+        dashboardService.release.countDown();
+        String first = jobId(jobs.submit(request(), ALICE));
+        awaitFinished(first, ALICE);
+        Thread.sleep(5);
+        String second = jobId(jobs.submit(request(), ALICE));
+        awaitFinished(second, ALICE);
+
+        String third = jobId(jobs.submit(request(), ALICE));
+
+        assertTrue(jobs.getJob(first, ALICE).isEmpty());
+        assertTrue(jobs.getJob(second, ALICE).isPresent());
+        assertTrue(jobs.getJob(third, ALICE).isPresent());
+    }
+
+    @Test
+    void finishedJobAlwaysReportsCompletedAt() throws Exception {
+        jobs = jobs(2, 30);
+        dashboardService.release.countDown();
+        String jobId = jobId(jobs.submit(request(), ALICE));
+
+        // Every view that shows a finished status already carries completedAt
+        long deadline = System.currentTimeMillis() + 5000;
+        Map<String, Object> view;
+        do {
+            view = jobs.getJob(jobId, ALICE).orElseThrow();
+            if (view.get("status") == JobStatus.COMPLETED || view.get("status") == JobStatus.FAILED) {
+                assertNotNull(view.get("completedAt"));
+            }
+            assertTrue(System.currentTimeMillis() < deadline, "job did not finish");
+        } while (view.get("status") != JobStatus.COMPLETED);
+
+        Object elapsed = view.get("elapsedMillis");
+        Thread.sleep(20);
+        assertEquals(elapsed, jobs.getJob(jobId, ALICE).orElseThrow().get("elapsedMillis"));
+        assertEquals(0, view.get("rowCount"));
+    }
+
+    @Test
+    void failedJobReportsItsError() throws Exception {
+        jobs = jobs(2, 30);
+        dashboardService.failure = new IllegalStateException("warehouse unavailable");
+        dashboardService.release.countDown();
+
+        String jobId = jobId(jobs.submit(request(), ALICE));
+
+        Map<String, Object> view = awaitFinished(jobId, ALICE);
+        assertEquals(JobStatus.FAILED, view.get("status"));
+        assertEquals("warehouse unavailable", view.get("error"));
+        assertNotNull(view.get("completedAt"));
+    }
+
+    @Test
+    void expiredJobsAreRemovedButActiveOnesKept() throws Exception {
+        jobs = jobs(5, 0);
+        String jobId = jobId(jobs.submit(request(), ALICE));
+
+        jobs.removeExpiredJobs();
+        assertTrue(jobs.getJob(jobId, ALICE).isPresent());
+
+        dashboardService.release.countDown();
+        awaitFinished(jobId, ALICE);
+        Thread.sleep(5);
+        jobs.removeExpiredJobs();
+        assertTrue(jobs.getJob(jobId, ALICE).isEmpty());
+    }
+
+    @Test
+    void missingDatesAreRejectedBeforeQueueing() {
+        jobs = jobs(2, 30);
+        CostExplorerRequest request = request();
+        request.setStartDate(null);
+
+        assertThrows(IllegalArgumentException.class, () -> jobs.submit(request, ALICE));
+    }
+
+    private CostQueryJobService jobs(int maxPerOwner, long retentionMinutes) {
+        return new CostQueryJobService(dashboardService, new CostDataTransformer(), 4, 10, retentionMinutes, maxPerOwner);
+    }
+
+    private Map<String, Object> awaitFinished(String jobId, Authentication auth) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (true) {
+            Map<String, Object> view = jobs.getJob(jobId, auth).orElseThrow();
+            if (view.get("status") == JobStatus.COMPLETED || view.get("status") == JobStatus.FAILED) {
+                return view;
+            }
+            assertTrue(System.currentTimeMillis() < deadline, "job did not finish");
+            Thread.sleep(5);
+        }
+    }
+
+    private static String jobId(Map<String, Object> view) {
+        return (String) view.get("jobId");
+    }
+
+    private static CostExplorerRequest request() {
+        CostExplorerRequest request = new CostExplorerRequest();
+        request.setGroupBy("service");
+        request.setStartDate(LocalDate.of(2024, 1, 1));
+        request.setEndDate(LocalDate.of(2024, 1, 31));
+        return request;
+    }
+
+    // Queries wait for release, then return no rows or throw the configured failure
+    private static final class FakeDashboardService extends DashboardService {
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile RuntimeException failure;
+
+        private FakeDashboardService() {
+            super(null, null, null, null);
+        }
+
+        @Override
+        public Map<String, List<String>> resolveCostFilters(Authentication auth, String accountId,
+                                                            Map<String, List<String>> filters) {
+            return filters;
+        }
+
+        @Override
+        public List<Map<String, Object>> getScopedCostData(String groupBy, LocalDate startDate, LocalDate endDate,
+                                                           Map<String, List<String>> filters, Integer topN) {
+            try {
+                assertTrue(release.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.cloudBalanceBackend.service;
+
+import com.example.cloudBalanceBackend.service.cost.AccountCostRowConsumer;
+import com.example.cloudBalanceBackend.service.cost.CostDataSource;
+import com.example.cloudBalanceBackend.service.cost.CostRowConsumer;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataVersionTrackerTest {
+
+    private final FakeCostDataSource source = new FakeCostDataSource();
+    private final DataVersionTracker tracker = new DataVersionTracker(source, true);
+
+    @Test
+    void firstPollOnlyRecordsFingerprints() {
+        source.fingerprints = Map.of("a1", "f1", "a2", "f2");
+
+        tracker.pollFingerprints();
+
+        assertEquals(YearMonth.now(ZoneOffset.UTC).minusMonths(1).atDay(1), source.since);
+        assertEquals(List.of(), source.invalidated);
+        assertEquals(0, tracker.getVersion(null));
+    }
+
+    @Test
+    void changedAccountIsInvalidatedAndVersionedAlone() {
+        source.fingerprints = Map.of("a1", "f1", "a2", "f2");
+        tracker.pollFingerprints();
+        source.fingerprints = Map.of("a1", "f1-restated", "a2", "f2");
+
+        tracker.pollFingerprints();
+
+        assertEquals(List.of(Set.of("a1")), source.invalidated);
+        assertEquals(1, tracker.getVersion(List.of("a1")));
+        assertEquals(0, tracker.getVersion(List.of("a2")));
+        assertEquals(1, tracker.getVersion(List.of("a1", "a2")));
+    }
+
+    @Test
+    void addedAndRemovedAccountsCountAsChanged() {
+        source.fingerprints = Map.of("a1", "f1", "a2", "f2");
+        tracker.pollFingerprints();
+        source.fingerprints = Map.of("a1", "f1", "a3", "f3");
+
+        tracker.pollFingerprints();
+
+        assertEquals(List.of(Set.of("a2", "a3")), source.invalidated);
+        assertEquals(0, tracker.getVersion(List.of("a1")));
+    }
+
+    @Test
+    void unchangedPollInvalidatesNothing() {
+        source.fingerprints = Map.of("a1", "f1");
+        tracker.pollFingerprints();
+
+        tracker.pollFingerprints();
+
+        assertEquals(List.of(), source.invalidated);
+    }
+
+    @Test
+    void failedPollKeepsThePreviousFingerprints() {
+        source.fingerprints = Map.of("a1", "f1");
+        tracker.pollFingerprints();
+        source.failure = new IllegalStateException("warehouse unavailable");
+        tracker.pollFingerprints();
+        source.failure = null;
+        source.fingerprints = Map.of("a1", "f1-restated");
+
+        tracker.pollFingerprints();
+
+        assertEquals(List.of(Set.of("a1")), source.invalidated);
+    }
+
+    @Test
+    void disabledPollDoesNotQueryTheSource() {
+        new DataVersionTracker(source, false).pollFingerprints();
+
+        assertEquals(0, source.polls);
+    }
+
+    @Test
+    void changeToAllAccountsRaisesEveryScope() {
+        tracker.markChanged(List.of("a1"));
+        tracker.markAllChanged();
+
+        assertEquals(2, tracker.getVersion(List.of("a1")));
+        assertEquals(2, tracker.getVersion(List.of("a2")));
+        assertEquals(2, tracker.getVersion(List.of()));
+    }
+
+    @Test
+    void eTagFollowsVersionAndRepresentation() {
+        String eTag = tracker.eTag("json:service", 1);
+
+        assertEquals(eTag, tracker.eTag("json:service", 1));
+        assertNotEquals(eTag, tracker.eTag("json:service", 2));
+        assertNotEquals(eTag, tracker.eTag("msgpack:service", 1));
+        assertTrue(DataVersionTracker.matches("\"other\", " + eTag, eTag));
+        assertTrue(DataVersionTracker.matches("*", eTag));
+        assertFalse(DataVersionTracker.matches("\"other\"", eTag));
+        assertFalse(DataVersionTracker.matches(null, eTag));
+    }
+
+    // Serves the configured fingerprints and records the accounts it was told to invalidate
+    private static final class FakeCostDataSource implements CostDataSource {
+        private Map<String, String> fingerprints = Map.of();
+        private RuntimeException failure;
+        private LocalDate since;
+        private int polls;
+        private final List<Set<String>> invalidated = new ArrayList<>();
+
+        @Override
+        public Map<String, String> getDataFingerprints(LocalDate since) {
+            polls++;
+            this.since = since;
+            if (failure != null) {
+                throw failure;
+            }
+            return fingerprints;
+        }
+
+        @Override
+        public void invalidateCachedAccounts(Set<String> accountIds) {
+            invalidated.add(accountIds);
+        }
+
+        @Override
+        public List<Map<String, Object>> getCostData(String groupBy, LocalDate startDate, LocalDate endDate,
+                                                     Map<String, List<String>> filters, Integer topN) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void streamCostData(String groupBy, LocalDate startDate, LocalDate endDate,
+                                   Map<String, List<String>> filters, Integer topN, CostRowConsumer consumer) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void streamCostDataByAccount(String groupBy, LocalDate startDate, LocalDate endDate,
+                                            AccountCostRowConsumer consumer) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.cloudBalanceBackend.service.aws;
+
+import com.example.cloudBalanceBackend.exception.AwsServiceException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.auth.credentials.AwsSessionCredentials;
+import software.amazon.awssdk.services.sts.model.Credentials;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AssumeRoleCredentialCacheTest {
+
+    private static final long MIN_REMAINING_SECONDS = 300;
+    private static final long REFRESH_AHEAD_SECONDS = 900;
+    private static final int CALLERS = 8;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void sessionIsReusedWhileItHasTimeLeft() {
+        FakeRoleAssumer assumer = new FakeRoleAssumer(Duration.ofHours(1));
+        AssumeRoleCredentialCache cache = cache(assumer, 1800);
+
+        AwsSessionCredentials first = cache.get("111");
+        AwsSessionCredentials second = cache.get("111");
+
+        assertSame(first, second);
+        assertEquals(1, assumer.calls.get());
+        assertEquals(1L, cache.getStats().get("hits"));
+    }
+
+    @Test
+    void sessionCloseToExpiryIsRenewedOnRequest() {
+        FakeRoleAssumer assumer = new FakeRoleAssumer(Duration.ofSeconds(MIN_REMAINING_SECONDS - 60));
+        AssumeRoleCredentialCache cache = cache(assumer, 1800);
+
+        AwsSessionCredentials first = cache.get("111");
+        AwsSessionCredentials second = cache.get("111");
+
+        assertNotSame(first, second);
+        assertEquals(2, assumer.calls.get());
+    }
+
+    @Test
+    void refreshAheadRenewsHotSessionsInsideTheWindow() {
+        FakeRoleAssumer assumer = new FakeRoleAssumer(Duration.ofSeconds(REFRESH_AHEAD_SECONDS - 60));
+        AssumeRoleCredentialCache cache = cache(assumer, 1800);
+        AwsSessionCredentials first = cache.get("111");
+
+        cache.refreshAhead();
+
+        assertEquals(2, assumer.calls.get());
+        assertEquals(1L, cache.getStats().get("refreshedAhead"));
+        // The renewed session is served without another STS call
+        AwsSessionCredentials renewed = cache.get("111");
+        assertNotSame(first, renewed);
+        assertEquals(2, assumer.calls.get());
+    }
+
+    @Test
+    void refreshAheadLeavesSessionsOutsideTheWindow() {
+        FakeRoleAssumer assumer = new FakeRoleAssumer(Duration.ofSeconds(REFRESH_AHEAD_SECONDS + 600));
+        AssumeRoleCredentialCache cache = cache(assumer, 1800);
+        cache.get("111");
+
+        cache.refreshAhead();
+
+        assertEquals(1, assumer.calls.get());
+        assertEquals(0L, cache.getStats().get("refreshedAhead"));
+    }
+
+    @Test
+    void refreshAheadDropsColdExpiredSessionsWithoutRenewing() throws Exception {
+        FakeRoleAssumer assumer = new FakeRoleAssumer(Duration.ofSeconds(-1));
+        // Nothing counts as hot, so every session is cold by the time the pass runs
+        AssumeRoleCredentialCache cache = cache(assumer, 0);
+        cache.get("111");
+        Thread.sleep(5);
+
+        cache.refreshAhead();
+
+        assertEquals(1, assumer.calls.get());
+        assertEquals(0, cache.getStats().get("sessions"));
+    }
+
+    @Test
+    void refreshAheadKeepsColdSessionsUntilTheyExpire() throws Exception {
+        FakeRoleAssumer assumer = new FakeRoleAssumer(Duration.ofSeconds(REFRESH_AHEAD_SECONDS - 60));
+        AssumeRoleCredentialCache cache = cache(assumer, 0);
+        cache.get("111");
+        Thread.sleep(5);
+
+        cache.refreshAhead();
+
+        assertEquals(1, assumer.calls.get());
+        assertEquals(1, cache.getStats().get("sessions"));
+    }
+
+    @Test
+    void failedRefreshKeepsTheCurrentSession() {
+        FakeRoleAssumer assumer = new FakeRoleAssumer(Duration.ofSeconds(REFRESH_AHEAD_SECONDS - 60));
+        AssumeRoleCredentialCache cache = cache(assumer, 1800);
+        AwsSessionCredentials first = cache.get("111");
+        assumer.failure = new IllegalStateException("sts unavailable");
+
+        cache.refreshAhead();
+
+        assertEquals(1L, cache.getStats().get("refreshFailures"));
+        assertSame(first, cache.get("111"));
+    }
+
+    @Test
+    void failedAssumeRoleSurfacesAsAwsServiceException() {
+        FakeRoleAssumer assumer = new FakeRoleAssumer(Duration.ofHours(1));
+        assumer.failure = new IllegalStateException("access denied");
+        AssumeRoleCredentialCache cache = cache(assumer, 1800);
+
+        AwsServiceException e = assertThrows(AwsServiceException.class, () -> cache.get("111"));
+        assertSame(assumer.failure, e.getCause());
+    }
+
+    @Test
+    void concurrentRequestsForOneAccountShareOneAssumeRoleCall() throws Exception {
+        FakeRoleAssumer assumer = new FakeRoleAssumer(Duration.ofHours(1));
+        CountDownLatch release = new CountDownLatch(1);
+        assumer.gate = release;
+        AssumeRoleCredentialCache cache = cache(assumer, 1800);
+
+        List<Future<AwsSessionCredentials>> calls = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            calls.add(executor.submit(() -> cache.get("111")));
+        }
+        awaitCoalesced(cache, CALLERS - 1);
+        release.countDown();
+
+        AwsSessionCredentials first = calls.get(0).get(5, TimeUnit.SECONDS);
+        for (Future<AwsSessionCredentials> call : calls) {
+            assertSame(first, call.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, assumer.calls.get());
+    }
+
+    private static AssumeRoleCredentialCache cache(RoleAssumer assumer, long hotAccountSeconds) {
+        return new AssumeRoleCredentialCache(
+                assumer, 1000, MIN_REMAINING_SECONDS, REFRESH_AHEAD_SECONDS, hotAccountSeconds);
+    }
+
+    private static void awaitCoalesced(AssumeRoleCredentialCache cache, long waiters) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((Long) cache.getStats().get("coalescedRenewals") < waiters) {
+            assertTrue(System.currentTimeMillis() < deadline, "callers did not join the in-flight renewal");
+            Thread.sleep(5);
+        }
+    }
+
+    // Hands out numbered sessions that expire a fixed time after they are issued
+    private static final class FakeRoleAssumer implements RoleAssumer {
+        private final Duration lifetime;
+        private final AtomicInteger calls = new AtomicInteger();
+        private volatile RuntimeException failure;
+        private volatile CountDownLatch gate;
+
+        private FakeRoleAssumer(Duration lifetime) {
+            this.lifetime = lifetime;
+        }
+
+        @Override
+        public Credentials assumeRole(String accountId) {
+            int call = calls.incrementAndGet();
+            if (gate != null) {
+                try {
+                    assertTrue(gate.await(5, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return Credentials.builder()
+                    .accessKeyId("key-" + accountId + "-" + call)
+                    .secretAccessKey("secret-" + call)
+                    .sessionToken("token-" + call)
+                    .expiration(Instant.now().plus(lifetime))
+                    .build();
+        }
+    }
+}
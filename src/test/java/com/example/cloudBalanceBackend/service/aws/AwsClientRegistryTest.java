@@ -0,0 +1,136 @@
+package com.example.cloudBalanceBackend.service.aws;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.utils.SdkAutoCloseable;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AwsClientRegistryTest {
+
+    private AwsClientRegistry registry;
+
+    @AfterEach
+    void close() {
+        if (registry != null) {
+            registry.close();
+        }
+    }
+
+    @Test
+    void clientIsBuiltOncePerServiceAccountAndRegion() {
+        registry = new AwsClientRegistry(900, 10, 60);
+        AtomicInteger built = new AtomicInteger();
+
+        FakeClient first = registry.client("ec2", "111", Region.US_EAST_1, () -> new FakeClient(built));
+        FakeClient second = registry.client("ec2", "111", Region.US_EAST_1, () -> new FakeClient(built));
+        FakeClient otherAccount = registry.client("ec2", "222", Region.US_EAST_1, () -> new FakeClient(built));
+        FakeClient otherRegion = registry.client("ec2", "111", Region.of("eu-west-1"), () -> new FakeClient(built));
+        FakeClient otherService = registry.client("s3", "111", Region.US_EAST_1, () -> new FakeClient(built));
+
+        assertSame(first, second);
+        assertNotSame(first, otherAccount);
+        assertNotSame(first, otherRegion);
+        assertNotSame(first, otherService);
+        assertEquals(4, built.get());
+        assertEquals(4, registry.getStats().get("clients"));
+        assertEquals(4L, registry.getStats().get("created"));
+    }
+
+    @Test
+    void clientInUseWithinTheIdleTimeoutIsKept() {
+        registry = new AwsClientRegistry(900, 10, 60);
+        FakeClient client = registry.client("ec2", "111", Region.US_EAST_1, () -> new FakeClient(null));
+
+        registry.evictIdleClients();
+
+        assertEquals(1, registry.getStats().get("clients"));
+        assertEquals(0, registry.getStats().get("retired"));
+        assertEquals(0, client.closed.get());
+    }
+
+    @Test
+    void idleClientIsRetiredBeforeItIsClosed() throws InterruptedException {
+        registry = new AwsClientRegistry(0, 10, 60);
+        FakeClient client = registry.client("ec2", "111", Region.US_EAST_1, () -> new FakeClient(null));
+        Thread.sleep(5);
+
+        registry.evictIdleClients();
+
+        // A call that looked the client up just before may still be running on it
+        assertEquals(0, registry.getStats().get("clients"));
+        assertEquals(1, registry.getStats().get("retired"));
+        assertEquals(0, client.closed.get());
+
+        Thread.sleep(5);
+        registry.evictIdleClients();
+
+        assertEquals(0, registry.getStats().get("retired"));
+        assertEquals(1L, registry.getStats().get("evicted"));
+        assertEquals(1, client.closed.get());
+    }
+
+    @Test
+    void lookupAfterRetirementBuildsAFreshClient() throws InterruptedException {
+        registry = new AwsClientRegistry(0, 10, 60);
+        FakeClient retired = registry.client("ec2", "111", Region.US_EAST_1, () -> new FakeClient(null));
+        Thread.sleep(5);
+        registry.evictIdleClients();
+
+        FakeClient fresh = registry.client("ec2", "111", Region.US_EAST_1, () -> new FakeClient(null));
+
+        assertNotSame(retired, fresh);
+        assertEquals(0, retired.closed.get());
+        assertEquals(2L, registry.getStats().get("created"));
+    }
+
+    @Test
+    void closingTheRegistryClosesLiveAndRetiredClients() throws InterruptedException {
+        registry = new AwsClientRegistry(0, 10, 60);
+        FakeClient retired = registry.client("ec2", "111", Region.US_EAST_1, () -> new FakeClient(null));
+        Thread.sleep(5);
+        registry.evictIdleClients();
+        FakeClient live = registry.client("s3", "111", Region.US_EAST_1, () -> new FakeClient(null));
+
+        registry.close();
+        registry = null;
+
+        assertEquals(1, retired.closed.get());
+        assertEquals(1, live.closed.get());
+    }
+
+    @Test
+    void failureClosingAClientDoesNotStopEviction() throws InterruptedException {
+        registry = new AwsClientRegistry(0, 10, 60);
+        registry.client("ec2", "111", Region.US_EAST_1, () -> (SdkAutoCloseable) () -> {
+            throw new IllegalStateException("boom");
+        });
+        FakeClient other = registry.client("ec2", "222", Region.US_EAST_1, () -> new FakeClient(null));
+        Thread.sleep(5);
+        registry.evictIdleClients();
+        Thread.sleep(5);
+
+        registry.evictIdleClients();
+
+        assertEquals(1, other.closed.get());
+        assertEquals(2L, registry.getStats().get("evicted"));
+    }
+
+    private static class FakeClient implements SdkAutoCloseable {
+        private final AtomicInteger closed = new AtomicInteger();
+
+        private FakeClient(AtomicInteger built) {
+            if (built != null) {
+                built.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void close() {
+            closed.incrementAndGet();
+        }
+    }
+}
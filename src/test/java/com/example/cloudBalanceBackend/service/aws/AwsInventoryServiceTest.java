@@ -0,0 +1,224 @@
+package com.example.cloudBalanceBackend.service.aws;
+
+import com.example.cloudBalanceBackend.exception.AwsServiceException;
+import com.example.cloudBalanceBackend.model.Account;
+import com.example.cloudBalanceBackend.model.InventorySnapshot;
+import com.example.cloudBalanceBackend.repository.AccountRepository;
+import com.example.cloudBalanceBackend.repository.InventorySnapshotRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AwsInventoryServiceTest {
+
+    private final FakeAwsService awsService = new FakeAwsService();
+    private final List<InventorySnapshot> saved = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> accountIds = new ArrayList<>();
+    private AwsInventoryService inventory;
+
+    @AfterEach
+    void shutdown() {
+        if (inventory != null) {
+            inventory.shutdown();
+        }
+    }
+
+    @Test
+    void crawlSumsAllFromTheAccountsItJustCrawled() {
+        accountIds.addAll(List.of("a1", "a2", "a3"));
+        awsService.live.put("a1", accountData("a1", 2, 4, 6));
+        awsService.live.put("a2", accountData("a2", 1, 1, 1));
+        inventory = inventory(30000);
+
+        inventory.crawl();
+
+        assertFalse(awsService.refreshed.contains(null), "all accounts were scanned a second time");
+        assertEquals(Set.of("a1", "a2"), awsService.aggregatedFrom.keySet());
+        assertEquals(List.of("a3"), awsService.aggregatedFailures);
+
+        InventorySnapshot all = latestSaved("all");
+        assertTrue(all.getPartial());
+        assertEquals("a3", all.getFailedAccounts());
+        assertEquals(Integer.valueOf(3), all.getEc2RunningInstances());
+        assertNotNull(latestSaved("a1"));
+        assertNotNull(latestSaved("a2"));
+    }
+
+    @Test
+    void partialSnapshotIsServedWithItsFlagAndFailedAccounts() {
+        accountIds.addAll(List.of("a1", "a2"));
+        awsService.live.put("a1", accountData("a1", 2, 4, 6));
+        inventory = inventory(30000);
+        inventory.crawl();
+
+        Map<String, Object> data = inventory.getServiceData(null, false);
+
+        Map<?, ?> meta = (Map<?, ?>) data.get("meta");
+        assertEquals("snapshot", meta.get("source"));
+        assertEquals(true, meta.get("partial"));
+        assertEquals(List.of("a2"), meta.get("failedAccounts"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void failedServiceOfAnAccountIsRecordedAsAnEmptyColumn() {
+        accountIds.add("a1");
+        Map<String, Object> data = accountData("a1", 2, 4, 6);
+        data.put("services", List.of(
+                service("EC2", Map.of("runningInstances", 2, "stoppedInstances", 1)),
+                Map.of("name", "S3", "region", "us-east-1", "error", "timeout"),
+                service("Lambda", Map.of("functions", 6))));
+        ((Map<String, Object>) data.get("meta")).put("partial", true);
+        awsService.live.put("a1", data);
+        inventory = inventory(30000);
+        inventory.crawl();
+
+        InventorySnapshot snapshot = latestSaved("a1");
+        assertTrue(snapshot.getPartial());
+        assertNull(snapshot.getS3Buckets());
+
+        List<?> services = (List<?>) inventory.getServiceData("a1", false).get("services");
+        Map<?, ?> s3 = (Map<?, ?>) services.get(1);
+        assertEquals("S3", s3.get("name"));
+        assertEquals("failed", s3.get("error"));
+        assertFalse(s3.containsKey("metrics"));
+    }
+
+    @Test
+    void snapshotWithEmptyColumnsDoesNotFail() {
+        inventory = inventory(30000);
+        saved.add(InventorySnapshot.builder()
+                .id("s1")
+                .accountId("a1")
+                .capturedAt(Instant.now())
+                .ec2RunningInstances(5)
+                .build());
+
+        Map<String, Object> data = inventory.getServiceData("a1", false);
+
+        List<?> services = (List<?>) data.get("services");
+        assertEquals(Map.of("runningInstances", 5), ((Map<?, ?>) services.get(0)).get("metrics"));
+        assertEquals(false, ((Map<?, ?>) data.get("meta")).get("partial"));
+    }
+
+    @Test
+    void snapshotRecordedByAnotherInstanceIsReadAfterTheRecheckInterval() {
+        inventory = inventory(0);
+        awsService.live.put("a1", accountData("a1", 1, 1, 1));
+
+        assertEquals("live", ((Map<?, ?>) inventory.getServiceData("a1", false).get("meta")).get("source"));
+
+        saved.add(InventorySnapshot.builder()
+                .id("s1")
+                .accountId("a1")
+                .capturedAt(Instant.now())
+                .ec2RunningInstances(7)
+                .build());
+        assertEquals("snapshot", ((Map<?, ?>) inventory.getServiceData("a1", false).get("meta")).get("source"));
+    }
+
+    private AwsInventoryService inventory(long recheckMillis) {
+        AccountRepository accounts = (AccountRepository) Proxy.newProxyInstance(
+                AccountRepository.class.getClassLoader(),
+                new Class<?>[]{AccountRepository.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("findAll") && (args == null || args.length == 0)) {
+                        return accountIds.stream().map(id -> Account.builder().id(id).build()).toList();
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        InventorySnapshotRepository snapshots = (InventorySnapshotRepository) Proxy.newProxyInstance(
+                InventorySnapshotRepository.class.getClassLoader(),
+                new Class<?>[]{InventorySnapshotRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "save" -> {
+                        saved.add((InventorySnapshot) args[0]);
+                        yield args[0];
+                    }
+                    case "findFirstByAccountIdOrderByCapturedAtDesc" -> Optional.ofNullable(latestSaved((String) args[0]));
+                    case "deleteByCapturedAtBefore" -> 0L;
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+        return new AwsInventoryService(awsService, accounts, snapshots, 3600, recheckMillis, 7, 2);
+    }
+
+    private InventorySnapshot latestSaved(String accountId) {
+        synchronized (saved) {
+            return saved.stream()
+                    .filter(snapshot -> snapshot.getAccountId().equals(accountId))
+                    .max(Comparator.comparing(InventorySnapshot::getCapturedAt))
+                    .orElse(null);
+        }
+    }
+
+    private static Map<String, Object> accountData(String accountId, int running, int buckets, int functions) {
+        Map<String, Object> meta = new HashMap<>();
+        meta.put("accountId", accountId);
+        meta.put("partial", false);
+        meta.put("source", "live");
+        Map<String, Object> data = new HashMap<>();
+        data.put("meta", meta);
+        data.put("services", List.of(
+                service("EC2", Map.of("runningInstances", running, "stoppedInstances", 0)),
+                service("S3", Map.of("buckets", buckets)),
+                service("Lambda", Map.of("functions", functions))));
+        return data;
+    }
+
+    private static Map<String, Object> service(String name, Map<String, Object> metrics) {
+        return Map.of("name", name, "region", "us-east-1", "metrics", metrics);
+    }
+
+    // Serves canned per-account data; accounts without data fail. "all" sums the running instances.
+    private static final class FakeAwsService extends AwsService {
+        private final Map<String, Map<String, Object>> live = new HashMap<>();
+        private final List<String> refreshed = Collections.synchronizedList(new ArrayList<>());
+        private Map<String, Map<String, Object>> aggregatedFrom;
+        private List<String> aggregatedFailures;
+
+        private FakeAwsService() {
+            super(null, null, null);
+        }
+
+        @Override
+        public boolean isAwsConfigured() {
+            return true;
+        }
+
+        @Override
+        public Map<String, Object> getServiceData(String accountId) {
+            Map<String, Object> data = live.get(accountId);
+            if (data == null) {
+                throw new AwsServiceException("No data for account " + accountId, null);
+            }
+            return data;
+        }
+
+        @Override
+        public Map<String, Object> refreshServiceData(String accountId) {
+            refreshed.add(accountId);
+            return getServiceData(accountId);
+        }
+
+        @Override
+        public Map<String, Object> aggregateServiceData(Map<String, Map<String, Object>> accountData,
+                                                        List<String> failedAccounts) {
+            aggregatedFrom = accountData;
+            aggregatedFailures = failedAccounts;
+            int running = 0;
+            for (Map<String, Object> data : accountData.values()) {
+                Map<?, ?> ec2 = (Map<?, ?>) ((List<?>) data.get("services")).get(0);
+                running += (Integer) ((Map<?, ?>) ec2.get("metrics")).get("runningInstances");
+            }
+            return Map.of(
+                    "meta", Map.of("accountId", "all", "partial", !failedAccounts.isEmpty(),
+                            "failedAccounts", failedAccounts),
+                    "services", List.of(service("EC2", Map.of("runningInstances", (long) running))));
+        }
+    }
+}
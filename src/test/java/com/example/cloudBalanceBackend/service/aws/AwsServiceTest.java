@@ -0,0 +1,337 @@
+package com.example.cloudBalanceBackend.service.aws;
+
+import com.example.cloudBalanceBackend.exception.AwsServiceException;
+import com.example.cloudBalanceBackend.model.Account;
+import com.example.cloudBalanceBackend.repository.AccountRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.model.*;
+import software.amazon.awssdk.services.lambda.LambdaClient;
+import software.amazon.awssdk.services.lambda.model.FunctionConfiguration;
+import software.amazon.awssdk.services.lambda.model.ListFunctionsResponse;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.Bucket;
+import software.amazon.awssdk.services.s3.model.ListBucketsResponse;
+import software.amazon.awssdk.services.sts.model.Credentials;
+
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AwsServiceTest {
+
+    private static final long CALL_MILLIS = 300;
+
+    private final FakeApi ec2 = new FakeApi();
+    private final FakeApi s3 = new FakeApi();
+    private final FakeApi lambda = new FakeApi();
+    private final FakeClientRegistry clientRegistry = new FakeClientRegistry();
+    private List<String> accountIds = List.of("111");
+    private AwsService service;
+
+    @AfterEach
+    void shutdown() {
+        if (service != null) {
+            service.shutdownCollectorExecutor();
+        }
+        clientRegistry.close();
+    }
+
+    @Test
+    void collectorsOfOneAccountRunConcurrently() {
+        ec2.delayMillis = CALL_MILLIS;
+        s3.delayMillis = CALL_MILLIS;
+        lambda.delayMillis = CALL_MILLIS;
+        start(Map.of());
+
+        long started = System.currentTimeMillis();
+        Map<String, Object> data = service.getServiceData("111");
+        long elapsed = System.currentTimeMillis() - started;
+
+        assertTrue(elapsed < 2 * CALL_MILLIS, "collectors ran one after another: " + elapsed + " ms");
+        assertEquals(false, meta(data).get("partial"));
+        assertEquals(Map.of("runningInstances", 1, "stoppedInstances", 1), service(data, "EC2").get("metrics"));
+        assertEquals(Map.of("buckets", 2), service(data, "S3").get("metrics"));
+        assertEquals(Map.of("functions", 3), service(data, "Lambda").get("metrics"));
+    }
+
+    @Test
+    void slowCollectorIsReportedAsTimedOut() {
+        ec2.delayMillis = 5000;
+        start(Map.of("collectorTimeoutMs", 200L));
+
+        long started = System.currentTimeMillis();
+        Map<String, Object> data = service.getServiceData("111");
+
+        assertTrue(System.currentTimeMillis() - started < 2000, "request waited for the slow collector");
+        assertEquals(true, meta(data).get("partial"));
+        assertEquals("timeout", service(data, "EC2").get("error"));
+        assertEquals(Map.of("buckets", 2), service(data, "S3").get("metrics"));
+        assertEquals(Map.of("functions", 3), service(data, "Lambda").get("metrics"));
+    }
+
+    @Test
+    void failedCollectorIsReportedInPlace() {
+        s3.failure = new IllegalStateException("access denied");
+        start(Map.of());
+
+        Map<String, Object> data = service.getServiceData("111");
+
+        assertEquals(true, meta(data).get("partial"));
+        assertEquals(List.of("EC2", "S3", "Lambda"), services(data).stream().map(s -> s.get("name")).toList());
+        assertEquals("failed", service(data, "S3").get("error"));
+        assertNotNull(service(data, "EC2").get("metrics"));
+    }
+
+    @Test
+    void requestFailsWhenEveryCollectorFails() {
+        ec2.failure = new IllegalStateException("down");
+        s3.failure = new IllegalStateException("down");
+        lambda.failure = new IllegalStateException("down");
+        start(Map.of());
+
+        assertThrows(AwsServiceException.class, () -> service.getServiceData("111"));
+    }
+
+    @Test
+    void collectorsRejectedByAFullPoolAreReportedAsBusy() {
+        ec2.delayMillis = CALL_MILLIS;
+        start(Map.of("collectorThreads", 1, "collectorQueueCapacity", 1));
+
+        Map<String, Object> data = service.getServiceData("111");
+
+        assertNotNull(service(data, "EC2").get("metrics"));
+        assertNotNull(service(data, "S3").get("metrics"));
+        assertEquals("busy", service(data, "Lambda").get("error"));
+        assertEquals(0, lambda.calls.get());
+    }
+
+    @Test
+    void completeResultIsServedFromCacheUntilItsTtl() {
+        start(Map.of());
+
+        Map<String, Object> first = service.getServiceData("111");
+        Map<String, Object> second = service.getServiceData("111");
+
+        assertSame(first, second);
+        assertEquals(1, ec2.calls.get());
+        assertNotNull(service.getServiceDataVersion("111"));
+    }
+
+    @Test
+    void partialResultIsCachedOnlyForThePartialTtl() {
+        s3.failure = new IllegalStateException("throttled");
+        start(Map.of("partialDataTtlSeconds", 0L));
+
+        service.getServiceData("111");
+        service.getServiceData("111");
+
+        assertEquals(2, ec2.calls.get());
+        assertNull(service.getServiceDataVersion("111"));
+    }
+
+    @Test
+    void fleetScanThrottlesEachApiAcrossAllAccounts() {
+        accountIds = IntStream.range(0, 10).mapToObj(i -> "acct-" + i).toList();
+        // Ten accounts at once against a rate of five calls per second: after a burst of five,
+        // each further EC2 call waits its 200 ms turn, whichever account makes it
+        start(Map.of("fleetCallsPerSecond", 5.0, "fleetConcurrency", 10));
+
+        Map<String, Object> data = service.getServiceDataAllAccounts();
+
+        assertEquals(10, meta(data).get("accounts"));
+        assertEquals(Map.of("runningInstances", 10L, "stoppedInstances", 10L), service(data, "EC2").get("metrics"));
+        List<Long> calls = ec2.callNanos.stream().sorted().toList();
+        long spanMillis = TimeUnit.NANOSECONDS.toMillis(calls.get(calls.size() - 1) - calls.get(0));
+        assertTrue(spanMillis >= 700, "EC2 calls were not spaced: " + spanMillis + " ms");
+        @SuppressWarnings("unchecked")
+        Map<String, Object> throttled = (Map<String, Object>) service.getClientStats().get("fleetThrottled");
+        assertTrue((Long) throttled.get("EC2") >= 4);
+    }
+
+    @Test
+    void fleetScanWithinTheRateIsNotThrottled() {
+        accountIds = List.of("111", "222", "333");
+        start(Map.of("fleetCallsPerSecond", 5.0));
+
+        service.getServiceDataAllAccounts();
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> throttled = (Map<String, Object>) service.getClientStats().get("fleetThrottled");
+        assertEquals(Map.of("EC2", 0L, "S3", 0L, "Lambda", 0L), throttled);
+    }
+
+    private void start(Map<String, Object> overrides) {
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("assumeRoleEnabled", true);
+        config.put("roleArnTemplate", "arn:aws:iam::{accountId}:role/cloudbalance");
+        config.put("defaultRegion", "us-east-1");
+        config.put("serviceDataTtlSeconds", 300L);
+        config.put("partialDataTtlSeconds", 30L);
+        config.put("collectorTimeoutMs", 5000L);
+        config.put("collectorThreads", 6);
+        config.put("collectorQueueCapacity", 50);
+        config.put("fleetConcurrency", 8);
+        config.put("fleetCallsPerSecond", 1000.0);
+        config.put("fleetTimeoutMs", 30000L);
+        config.putAll(overrides);
+
+        AssumeRoleCredentialCache credentialCache = new AssumeRoleCredentialCache(accountId -> Credentials.builder()
+                .accessKeyId("key-" + accountId)
+                .secretAccessKey("secret")
+                .sessionToken("token")
+                .expiration(Instant.now().plus(1, ChronoUnit.HOURS))
+                .build(), 1000, 300, 900, 1800);
+        service = new AwsService(clientRegistry, credentialCache, accounts());
+        config.forEach((field, value) -> ReflectionTestUtils.setField(service, field, value));
+        service.startCollectorExecutor();
+    }
+
+    private AccountRepository accounts() {
+        return (AccountRepository) Proxy.newProxyInstance(
+                AccountRepository.class.getClassLoader(),
+                new Class<?>[]{AccountRepository.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("findAll") && (args == null || args.length == 0)) {
+                        return accountIds.stream().map(id -> Account.builder().id(id).build()).toList();
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> meta(Map<String, Object> data) {
+        return (Map<String, Object>) data.get("meta");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> services(Map<String, Object> data) {
+        return (List<Map<String, Object>>) data.get("services");
+    }
+
+    private static Map<String, Object> service(Map<String, Object> data, String name) {
+        return services(data).stream()
+                .filter(service -> name.equals(service.get("name")))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    // One AWS API: counts and times calls, and can be made slow or failing
+    private static final class FakeApi {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final Queue<Long> callNanos = new ConcurrentLinkedQueue<>();
+        private volatile long delayMillis;
+        private volatile RuntimeException failure;
+
+        private void call() {
+            calls.incrementAndGet();
+            callNanos.add(System.nanoTime());
+            if (delayMillis > 0) {
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    // Hands out clients backed by the fake APIs instead of building SDK clients
+    private final class FakeClientRegistry extends AwsClientRegistry {
+
+        private FakeClientRegistry() {
+            super(900, 10, 60);
+        }
+
+        @Override
+        public Ec2Client ec2(String accountId, Region region, AwsCredentialsProvider credentials) {
+            return new Ec2Client() {
+                @Override
+                public DescribeInstancesResponse describeInstances() {
+                    ec2.call();
+                    return DescribeInstancesResponse.builder()
+                            .reservations(Reservation.builder()
+                                    .instances(instance(InstanceStateName.RUNNING), instance(InstanceStateName.STOPPED))
+                                    .build())
+                            .build();
+                }
+
+                @Override
+                public String serviceName() {
+                    return "ec2";
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+
+        @Override
+        public S3Client s3(String accountId, Region region, AwsCredentialsProvider credentials) {
+            return new S3Client() {
+                @Override
+                public ListBucketsResponse listBuckets() {
+                    s3.call();
+                    return ListBucketsResponse.builder()
+                            .buckets(Bucket.builder().name("logs").build(), Bucket.builder().name("assets").build())
+                            .build();
+                }
+
+                @Override
+                public String serviceName() {
+                    return "s3";
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+
+        @Override
+        public LambdaClient lambda(String accountId, Region region, AwsCredentialsProvider credentials) {
+            return new LambdaClient() {
+                @Override
+                public ListFunctionsResponse listFunctions() {
+                    lambda.call();
+                    return ListFunctionsResponse.builder()
+                            .functions(function("a"), function("b"), function("c"))
+                            .build();
+                }
+
+                @Override
+                public String serviceName() {
+                    return "lambda";
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+
+        private static Instance instance(InstanceStateName state) {
+            return Instance.builder().state(InstanceState.builder().name(state).build()).build();
+        }
+
+        private static FunctionConfiguration function(String name) {
+            return FunctionConfiguration.builder().functionName(name).build();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.cloudBalanceBackend.service.cost;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CostDataSourceRouterTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+    private static final LocalDate END = LocalDate.of(2024, 3, 31);
+
+    // Both sources hold rows for a Snowflake account and a local account
+    private final FakeCostDataSource snowflake = new FakeCostDataSource("snowflake");
+    private final FakeCostDataSource local = new FakeCostDataSource("local");
+
+    @Test
+    void snowflakeDefaultSendsUnscopedAndSnowflakeAccountsToSnowflake() {
+        CostDataSourceRouter router = router("snowflake", "l1");
+
+        assertEquals("snowflake", source(router.getCostData("service", START, END, Map.of(), null)));
+        assertEquals("snowflake", source(router.getCostData("service", START, END,
+                Map.of("accountId", List.of("s1")), null)));
+        assertEquals("snowflake", source(router.getCostData("service", START, END,
+                Map.of("accountId", List.of()), null)));
+    }
+
+    @Test
+    void onlyQueriesWhollyWithinLocalAccountsGoToTheLocalEngine() {
+        CostDataSourceRouter router = router("snowflake", "l1", "l2");
+
+        assertEquals("local", source(router.getCostData("service", START, END,
+                Map.of("accountId", List.of("l1", "l2")), null)));
+        // A mixed scope cannot be answered by the local engine alone
+        assertEquals("snowflake", source(router.getCostData("service", START, END,
+                Map.of("accountId", List.of("l1", "s1")), null)));
+    }
+
+    @Test
+    void everyQueryTypeIsRouted() {
+        CostDataSourceRouter router = router("snowflake", "l1");
+        Map<String, List<String>> localScope = Map.of("accountId", List.of("l1"));
+
+        router.streamCostData("service", START, END, localScope, null, (group, month, cost) -> { });
+        router.getCostDataBatch(List.of("service", "region"), START, END, localScope, null);
+        router.getCostDataPage("service", START, END, localScope, 10, null);
+        router.getCostComparison("service", START, END, START, END, localScope, null);
+
+        assertEquals(List.of("streamCostData", "getCostDataBatch", "getCostDataPage", "getCostComparison"), local.calls);
+        assertEquals(List.of(), snowflake.calls);
+    }
+
+    @Test
+    void localDefaultSendsEverythingToTheLocalEngine() {
+        CostDataSourceRouter router = router("LOCAL");
+
+        assertEquals("local", source(router.getCostData("service", START, END, Map.of(), null)));
+        assertEquals("local", source(router.getCostData("service", START, END,
+                Map.of("accountId", List.of("s1")), null)));
+        assertEquals(List.of("s1|local", "l1|local"), accountRows(router));
+        assertTrue(snowflake.calls.isEmpty());
+    }
+
+    @Test
+    void accountSplitScansTakeEachAccountFromItsOwnSource() {
+        CostDataSourceRouter router = router("snowflake", "l1");
+
+        assertEquals(List.of("s1|snowflake", "l1|local"), accountRows(router));
+
+        List<String> values = new ArrayList<>();
+        router.streamDistinctValuesByAccount(List.of("service"), START, END,
+                (accountId, groupBy, value) -> values.add(accountId + "|" + value));
+        assertEquals(List.of("s1|snowflake", "l1|local"), values);
+    }
+
+    @Test
+    void accountSplitScanSkipsTheLocalEngineWithoutLocalAccounts() {
+        CostDataSourceRouter router = router("snowflake");
+
+        assertEquals(List.of("s1|snowflake", "l1|snowflake"), accountRows(router));
+        assertTrue(local.calls.isEmpty());
+    }
+
+    @Test
+    void fingerprintsCoverOnlySnowflakeAccounts() {
+        assertEquals(Map.of("s1", "snowflake"), router("snowflake", "l1").getDataFingerprints(START));
+        assertEquals(Map.of("s1", "snowflake", "l1", "snowflake"), router("snowflake").getDataFingerprints(START));
+    }
+
+    @Test
+    void localDefaultNeitherPollsNorInvalidatesSnowflake() {
+        CostDataSourceRouter router = router("local");
+
+        assertEquals(Map.of(), router.getDataFingerprints(START));
+        router.invalidateCachedAccounts(Set.of("s1"));
+
+        assertTrue(snowflake.calls.isEmpty());
+    }
+
+    @Test
+    void invalidationReachesSnowflake() {
+        router("snowflake", "l1").invalidateCachedAccounts(Set.of("s1"));
+
+        assertEquals(List.of("invalidateCachedAccounts"), snowflake.calls);
+        assertEquals(Set.of("s1"), snowflake.invalidated);
+    }
+
+    @Test
+    void unknownSourceIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> router("bigquery"));
+    }
+
+    private CostDataSourceRouter router(String source, String... localAccounts) {
+        return new CostDataSourceRouter(snowflake, local, source, List.of(localAccounts));
+    }
+
+    private static List<String> accountRows(CostDataSourceRouter router) {
+        List<String> rows = new ArrayList<>();
+        router.streamCostDataByAccount("service", START, END,
+                (accountId, group, month, cost) -> rows.add(accountId + "|" + group));
+        return rows;
+    }
+
+    private static String source(List<Map<String, Object>> rows) {
+        return (String) rows.get(0).get("group");
+    }
+
+    // Answers every query with its own name as the group, for accounts s1 and l1
+    private static class FakeCostDataSource implements CostDataSource {
+        private final String name;
+        private final List<String> calls = new ArrayList<>();
+        private Set<String> invalidated;
+
+        private FakeCostDataSource(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public List<Map<String, Object>> getCostData(String groupBy, LocalDate startDate, LocalDate endDate,
+                                                     Map<String, List<String>> filters, Integer topN) {
+            calls.add("getCostData");
+            return List.of(Map.of("group", name, "month", "2024-01", "cost", 1.0));
+        }
+
+        @Override
+        public void streamCostData(String groupBy, LocalDate startDate, LocalDate endDate,
+                                   Map<String, List<String>> filters, Integer topN, CostRowConsumer consumer) {
+            calls.add("streamCostData");
+            consumer.accept(name, "2024-01", 1.0);
+        }
+
+        @Override
+        public void streamCostDataByAccount(String groupBy, LocalDate startDate, LocalDate endDate,
+                                            AccountCostRowConsumer consumer) {
+            calls.add("streamCostDataByAccount");
+            consumer.accept("s1", name, "2024-01", 1.0);
+            consumer.accept("l1", name, "2024-01", 1.0);
+        }
+
+        @Override
+        public void streamDistinctValuesByAccount(List<String> groupBys, LocalDate startDate, LocalDate endDate,
+                                                  DimensionValueConsumer consumer) {
+            calls.add("streamDistinctValuesByAccount");
+            consumer.accept("s1", groupBys.get(0), name);
+            consumer.accept("l1", groupBys.get(0), name);
+        }
+
+        @Override
+        public Map<String, List<Map<String, Object>>> getCostDataBatch(List<String> groupBys, LocalDate startDate,
+                                                                       LocalDate endDate, Map<String, List<String>> filters,
+                                                                       Integer topN) {
+            calls.add("getCostDataBatch");
+            return Map.of();
+        }
+
+        @Override
+        public CostPage getCostDataPage(String groupBy, LocalDate startDate, LocalDate endDate,
+                                        Map<String, List<String>> filters, int pageSize, String afterGroup) {
+            calls.add("getCostDataPage");
+            return null;
+        }
+
+        @Override
+        public CostComparison getCostComparison(String groupBy, LocalDate currentStart, LocalDate currentEnd,
+                                                LocalDate previousStart, LocalDate previousEnd,
+                                                Map<String, List<String>> filters, Integer limit) {
+            calls.add("getCostComparison");
+            return null;
+        }
+
+        @Override
+        public Map<String, String> getDataFingerprints(LocalDate since) {
+            calls.add("getDataFingerprints");
+            return Map.of("s1", name, "l1", name);
+        }
+
+        @Override
+        public void invalidateCachedAccounts(Set<String> accountIds) {
+            calls.add("invalidateCachedAccounts");
+            invalidated = accountIds;
+        }
+    }
+}
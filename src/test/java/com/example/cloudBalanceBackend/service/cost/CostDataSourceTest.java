@@ -0,0 +1,110 @@
+package com.example.cloudBalanceBackend.service.cost;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Default methods of CostDataSource, over a source that streams fixed rows in no particular order
+class CostDataSourceTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+    private static final LocalDate END = LocalDate.of(2024, 3, 31);
+
+    @Test
+    void defaultPageKeepsSmallestGroupsAfterKeyset() {
+        CostDataSource source = source(
+                row("c", "2024-01", 1), row("a", "2024-02", 2), row("d", "2024-01", 3),
+                row("a", "2024-01", 4), row("b", "2024-03", 5));
+
+        CostPage first = source.getCostDataPage("service", START, END, Map.of(), 2, null);
+        assertEquals(Set.of("a|2024-02|2.0", "a|2024-01|4.0", "b|2024-03|5.0"), rows(first));
+        assertEquals("b", first.lastGroup());
+        assertTrue(first.hasMore());
+
+        CostPage second = source.getCostDataPage("service", START, END, Map.of(), 2, "b");
+        assertEquals(Set.of("c|2024-01|1.0", "d|2024-01|3.0"), rows(second));
+        assertEquals("d", second.lastGroup());
+        assertFalse(second.hasMore());
+    }
+
+    @Test
+    void pagingWithTokensVisitsEveryRowOnce() {
+        List<Object[]> all = new ArrayList<>();
+        all.add(row("", "2024-01", 0.5));
+        for (int g = 9; g >= 0; g--) {
+            all.add(row("group-" + g, "2024-01", g));
+            all.add(row("group-" + g, "2024-02", g + 0.25));
+        }
+        CostDataSource source = source(all.toArray(new Object[0][]));
+
+        assertEquals(List.of("group-1", "group-4", "group-7", "group-9"), walk(source, 3, all.size()));
+        // With one group per page the empty-string group is a page's last group, and its token must not restart
+        assertEquals("", walk(source, 1, all.size()).get(0));
+    }
+
+    @Test
+    void pageAfterLastGroupIsEmpty() {
+        CostPage page = source(row("a", "2024-01", 1)).getCostDataPage("service", START, END, Map.of(), 2, "a");
+
+        assertEquals(List.of(), page.rows());
+        assertNull(page.lastGroup());
+        assertFalse(page.hasMore());
+    }
+
+    // Page through everything with continuation tokens; checks each row is served once and returns the last groups
+    private static List<String> walk(CostDataSource source, int pageSize, int expectedRows) {
+        Set<String> seen = new HashSet<>();
+        List<String> lastGroups = new ArrayList<>();
+        String token = null;
+        do {
+            CostPage page = source.getCostDataPage("service", START, END, Map.of(), pageSize, CostPageToken.decode(token));
+            for (String row : rows(page)) {
+                assertTrue(seen.add(row), "row served twice: " + row);
+            }
+            lastGroups.add(page.lastGroup());
+            token = CostPageToken.encode(page);
+        } while (token != null);
+
+        assertEquals(expectedRows, seen.size());
+        return lastGroups;
+    }
+
+    private static CostDataSource source(Object[]... rows) {
+        return new CostDataSource() {
+            @Override
+            public List<Map<String, Object>> getCostData(String groupBy, LocalDate startDate, LocalDate endDate,
+                                                         Map<String, List<String>> filters, Integer topN) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void streamCostData(String groupBy, LocalDate startDate, LocalDate endDate,
+                                       Map<String, List<String>> filters, Integer topN, CostRowConsumer consumer) {
+                for (Object[] row : rows) {
+                    consumer.accept((String) row[0], (String) row[1], (Double) row[2]);
+                }
+            }
+
+            @Override
+            public void streamCostDataByAccount(String groupBy, LocalDate startDate, LocalDate endDate,
+                                                AccountCostRowConsumer consumer) {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    private static Object[] row(String group, String month, double cost) {
+        return new Object[]{group, month, cost};
+    }
+
+    private static Set<String> rows(CostPage page) {
+        Set<String> rows = new HashSet<>();
+        for (Map<String, Object> row : page.rows()) {
+            rows.add(row.get("group") + "|" + row.get("month") + "|" + row.get("cost"));
+        }
+        return rows;
+    }
+}
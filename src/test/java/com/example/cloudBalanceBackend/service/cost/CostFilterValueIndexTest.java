@@ -0,0 +1,152 @@
+package com.example.cloudBalanceBackend.service.cost;
+
+import com.example.cloudBalanceBackend.model.Account;
+import com.example.cloudBalanceBackend.repository.AccountRepository;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CostFilterValueIndexTest {
+
+    @Test
+    void prefixSearchIgnoresCase() {
+        CostFilterValueIndex index = index(100, List.of(
+                new String[]{"a1", "service", "EC2"},
+                new String[]{"a1", "service", "ec2"},
+                new String[]{"a1", "service", "Ec2 Other"},
+                new String[]{"a1", "service", "ECS"},
+                new String[]{"a1", "service", "S3"}
+        ));
+
+        assertEquals(List.of("EC2", "ec2", "Ec2 Other"), index.search("service", null, "ec2", 10));
+        assertEquals(List.of("EC2", "ec2", "Ec2 Other"), index.search("service", null, "EC2", 10));
+        assertEquals(List.of("EC2", "ec2", "Ec2 Other", "ECS"), index.search("service", null, "e", 10));
+        assertEquals(List.of("EC2", "ec2"), index.search("service", null, "ec", 2));
+        assertEquals(List.of(), index.search("service", null, "lambda", 10));
+    }
+
+    @Test
+    void refreshIndexesEveryAccountFromOneScan() {
+        FakeCostDataSource source = new FakeCostDataSource(List.of(
+                new String[]{"a1", "service", "EC2"},
+                new String[]{"a2", "service", "S3"},
+                new String[]{"unknown", "service", "Lambda"},
+                new String[]{"a1", "region", ""}
+        ));
+        CostFilterValueIndex index = index(100, source);
+
+        assertEquals(1, source.scans);
+        assertEquals(List.of("EC2", "Lambda", "S3"), index.search("service", null, "", 10));
+        assertEquals(List.of("EC2"), index.search("service", "a1", "", 10));
+        assertEquals(List.of("S3"), index.search("service", "a2", "", 10));
+        assertEquals(List.of(), index.search("service", "unknown", "", 10));
+        assertEquals(List.of(), index.search("region", null, "", 10));
+    }
+
+    @Test
+    void dimensionIsCappedAtMaxValues() {
+        CostFilterValueIndex index = index(2, List.of(
+                new String[]{"a1", "service", "A"},
+                new String[]{"a1", "service", "B"},
+                new String[]{"a1", "service", "C"},
+                new String[]{"a1", "service", "A"}
+        ));
+
+        assertEquals(List.of("A", "B"), index.search("service", null, "", 10));
+    }
+
+    @Test
+    void repeatedValuesDoNotCountTowardsTheCap() {
+        CostFilterValueIndex index = index(2, List.of(
+                new String[]{"a1", "service", "A"},
+                new String[]{"a1", "service", "A"},
+                new String[]{"a2", "service", "A"},
+                new String[]{"a1", "service", "B"}
+        ));
+
+        assertEquals(List.of("A", "B"), index.search("service", null, "", 10));
+        assertEquals(List.of("A", "B"), index.search("service", "a1", "", 10));
+    }
+
+    @Test
+    void capHoldsAcrossRefreshes() {
+        CostFilterValueIndex index = index(2, List.of(
+                new String[]{"a1", "service", "A"},
+                new String[]{"a1", "service", "B"},
+                new String[]{"a1", "service", "C"}
+        ));
+
+        index.refresh();
+
+        assertEquals(List.of("A", "B"), index.search("service", null, "", 10));
+        assertEquals(List.of("A", "B"), index.search("service", "a1", "", 10));
+    }
+
+    @Test
+    void unknownDimensionIsRejected() {
+        CostFilterValueIndex index = index(10, List.of());
+
+        assertThrows(IllegalArgumentException.class, () -> index.search("bogus", null, "", 10));
+    }
+
+    // An index refreshed once over the given (accountId, groupBy, value) rows, with accounts a1 and a2 onboarded
+    private static CostFilterValueIndex index(int maxValues, List<String[]> rows) {
+        return index(maxValues, new FakeCostDataSource(rows));
+    }
+
+    private static CostFilterValueIndex index(int maxValues, CostDataSource source) {
+        AccountRepository accounts = (AccountRepository) Proxy.newProxyInstance(
+                AccountRepository.class.getClassLoader(),
+                new Class<?>[]{AccountRepository.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("findAll") && (args == null || args.length == 0)) {
+                        return List.of(Account.builder().id("a1").build(), Account.builder().id("a2").build());
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        CostFilterValueIndex index = new CostFilterValueIndex(source, accounts, true, 13, maxValues);
+        index.refresh();
+        return index;
+    }
+
+    private static class FakeCostDataSource implements CostDataSource {
+
+        private final List<String[]> rows;
+        private int scans;
+
+        FakeCostDataSource(List<String[]> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public void streamDistinctValuesByAccount(List<String> groupBys, LocalDate startDate, LocalDate endDate,
+                                                  DimensionValueConsumer consumer) {
+            scans++;
+            for (String[] row : rows) {
+                consumer.accept(row[0], row[1], row[2]);
+            }
+        }
+
+        @Override
+        public List<Map<String, Object>> getCostData(String groupBy, LocalDate startDate, LocalDate endDate,
+                                                     Map<String, List<String>> filters, Integer topN) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void streamCostData(String groupBy, LocalDate startDate, LocalDate endDate,
+                                   Map<String, List<String>> filters, Integer topN, CostRowConsumer consumer) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void streamCostDataByAccount(String groupBy, LocalDate startDate, LocalDate endDate,
+                                            AccountCostRowConsumer consumer) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.cloudBalanceBackend.service.cost;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CostPageCollectorTest {
+
+    @Test
+    void keepsFirstPageSizeGroupsAndFlagsLookAheadGroup() {
+        CostPage page = collect(2,
+                row("a", "2024-01", 1), row("a", "2024-02", 2),
+                row("b", "2024-01", 3),
+                row("c", "2024-01", 4), row("c", "2024-02", 5));
+
+        assertEquals(List.of("a|2024-01|1.0", "a|2024-02|2.0", "b|2024-01|3.0"), rows(page));
+        assertEquals("b", page.lastGroup());
+        assertTrue(page.hasMore());
+    }
+
+    @Test
+    void exactlyPageSizeGroupsIsTheLastPage() {
+        CostPage page = collect(2, row("a", "2024-01", 1), row("b", "2024-01", 2), row("b", "2024-02", 3));
+
+        assertEquals(List.of("a|2024-01|1.0", "b|2024-01|2.0", "b|2024-02|3.0"), rows(page));
+        assertEquals("b", page.lastGroup());
+        assertFalse(page.hasMore());
+    }
+
+    @Test
+    void emptyStringGroupIsAGroupOfItsOwn() {
+        // NULL groups arrive as '' (COALESCE in the page query) and sort first
+        CostPage page = collect(1, row("", "2024-01", 1), row("", "2024-02", 2), row("a", "2024-01", 3));
+
+        assertEquals(List.of("|2024-01|1.0", "|2024-02|2.0"), rows(page));
+        assertEquals("", page.lastGroup());
+        assertTrue(page.hasMore());
+    }
+
+    @Test
+    void emptyResultHasNoLastGroup() {
+        CostPage page = collect(5);
+
+        assertEquals(List.of(), page.rows());
+        assertNull(page.lastGroup());
+        assertFalse(page.hasMore());
+    }
+
+    private static CostPage collect(int pageSize, Object[]... rows) {
+        CostPageCollector collector = new CostPageCollector(pageSize);
+        for (Object[] row : rows) {
+            collector.accept((String) row[0], (String) row[1], (Double) row[2]);
+        }
+        return collector.toPage();
+    }
+
+    private static Object[] row(String group, String month, double cost) {
+        return new Object[]{group, month, cost};
+    }
+
+    private static List<String> rows(CostPage page) {
+        return page.rows().stream().map(CostPageCollectorTest::format).toList();
+    }
+
+    private static String format(Map<String, Object> row) {
+        return row.get("group") + "|" + row.get("month") + "|" + row.get("cost");
+    }
+}
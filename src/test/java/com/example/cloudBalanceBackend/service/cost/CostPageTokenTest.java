@@ -0,0 +1,47 @@
+package com.example.cloudBalanceBackend.service.cost;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CostPageTokenTest {
+
+    @Test
+    void roundTripsLastGroup() {
+        for (String group : List.of("Amazon EC2", "", "\u00fcmlaut/\u00fcnicode", "a+b=c")) {
+            String token = CostPageToken.encode(new CostPage(List.of(), group, true));
+
+            assertNotNull(token);
+            assertFalse(token.isEmpty());
+            assertEquals(group, CostPageToken.decode(token));
+        }
+    }
+
+    @Test
+    void lastPageHasNoToken() {
+        assertNull(CostPageToken.encode(new CostPage(List.of(), "z", false)));
+    }
+
+    @Test
+    void missingTokenStartsAtFirstPage() {
+        assertNull(CostPageToken.decode(null));
+        assertNull(CostPageToken.decode(""));
+    }
+
+    @Test
+    void rejectsMalformedToken() {
+        assertThrows(IllegalArgumentException.class, () -> CostPageToken.decode("not base64!"));
+    }
+
+    @Test
+    void rejectsTokenNotMadeByEncode() {
+        String tampered = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("Amazon EC2".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(IllegalArgumentException.class, () -> CostPageToken.decode(tampered));
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.cloudBalanceBackend.service.cost;
+
+import com.example.cloudBalanceBackend.model.Account;
+import com.example.cloudBalanceBackend.repository.AccountRepository;
+import com.example.cloudBalanceBackend.service.DataVersionTracker;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CostRollupCubeTest {
+
+    private static final YearMonth THIS_MONTH = YearMonth.now(ZoneOffset.UTC);
+    private static final YearMonth LAST_MONTH = THIS_MONTH.minusMonths(1);
+    private static final LocalDate START = LAST_MONTH.atDay(1);
+    private static final LocalDate END = THIS_MONTH.atEndOfMonth();
+
+    private final FakeCostDataSource source = new FakeCostDataSource();
+    private final DataVersionTracker versions = new DataVersionTracker(source, false);
+
+    @Test
+    void refreshLoadsEveryDimensionButResourceOnce() {
+        cube(true).refresh();
+
+        Set<String> expected = new HashSet<>(CostDimensions.GROUP_BY_MAPPING.keySet());
+        expected.remove("resource");
+        assertEquals(expected, new HashSet<>(source.loaded));
+        assertEquals(expected.size(), source.loaded.size());
+    }
+
+    @Test
+    void unfilteredRequestGetsTheSumOverEveryAccountInTheData() {
+        CostRollupCube cube = refreshed();
+
+        // "zz" is not onboarded but still counts towards all accounts
+        assertEquals(List.of(
+                "S3|" + LAST_MONTH + "|12.0",
+                "EC2|" + THIS_MONTH + "|3.0"
+        ), stream(cube, START, END, null, null));
+    }
+
+    @Test
+    void accountFilterSumsTheSelectedAccounts() {
+        CostRollupCube cube = refreshed();
+
+        assertEquals(List.of(
+                "S3|" + LAST_MONTH + "|8.0",
+                "EC2|" + THIS_MONTH + "|3.0"
+        ), stream(cube, START, END, Map.of("accountId", List.of("a1", "a2", "a1")), null));
+        assertEquals(List.of("EC2|" + THIS_MONTH + "|2.0"),
+                stream(cube, THIS_MONTH.atDay(1), END, Map.of("accountId", List.of("a2")), null));
+    }
+
+    @Test
+    void onboardedAccountWithoutCostsIsServedEmpty() {
+        CostRollupCube cube = refreshed();
+
+        assertTrue(cube.canServe("service", START, END, Map.of("accountId", List.of("a3"))));
+        assertEquals(List.of(), stream(cube, START, END, Map.of("accountId", List.of("a3")), null));
+    }
+
+    @Test
+    void requestsTheCubeCannotAnswerGoToTheSource() {
+        CostRollupCube cube = refreshed();
+
+        // Partial months
+        assertFalse(cube.canServe("service", START.plusDays(1), END, null));
+        assertFalse(cube.canServe("service", START, END.minusDays(1), null));
+        // Filters other than accountId
+        assertFalse(cube.canServe("service", START, END, Map.of("region", List.of("us-east-1"))));
+        assertFalse(cube.canServe("service", START, END,
+                Map.of("accountId", List.of("a1"), "region", List.of("us-east-1"))));
+        // Accounts not onboarded, excluded dimensions and months outside the window
+        assertFalse(cube.canServe("service", START, END, Map.of("accountId", List.of("zz"))));
+        assertFalse(cube.canServe("resource", START, END, null));
+        assertFalse(cube.canServe("service", THIS_MONTH.minusMonths(13).atDay(1), END, null));
+        assertFalse(cube.canServe("service", START, THIS_MONTH.plusMonths(1).atEndOfMonth(), null));
+
+        assertFalse(cube.stream("service", START, END, Map.of("region", List.of("us-east-1")), null,
+                (group, month, cost) -> fail("source request answered from the cube")));
+    }
+
+    @Test
+    void emptyFilterListsDoNotRestrictTheScope() {
+        CostRollupCube cube = refreshed();
+
+        assertTrue(cube.canServe("service", START, END, Map.of("region", List.of())));
+    }
+
+    @Test
+    void topNFoldsTheTailIntoOthers() {
+        CostRollupCube cube = refreshed();
+
+        // S3 (12) outranks EC2 (3)
+        assertEquals(List.of(
+                "S3|" + LAST_MONTH + "|12.0",
+                CostDimensions.OTHERS_GROUP + "|" + THIS_MONTH + "|3.0"
+        ), stream(cube, START, END, null, 1));
+    }
+
+    @Test
+    void nothingIsServedBeforeTheFirstRefreshOrWhenDisabled() {
+        assertFalse(cube(true).canServe("service", START, END, null));
+
+        CostRollupCube disabled = cube(false);
+        disabled.refresh();
+        assertFalse(disabled.canServe("service", START, END, null));
+        assertTrue(source.loaded.isEmpty());
+    }
+
+    @Test
+    void failedRefreshKeepsThePreviousCube() {
+        CostRollupCube cube = refreshed();
+        source.failure = new IllegalStateException("warehouse unavailable");
+
+        cube.refresh();
+
+        assertEquals(List.of("EC2|" + THIS_MONTH + "|2.0"),
+                stream(cube, THIS_MONTH.atDay(1), END, Map.of("accountId", List.of("a2")), null));
+    }
+
+    @Test
+    void onlyAChangedRefreshInvalidatesClientCaches() {
+        CostRollupCube cube = refreshed();
+        long version = versions.getVersion(null);
+
+        cube.refresh();
+        assertEquals(version, versions.getVersion(null));
+
+        source.rows.add(new Object[]{"a2", "EC2", LAST_MONTH.toString(), 5.0});
+        cube.refresh();
+        assertTrue(versions.getVersion(List.of("a1")) > version);
+    }
+
+    private CostRollupCube refreshed() {
+        CostRollupCube cube = cube(true);
+        cube.refresh();
+        return cube;
+    }
+
+    private CostRollupCube cube(boolean enabled) {
+        AccountRepository accounts = (AccountRepository) Proxy.newProxyInstance(
+                AccountRepository.class.getClassLoader(),
+                new Class<?>[]{AccountRepository.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("findAll") && (args == null || args.length == 0)) {
+                        return List.of(Account.builder().id("a1").build(), Account.builder().id("a2").build(),
+                                Account.builder().id("a3").build());
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        return new CostRollupCube(source, accounts, versions, enabled, 13);
+    }
+
+    private static List<String> stream(CostRollupCube cube, LocalDate start, LocalDate end,
+                                       Map<String, List<String>> filters, Integer topN) {
+        List<String> rows = new ArrayList<>();
+        assertTrue(cube.stream("service", start, end, filters, topN,
+                (group, month, cost) -> rows.add(group + "|" + month + "|" + cost)));
+        return rows;
+    }
+
+    // Streams the same account rows for every dimension, in no particular order
+    private static class FakeCostDataSource implements CostDataSource {
+        private final List<Object[]> rows = new ArrayList<>(List.of(
+                new Object[]{"a1", "EC2", THIS_MONTH.toString(), 1.0},
+                new Object[]{"zz", "S3", LAST_MONTH.toString(), 4.0},
+                new Object[]{"a2", "EC2", THIS_MONTH.toString(), 2.0},
+                new Object[]{"a1", "S3", LAST_MONTH.toString(), 8.0}
+        ));
+        private final List<String> loaded = new ArrayList<>();
+        private RuntimeException failure;
+
+        @Override
+        public List<Map<String, Object>> getCostData(String groupBy, LocalDate startDate, LocalDate endDate,
+                                                     Map<String, List<String>> filters, Integer topN) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void streamCostData(String groupBy, LocalDate startDate, LocalDate endDate,
+                                   Map<String, List<String>> filters, Integer topN, CostRowConsumer consumer) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void streamCostDataByAccount(String groupBy, LocalDate startDate, LocalDate endDate,
+                                            AccountCostRowConsumer consumer) {
+            if (failure != null) {
+                throw failure;
+            }
+            loaded.add(groupBy);
+            for (Object[] row : rows) {
+                consumer.accept((String) row[0], (String) row[1], (String) row[2], (Double) row[3]);
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.cloudBalanceBackend.service.cost;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GroupMonthSumsTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+    private static final LocalDate END = LocalDate.of(2024, 3, 31);
+
+    @Test
+    void withoutTopNEveryGroupIsEmittedMonthByMonth() {
+        GroupMonthSums sums = sums();
+
+        assertEquals(List.of(
+                "EC2|2024-01|10.0", "S3|2024-01|1.0", "Lambda|2024-01|2.0", "Others|2024-01|0.5",
+                "EC2|2024-02|20.0", "Lambda|2024-02|3.0",
+                "S3|2024-03|4.0"
+        ), emit(sums, null));
+    }
+
+    @Test
+    void topNKeepsTheMostExpensiveGroupsAndFoldsTheRestPerMonth() {
+        GroupMonthSums sums = sums();
+
+        // Totals: EC2 30, Lambda 5, S3 5, Others 0.5; Lambda wins the tie by name
+        assertEquals(List.of(
+                "EC2|2024-01|10.0", "Lambda|2024-01|2.0", CostDimensions.OTHERS_GROUP + "|2024-01|1.5",
+                "EC2|2024-02|20.0", "Lambda|2024-02|3.0",
+                CostDimensions.OTHERS_GROUP + "|2024-03|4.0"
+        ), emit(sums, 2));
+    }
+
+    @Test
+    void groupNamedOthersIsNotMergedIntoTheFold() {
+        GroupMonthSums sums = sums();
+
+        List<String> rows = emit(sums, 3);
+
+        assertTrue(rows.contains(CostDimensions.OTHERS_GROUP + "|2024-01|0.5"));
+        assertFalse(rows.stream().anyMatch(row -> row.startsWith("Others|")));
+        assertNotEquals("Others", CostDimensions.OTHERS_GROUP);
+    }
+
+    @Test
+    void topNCoveringEveryGroupAddsNoFold() {
+        assertEquals(emit(sums(), null), emit(sums(), 4));
+        assertEquals(emit(sums(), null), emit(sums(), 10));
+    }
+
+    private static GroupMonthSums sums() {
+        GroupMonthSums sums = new GroupMonthSums(START, END);
+        add(sums, "EC2", 0, 10);
+        add(sums, "S3", 0, 1);
+        add(sums, "Lambda", 0, 2);
+        add(sums, "Others", 0, 0.5);
+        add(sums, "EC2", 1, 15);
+        add(sums, "EC2", 1, 5);
+        add(sums, "Lambda", 1, 3);
+        add(sums, "S3", 2, 4);
+        return sums;
+    }
+
+    private static void add(GroupMonthSums sums, String group, int monthOffset, double cost) {
+        sums.add(sums.groupId(group), monthOffset, cost);
+    }
+
+    private static List<String> emit(GroupMonthSums sums, Integer topN) {
+        List<String> rows = new ArrayList<>();
+        sums.emit(topN, CostDimensions.OTHERS_GROUP, (group, month, cost) -> rows.add(group + "|" + month + "|" + cost));
+        return rows;
+    }
+}
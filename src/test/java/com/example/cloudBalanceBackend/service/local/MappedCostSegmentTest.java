@@ -0,0 +1,203 @@
+package com.example.cloudBalanceBackend.service.local;
+
+import com.example.cloudBalanceBackend.service.cost.CostDimensions;
+import com.example.cloudBalanceBackend.service.cost.GroupMonthSums;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedCostSegmentTest {
+
+    private static final int DIMENSIONS = CostDimensions.COLUMNS.size();
+    private static final int SERVICE = CostDimensions.COLUMNS.indexOf("SERVICE");
+    private static final int REGION = CostDimensions.COLUMNS.indexOf("REGION");
+    private static final int RESOURCE = CostDimensions.COLUMNS.indexOf("RESOURCE");
+    private static final LocalDate FIRST_DAY = LocalDate.of(2024, 1, 1);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripsOneByteCodes() throws Exception {
+        assertRoundTrip(generate(5_000, 200), 1);
+    }
+
+    @Test
+    void roundTripsTwoByteCodes() throws Exception {
+        assertRoundTrip(generate(5_000, 3_000), 2);
+    }
+
+    @Test
+    void roundTripsFourByteCodes() throws Exception {
+        assertRoundTrip(generate(70_000, 70_000), 4);
+    }
+
+    @Test
+    void emptyTableRoundTrips() throws Exception {
+        Path path = write(List.of());
+        MappedCostSegment segment = MappedCostSegment.open(path);
+
+        assertEquals(0, segment.getRowCount());
+        assertEquals(Map.of(), scan(segment, SERVICE, FIRST_DAY, FIRST_DAY.plusYears(1), noFilters()));
+    }
+
+    @Test
+    void scanAppliesDateRangeAndFiltersAcrossBatches() throws Exception {
+        List<Row> rows = generate(10_000, 3_000);
+        MappedCostSegment segment = MappedCostSegment.open(write(rows));
+
+        LocalDate start = LocalDate.of(2024, 2, 10);
+        LocalDate end = LocalDate.of(2024, 4, 20);
+        Set<String>[] filters = noFilters();
+        filters[SERVICE] = Set.of("service-1", "service-3");
+        filters[REGION] = Set.of("region-0", "region-2", "region-unknown");
+
+        Map<String, Double> byService = expected(rows, SERVICE, start, end, filters);
+        assertEquals(Set.of("service-1", "service-3"),
+                byService.keySet().stream().map(key -> key.substring(0, key.indexOf('|'))).collect(Collectors.toSet()));
+        assertEquals(byService, scan(segment, SERVICE, start, end, filters));
+        assertEquals(expected(rows, RESOURCE, start, end, filters), scan(segment, RESOURCE, start, end, filters));
+    }
+
+    @Test
+    void keyedScanSplitsRowsByKeyValue() throws Exception {
+        List<Row> rows = generate(10_000, 3_000);
+        MappedCostSegment segment = MappedCostSegment.open(write(rows));
+        LocalDate start = LocalDate.of(2024, 2, 10);
+        LocalDate end = LocalDate.of(2024, 4, 20);
+
+        Map<String, GroupMonthSums> byRegion = new HashMap<>();
+        segment.scan(REGION, SERVICE, (int) start.toEpochDay(), (int) end.toEpochDay(), noFilters(),
+                region -> byRegion.computeIfAbsent(region, r -> new GroupMonthSums(start, end)));
+
+        assertEquals(Set.of("region-0", "region-1", "region-2", "region-3"), byRegion.keySet());
+        for (Map.Entry<String, GroupMonthSums> entry : byRegion.entrySet()) {
+            Set<String>[] filters = noFilters();
+            filters[REGION] = Set.of(entry.getKey());
+            assertEquals(expected(rows, SERVICE, start, end, filters), collect(entry.getValue()));
+        }
+    }
+
+    @Test
+    void scanSkipsSegmentWhenFilterMatchesNoValue() throws Exception {
+        MappedCostSegment segment = MappedCostSegment.open(write(generate(2_000, 100)));
+        Set<String>[] filters = noFilters();
+        filters[REGION] = Set.of("region-unknown");
+
+        assertEquals(Map.of(), scan(segment, SERVICE, FIRST_DAY, FIRST_DAY.plusYears(1), filters));
+    }
+
+    @Test
+    void scanSkipsSegmentOutsideDateRange() throws Exception {
+        MappedCostSegment segment = MappedCostSegment.open(write(generate(2_000, 100)));
+
+        assertEquals(Map.of(), scan(segment, SERVICE, LocalDate.of(2025, 1, 1), LocalDate.of(2025, 12, 31), noFilters()));
+    }
+
+    @Test
+    void rejectsFileWithoutMagic() throws Exception {
+        Path path = dir.resolve("bogus" + CostSegmentFile.EXTENSION);
+        Files.write(path, new byte[64]);
+
+        assertThrows(IOException.class, () -> MappedCostSegment.open(path));
+    }
+
+    private void assertRoundTrip(List<Row> rows, int resourceCodeWidth) throws Exception {
+        Path path = write(rows);
+
+        CostSegmentFile.Header header = CostSegmentFile.readHeader(path, ByteBuffer.wrap(Files.readAllBytes(path)));
+        assertEquals(rows.size(), header.rowCount());
+        assertEquals(resourceCodeWidth, header.codeWidths()[RESOURCE]);
+        assertEquals(1, header.codeWidths()[SERVICE]);
+        assertEquals(rows.stream().mapToInt(row -> (int) row.day.toEpochDay()).min().getAsInt(), header.minDay());
+        assertEquals(rows.stream().mapToInt(row -> (int) row.day.toEpochDay()).max().getAsInt(), header.maxDay());
+
+        MappedCostSegment segment = MappedCostSegment.open(path);
+        assertEquals(rows.size(), segment.getRowCount());
+        assertEquals(rows.stream().map(row -> row.values[RESOURCE]).distinct().toList(),
+                Arrays.asList(segment.dictionary(RESOURCE)));
+
+        LocalDate end = FIRST_DAY.plusYears(1);
+        assertEquals(expected(rows, RESOURCE, FIRST_DAY, end, noFilters()),
+                scan(segment, RESOURCE, FIRST_DAY, end, noFilters()));
+        assertEquals(expected(rows, SERVICE, FIRST_DAY, end, noFilters()),
+                scan(segment, SERVICE, FIRST_DAY, end, noFilters()));
+    }
+
+    private Path write(List<Row> rows) throws Exception {
+        CostTable.Builder builder = CostTable.builder();
+        for (Row row : rows) {
+            builder.add(row.day, row.cost, row.values);
+        }
+        Path path = dir.resolve("segment-" + rows.size() + CostSegmentFile.EXTENSION);
+        CostSegmentFile.write(builder.build(), path);
+        return path;
+    }
+
+    // Rows over six months with `resources` distinct RESOURCE values; SERVICE and REGION have a handful
+    private static List<Row> generate(int count, int resources) {
+        Random random = new Random(7);
+        List<Row> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String[] values = new String[DIMENSIONS];
+            values[SERVICE] = "service-" + random.nextInt(5);
+            values[REGION] = "region-" + random.nextInt(4);
+            values[RESOURCE] = "resource-" + (i % resources);
+            // Remaining dimensions are left null and stored as ""
+            rows.add(new Row(FIRST_DAY.plusDays(random.nextInt(182)), Math.round(random.nextDouble() * 10_000) / 100.0, values));
+        }
+        return rows;
+    }
+
+    private static Map<String, Double> scan(MappedCostSegment segment, int groupDimension,
+                                            LocalDate start, LocalDate end, Set<String>[] filters) {
+        GroupMonthSums sums = new GroupMonthSums(start, end);
+        segment.scan(groupDimension, (int) start.toEpochDay(), (int) end.toEpochDay(), filters, sums);
+        return collect(sums);
+    }
+
+    // Same aggregate computed row by row
+    private static Map<String, Double> expected(List<Row> rows, int groupDimension,
+                                                LocalDate start, LocalDate end, Set<String>[] filters) {
+        GroupMonthSums sums = new GroupMonthSums(start, end);
+        for (Row row : rows) {
+            if (row.day.isBefore(start) || row.day.isAfter(end)) {
+                continue;
+            }
+            boolean accepted = true;
+            for (int d = 0; d < DIMENSIONS; d++) {
+                String value = row.values[d] != null ? row.values[d] : "";
+                accepted &= filters[d] == null || filters[d].contains(value);
+            }
+            if (accepted) {
+                String group = row.values[groupDimension] != null ? row.values[groupDimension] : "";
+                sums.add(sums.groupId(group), GroupMonthSums.monthIndex(row.day) - sums.getFirstMonth(), row.cost);
+            }
+        }
+        return collect(sums);
+    }
+
+    // "group|month" -> cost
+    private static Map<String, Double> collect(GroupMonthSums sums) {
+        Map<String, Double> result = new TreeMap<>();
+        sums.emit(null, CostDimensions.OTHERS_GROUP, (group, month, cost) -> result.put(group + "|" + month, cost));
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<String>[] noFilters() {
+        return new Set[DIMENSIONS];
+    }
+
+    private record Row(LocalDate day, double cost, String[] values) {
+    }
+}
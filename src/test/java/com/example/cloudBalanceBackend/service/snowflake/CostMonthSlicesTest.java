@@ -0,0 +1,162 @@
+package com.example.cloudBalanceBackend.service.snowflake;
+
+import com.example.cloudBalanceBackend.service.cost.CostQuery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CostMonthSlicesTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 7, 15);
+
+    private CostResultCache cache;
+    private CostMonthSlices monthSlices;
+    private RecordingFetch fetch;
+
+    @BeforeEach
+    void setUp() {
+        cache = new CostResultCache(true, 10_000, 900, 10_000, 86_400);
+        monthSlices = new CostMonthSlices(cache, 5);
+        fetch = new RecordingFetch();
+    }
+
+    @Test
+    void fetchesWholeRangeOnceWhenNothingIsCached() {
+        CostQuery query = query(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 31));
+
+        List<Map<String, Object>> rows = monthSlices.assemble(query, fetch, TODAY);
+
+        assertEquals(List.of(range("2024-01-01", "2024-03-31")), fetch.ranges);
+        assertEquals(List.of("2024-01", "2024-02", "2024-03"), months(rows));
+    }
+
+    @Test
+    void reusesCachedMonthsOnSecondCall() {
+        CostQuery query = query(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 31));
+
+        List<Map<String, Object>> first = monthSlices.assemble(query, fetch, TODAY);
+        fetch.ranges.clear();
+        List<Map<String, Object>> second = monthSlices.assemble(query, fetch, TODAY);
+
+        assertTrue(fetch.ranges.isEmpty());
+        assertEquals(first, second);
+    }
+
+    @Test
+    void fetchesEachContiguousRunOfMissingMonthsWithOneQuery() {
+        // February and May are cached by earlier single-month queries
+        monthSlices.assemble(query(LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 29)), fetch, TODAY);
+        monthSlices.assemble(query(LocalDate.of(2024, 5, 1), LocalDate.of(2024, 5, 31)), fetch, TODAY);
+        fetch.ranges.clear();
+
+        List<Map<String, Object>> rows = monthSlices.assemble(
+                query(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 6, 30)), fetch, TODAY);
+
+        assertEquals(List.of(
+                range("2024-01-01", "2024-01-31"),
+                range("2024-03-01", "2024-04-30"),
+                range("2024-06-01", "2024-06-30")
+        ), fetch.ranges);
+        assertEquals(List.of("2024-01", "2024-02", "2024-03", "2024-04", "2024-05", "2024-06"), months(rows));
+    }
+
+    @Test
+    void partiallyCoveredEdgeMonthsAreQueriedWithTheRequestedDatesAndNotCached() {
+        CostQuery query = query(LocalDate.of(2024, 1, 15), LocalDate.of(2024, 3, 10));
+
+        monthSlices.assemble(query, fetch, TODAY);
+
+        assertEquals(List.of(range("2024-01-15", "2024-03-10")), fetch.ranges);
+        assertNull(cache.getMonth(monthQuery(query, YearMonth.of(2024, 1))));
+        assertNotNull(cache.getMonth(monthQuery(query, YearMonth.of(2024, 2))));
+        assertNull(cache.getMonth(monthQuery(query, YearMonth.of(2024, 3))));
+    }
+
+    @Test
+    void partialMonthRequestDoesNotReuseWholeMonthSlice() {
+        monthSlices.assemble(query(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31)), fetch, TODAY);
+        fetch.ranges.clear();
+
+        monthSlices.assemble(query(LocalDate.of(2024, 1, 10), LocalDate.of(2024, 1, 20)), fetch, TODAY);
+
+        assertEquals(List.of(range("2024-01-10", "2024-01-20")), fetch.ranges);
+    }
+
+    @Test
+    void currentMonthIsNeverCached() {
+        CostQuery query = query(LocalDate.of(2024, 7, 1), LocalDate.of(2024, 7, 31));
+
+        monthSlices.assemble(query, fetch, TODAY);
+
+        assertNull(cache.getMonth(query));
+        assertFalse(monthSlices.isCacheableMonth(YearMonth.of(2024, 7), query, TODAY));
+    }
+
+    @Test
+    void previousMonthIsOnlyCachedOnceSettled() {
+        CostQuery june = query(LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 30));
+
+        // AWS can still restate June during the first days of July
+        assertFalse(monthSlices.isCacheableMonth(YearMonth.of(2024, 6), june, LocalDate.of(2024, 7, 1)));
+        assertFalse(monthSlices.isCacheableMonth(YearMonth.of(2024, 6), june, LocalDate.of(2024, 7, 5)));
+        assertTrue(monthSlices.isCacheableMonth(YearMonth.of(2024, 6), june, LocalDate.of(2024, 7, 6)));
+
+        monthSlices.assemble(june, fetch, LocalDate.of(2024, 7, 3));
+        assertNull(cache.getMonth(june));
+
+        monthSlices.assemble(june, fetch, LocalDate.of(2024, 7, 6));
+        assertNotNull(cache.getMonth(june));
+    }
+
+    @Test
+    void monthWithoutRowsIsCachedAsEmpty() {
+        fetch.skipMonth = "2024-02";
+        CostQuery query = query(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 31));
+
+        monthSlices.assemble(query, fetch, TODAY);
+
+        assertEquals(List.of(), cache.getMonth(monthQuery(query, YearMonth.of(2024, 2))));
+    }
+
+    private static CostQuery query(LocalDate start, LocalDate end) {
+        return CostQuery.of("service", start, end, Map.of("accountId", List.of("111")));
+    }
+
+    private static CostQuery monthQuery(CostQuery query, YearMonth month) {
+        return query.withDates(month.atDay(1), month.atEndOfMonth());
+    }
+
+    private static String range(String start, String end) {
+        return start + ".." + end;
+    }
+
+    private static List<String> months(List<Map<String, Object>> rows) {
+        return rows.stream().map(row -> (String) row.get("month")).distinct().toList();
+    }
+
+    // Returns one row per month of the requested range and records each range it was asked for
+    private static final class RecordingFetch implements Function<CostQuery, List<Map<String, Object>>> {
+
+        private final List<String> ranges = new ArrayList<>();
+        private String skipMonth;
+
+        @Override
+        public List<Map<String, Object>> apply(CostQuery range) {
+            ranges.add(range(range.getStartDate().toString(), range.getEndDate().toString()));
+            List<Map<String, Object>> rows = new ArrayList<>();
+            YearMonth last = YearMonth.from(range.getEndDate());
+            for (YearMonth month = YearMonth.from(range.getStartDate()); !month.isAfter(last); month = month.plusMonths(1)) {
+                if (!month.toString().equals(skipMonth)) {
+                    rows.add(Map.of("group", "EC2", "month", month.toString(), "cost", 10.0));
+                }
+            }
+            return rows;
+        }
+    }
+}
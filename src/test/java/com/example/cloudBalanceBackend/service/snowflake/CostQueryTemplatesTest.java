@@ -0,0 +1,51 @@
+package com.example.cloudBalanceBackend.service.snowflake;
+
+import com.example.cloudBalanceBackend.service.cost.CostDimensions;
+import com.example.cloudBalanceBackend.service.cost.CostQuery;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CostQueryTemplatesTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+    private static final LocalDate END = LocalDate.of(2024, 3, 31);
+
+    @Test
+    void topNFoldsTheTailIntoTheReservedOthersGroup() {
+        CostQueryTemplates templates = new CostQueryTemplates();
+
+        SqlStatement statement = templates.costQuery("SERVICE",
+                CostQuery.of("service", START, END, Map.of("region", List.of("us-east-1")), 5));
+
+        assertTrue(statement.sql().contains("ELSE '" + CostDimensions.OTHERS_GROUP + "' END AS GROUP_NAME"));
+        assertTrue(statement.sql().contains("ROW_NUMBER() OVER (ORDER BY SUM(COSTS) DESC, GROUP_NAME)"));
+        // N is bound last, after the dates and filter lists
+        assertEquals(List.of("2024-01-01", "2024-03-31", "[\"us-east-1\"]", 5), statement.params());
+    }
+
+    @Test
+    void queryWithoutTopNHasNoFold() {
+        CostQueryTemplates templates = new CostQueryTemplates();
+
+        SqlStatement statement = templates.costQuery("SERVICE", CostQuery.of("service", START, END, Map.of()));
+
+        assertFalse(statement.sql().contains(CostDimensions.OTHERS_GROUP));
+        assertEquals(List.of("2024-01-01", "2024-03-31"), statement.params());
+    }
+
+    @Test
+    void differentNShareOneStatementText() {
+        CostQueryTemplates templates = new CostQueryTemplates();
+
+        SqlStatement top5 = templates.costQuery("SERVICE", CostQuery.of("service", START, END, Map.of(), 5));
+        SqlStatement top10 = templates.costQuery("SERVICE", CostQuery.of("service", START, END, Map.of(), 10));
+
+        assertEquals(top5.sql(), top10.sql());
+        assertEquals(1L, templates.getStats().get("hits"));
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.cloudBalanceBackend.service.snowflake;
+
+import com.example.cloudBalanceBackend.service.cost.CostQuery;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CostResultCacheTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+    private static final LocalDate END = LocalDate.of(2024, 3, 31);
+
+    @Test
+    void returnsCachedRowsForSameQuery() {
+        CostResultCache cache = cache(100, 900);
+        CostQuery query = query("service", Map.of("region", List.of("us-east-1")));
+
+        assertNull(cache.get(query));
+        cache.put(query, rows(3));
+
+        assertEquals(rows(3), cache.get(query));
+    }
+
+    @Test
+    void normalizesFilterOrderInKey() {
+        CostResultCache cache = cache(100, 900);
+        Map<String, List<String>> filters = new LinkedHashMap<>();
+        filters.put("service", List.of("S3", "EC2"));
+        filters.put("accountId", List.of("111"));
+        Map<String, List<String>> reordered = new LinkedHashMap<>();
+        reordered.put("accountId", List.of("111"));
+        reordered.put("service", List.of("EC2", "S3", "EC2"));
+
+        cache.put(query("region", filters), rows(2));
+
+        assertEquals(rows(2), cache.get(query("region", reordered)));
+        assertNull(cache.get(query("region", Map.of("service", List.of("EC2", "S3")))));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedWhenTotalRowsExceedLimit() {
+        CostResultCache cache = cache(10, 900);
+        CostQuery first = query("service", Map.of());
+        CostQuery second = query("region", Map.of());
+        CostQuery third = query("usageType", Map.of());
+
+        cache.put(first, rows(4));
+        cache.put(second, rows(4));
+        cache.get(first);
+        cache.put(third, rows(4));
+
+        assertNotNull(cache.get(first));
+        assertNull(cache.get(second));
+        assertNotNull(cache.get(third));
+        assertEquals(8L, resultStats(cache).get("cachedRows"));
+        assertEquals(1L, resultStats(cache).get("evictions"));
+    }
+
+    @Test
+    void doesNotCacheResultLargerThanLimit() {
+        CostResultCache cache = cache(10, 900);
+        CostQuery small = query("service", Map.of());
+        CostQuery large = query("resource", Map.of());
+
+        cache.put(small, rows(5));
+        cache.put(large, rows(11));
+
+        assertNull(cache.get(large));
+        assertNotNull(cache.get(small));
+    }
+
+    @Test
+    void replacingEntryKeepsRowCountAccurate() {
+        CostResultCache cache = cache(10, 900);
+        CostQuery query = query("service", Map.of());
+
+        cache.put(query, rows(6));
+        cache.put(query, rows(3));
+
+        assertEquals(3L, resultStats(cache).get("cachedRows"));
+        assertEquals(rows(3), cache.get(query));
+    }
+
+    @Test
+    void expiredEntryIsAMiss() {
+        CostResultCache cache = cache(100, 0);
+        CostQuery query = query("service", Map.of());
+
+        cache.put(query, rows(2));
+
+        assertNull(cache.get(query));
+        assertEquals(1L, resultStats(cache).get("expirations"));
+        assertEquals(0L, resultStats(cache).get("cachedRows"));
+    }
+
+    @Test
+    void invalidateDropsMatchingResultsAndMonthSlices() {
+        CostResultCache cache = cache(100, 900);
+        CostQuery account1 = query("service", Map.of("accountId", List.of("111")));
+        CostQuery account2 = query("service", Map.of("accountId", List.of("222")));
+        CostQuery account1Month = account1.withDates(START, LocalDate.of(2024, 1, 31));
+
+        cache.put(account1, rows(2));
+        cache.put(account2, rows(2));
+        cache.putMonth(account1Month, rows(1));
+
+        cache.invalidate(query -> "111".equals(query.getAccountId()));
+
+        assertNull(cache.get(account1));
+        assertNull(cache.getMonth(account1Month));
+        assertNotNull(cache.get(account2));
+        assertEquals(2L, resultStats(cache).get("cachedRows"));
+    }
+
+    @Test
+    void cachedRowsAreACopy() {
+        CostResultCache cache = cache(100, 900);
+        CostQuery query = query("service", Map.of());
+        List<Map<String, Object>> rows = new ArrayList<>(rows(2));
+
+        cache.put(query, rows);
+        rows.clear();
+
+        assertEquals(2, cache.get(query).size());
+        assertThrows(UnsupportedOperationException.class, () -> cache.get(query).clear());
+    }
+
+    @Test
+    void disabledCacheStoresNothing() {
+        CostResultCache cache = new CostResultCache(false, 100, 900, 100, 900);
+        CostQuery query = query("service", Map.of());
+
+        cache.put(query, rows(1));
+
+        assertNull(cache.get(query));
+    }
+
+    private static CostResultCache cache(long maxRows, long ttlSeconds) {
+        return new CostResultCache(true, maxRows, ttlSeconds, maxRows, ttlSeconds);
+    }
+
+    private static CostQuery query(String groupBy, Map<String, List<String>> filters) {
+        return CostQuery.of(groupBy, START, END, filters);
+    }
+
+    private static List<Map<String, Object>> rows(int count) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(Map.of("group", "g" + i, "cost", (double) i));
+        }
+        return rows;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> resultStats(CostResultCache cache) {
+        return (Map<String, Object>) cache.getStats().get("results");
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.cloudBalanceBackend.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.msgpack.core.MessagePack;
+import org.msgpack.core.MessageUnpacker;
+
+import java.io.ByteArrayOutputStream;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CostPivotTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void sameJsonAsMapBasedTransformForSparseRows() throws Exception {
+        Random random = new Random(42);
+        List<Map<String, Object>> rows = new ArrayList<>();
+        // Months arrive out of order and not every group has cost in every month
+        for (String month : List.of("2024-03", "2024-01", "2024-02", "2023-12")) {
+            for (int g = 0; g < 50; g++) {
+                if (random.nextInt(4) != 0) {
+                    rows.add(row("group-" + g, month, random.nextDouble() * 1000));
+                }
+            }
+        }
+
+        assertSameJson(rows, "service");
+    }
+
+    @Test
+    void sameJsonForIntegralCostsAndIncompleteRows() throws Exception {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        rows.add(row("EC2", "2024-01", 10));
+        rows.add(row("EC2", "2024-02", 20L));
+        rows.add(row("S3", "2024-02", 1.5f));
+        rows.add(row("S3", "2024-01", 2.25));
+        rows.add(row(null, "2024-01", 1.0));
+        rows.add(row("Lambda", null, 1.0));
+        rows.add(row("Lambda", "2024-03", null));
+        rows.add(row("", "2024-03", 0.0));
+
+        assertSameJson(rows, "service");
+    }
+
+    @Test
+    void sameJsonWhenGroupMonthRepeats() throws Exception {
+        List<Map<String, Object>> rows = List.of(
+                row("EC2", "2024-01", 1.0),
+                row("EC2", "2024-01", 2.0)
+        );
+
+        assertSameJson(rows, "region");
+    }
+
+    @Test
+    void sameJsonForEmptyResult() throws Exception {
+        assertSameJson(List.of(), "resource");
+    }
+
+    @Test
+    void matrixHoldsZeroForMissingCells() {
+        CostPivot pivot = CostPivot.from(List.of(
+                row("EC2", "2024-02", 5.0),
+                row("S3", "2024-01", 3.0)
+        ), "service");
+
+        assertEquals(2, pivot.getGroupCount());
+        assertEquals("EC2", pivot.getGroup(0));
+        assertEquals("2024-01", pivot.getMonth(0));
+        assertEquals(0.0, pivot.getCost(0, 0));
+        assertEquals(5.0, pivot.getCost(0, 1));
+        assertEquals(3.0, pivot.getCost(1, 0));
+        assertEquals(0.0, pivot.getCost(1, 1));
+    }
+
+    @Test
+    void messagePackHoldsTheSameColumns() throws Exception {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        // More than 15 groups and 31-byte names, so array and string headers leave their compact forms
+        for (int g = 0; g < 20; g++) {
+            rows.add(row("group-" + g + "-".repeat(30), "2024-02", g * 1.5));
+            if (g % 3 == 0) {
+                rows.add(row("group-" + g + "-".repeat(30), "2024-01", g + 0.25));
+            }
+        }
+        CostPivot pivot = CostPivot.from(rows, "service");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        pivot.writeTo(new MessagePackWriter(out));
+
+        MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(out.toByteArray());
+        assertEquals(4, unpacker.unpackMapHeader());
+        assertEquals("groupBy", unpacker.unpackString());
+        assertEquals("service", unpacker.unpackString());
+
+        assertEquals("groups", unpacker.unpackString());
+        assertEquals(20, unpacker.unpackArrayHeader());
+        for (int g = 0; g < 20; g++) {
+            assertEquals(pivot.getGroup(g), unpacker.unpackString());
+        }
+
+        assertEquals("months", unpacker.unpackString());
+        assertEquals(2, unpacker.unpackArrayHeader());
+        assertEquals("2024-01", unpacker.unpackString());
+        assertEquals("2024-02", unpacker.unpackString());
+
+        // Row-major: every month of a group before the next group
+        assertEquals("costs", unpacker.unpackString());
+        assertEquals(40, unpacker.unpackArrayHeader());
+        for (int g = 0; g < 20; g++) {
+            assertEquals(g % 3 == 0 ? g + 0.25 : 0.0, unpacker.unpackDouble());
+            assertEquals(g * 1.5, unpacker.unpackDouble());
+        }
+        assertFalse(unpacker.hasNext());
+    }
+
+    private void assertSameJson(List<Map<String, Object>> rows, String groupBy) throws Exception {
+        String expected = mapper.writeValueAsString(legacyTransform(rows, groupBy));
+        String actual = mapper.writeValueAsString(CostPivot.from(rows, groupBy).toResponse());
+
+        // Row maps are unordered in the old output, so compare the parsed trees
+        assertEquals(mapper.readTree(expected), mapper.readTree(actual));
+    }
+
+    private static Map<String, Object> row(String group, String month, Object cost) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("group", group);
+        row.put("month", month);
+        row.put("cost", cost);
+        return row;
+    }
+
+    // The map-based CostDataTransformer.transform that CostPivot replaced
+    private static Map<String, Object> legacyTransform(List<Map<String, Object>> data, String groupBy) {
+        Map<String, Map<String, Double>> groupedData = new LinkedHashMap<>();
+        Set<String> monthsSet = new TreeSet<>();
+
+        for (Map<String, Object> row : data) {
+            String group = (String) row.get("group");
+            String month = (String) row.get("month");
+            Object costObj = row.get("cost");
+
+            if (group == null || month == null || costObj == null) {
+                continue;
+            }
+
+            Double cost = convertToDouble(costObj);
+            monthsSet.add(month);
+
+            groupedData.putIfAbsent(group, new HashMap<>());
+            groupedData.get(group).put(month, cost);
+        }
+
+        List<Map<String, Object>> formattedData = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Double>> entry : groupedData.entrySet()) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("name", entry.getKey());
+
+            for (String month : monthsSet) {
+                row.put(month, entry.getValue().getOrDefault(month, 0.0));
+            }
+
+            formattedData.add(row);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("data", formattedData);
+        response.put("months", new ArrayList<>(monthsSet));
+        response.put("groupBy", groupBy);
+
+        return response;
+    }
+
+    private static Double convertToDouble(Object costObj) {
+        if (costObj instanceof Double) {
+            return (Double) costObj;
+        } else if (costObj instanceof Integer) {
+            return ((Integer) costObj).doubleValue();
+        } else if (costObj instanceof Long) {
+            return ((Long) costObj).doubleValue();
+        } else if (costObj instanceof Float) {
+            return ((Float) costObj).doubleValue();
+        }
+        return 0.0;
+    }
+}
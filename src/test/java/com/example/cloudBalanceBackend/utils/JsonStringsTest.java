@@ -0,0 +1,38 @@
+package com.example.cloudBalanceBackend.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonStringsTest {
+
+    @Test
+    void specialCharactersAreEscaped() throws IOException {
+        StringWriter out = new StringWriter();
+
+        JsonStrings.append(out, "a\"b\\c\nd\re\tf\u0001g\u00e9");
+
+        assertEquals("\"a\\\"b\\\\c\\nd\\re\\tf\\u0001g\u00e9\"", out.toString());
+    }
+
+    @Test
+    void nullIsWrittenAsJsonNull() throws IOException {
+        StringWriter out = new StringWriter();
+
+        JsonStrings.append(out, null);
+
+        assertEquals("null", out.toString());
+    }
+
+    @Test
+    void arrayJoinsEncodedStrings() {
+        assertEquals("[]", JsonStrings.array(List.of()));
+        assertEquals("[\"us-east-1\",\"say \\\"hi\\\"\",null]",
+                JsonStrings.array(Arrays.asList("us-east-1", "say \"hi\"", null)));
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.cloudBalanceBackend.utils;
+
+import org.junit.jupiter.api.Test;
+import org.msgpack.core.MessagePack;
+import org.msgpack.core.MessageUnpacker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Output is decoded with msgpack-core, and header bytes are checked to be the smallest form
+class MessagePackWriterTest {
+
+    @Test
+    void mapHeadersAtSizeBoundaries() throws Exception {
+        int[] sizes = {0, 15, 16, 65_535, 65_536};
+        int[] firstBytes = {0x80, 0x8f, 0xde, 0xde, 0xdf};
+        int[] headerLengths = {1, 1, 3, 3, 5};
+        for (int i = 0; i < sizes.length; i++) {
+            int size = sizes[i];
+            byte[] bytes = write(writer -> writer.writeMapHeader(size));
+
+            assertEquals(firstBytes[i], bytes[0] & 0xff, "map " + size);
+            assertEquals(headerLengths[i], bytes.length, "map " + size);
+            assertEquals(size, unpacker(bytes).unpackMapHeader());
+        }
+    }
+
+    @Test
+    void arrayHeadersAtSizeBoundaries() throws Exception {
+        int[] sizes = {0, 15, 16, 65_535, 65_536};
+        int[] firstBytes = {0x90, 0x9f, 0xdc, 0xdc, 0xdd};
+        int[] headerLengths = {1, 1, 3, 3, 5};
+        for (int i = 0; i < sizes.length; i++) {
+            int size = sizes[i];
+            byte[] bytes = write(writer -> writer.writeArrayHeader(size));
+
+            assertEquals(firstBytes[i], bytes[0] & 0xff, "array " + size);
+            assertEquals(headerLengths[i], bytes.length, "array " + size);
+            assertEquals(size, unpacker(bytes).unpackArrayHeader());
+        }
+    }
+
+    @Test
+    void stringsAtLengthBoundaries() throws Exception {
+        int[] lengths = {0, 31, 32, 255, 256, 65_535, 65_536};
+        int[] firstBytes = {0xa0, 0xbf, 0xd9, 0xd9, 0xda, 0xda, 0xdb};
+        int[] headerLengths = {1, 1, 2, 2, 3, 3, 5};
+        for (int i = 0; i < lengths.length; i++) {
+            String value = "x".repeat(lengths[i]);
+            byte[] bytes = write(writer -> writer.writeString(value));
+
+            assertEquals(firstBytes[i], bytes[0] & 0xff, "string " + lengths[i]);
+            assertEquals(headerLengths[i] + lengths[i], bytes.length, "string " + lengths[i]);
+            assertEquals(value, unpacker(bytes).unpackString());
+        }
+    }
+
+    @Test
+    void stringLengthCountsUtf8Bytes() throws Exception {
+        // 16 characters, 32 UTF-8 bytes: too long for a fixstr
+        String value = "\u00e9".repeat(16);
+        byte[] bytes = write(writer -> writer.writeString(value));
+
+        assertEquals(0xd9, bytes[0] & 0xff);
+        assertEquals(value, unpacker(bytes).unpackString());
+    }
+
+    @Test
+    void doublesAndNil() throws Exception {
+        double[] values = {0.0, -1.5, 1234.5678, Double.MAX_VALUE, Double.MIN_VALUE};
+        byte[] bytes = write(writer -> {
+            for (double value : values) {
+                writer.writeDouble(value);
+            }
+            writer.writeNil();
+            writer.writeString(null);
+        });
+
+        MessageUnpacker unpacker = unpacker(bytes);
+        for (double value : values) {
+            assertEquals(value, unpacker.unpackDouble());
+        }
+        unpacker.unpackNil();
+        unpacker.unpackNil();
+        assertFalse(unpacker.hasNext());
+    }
+
+    private static byte[] write(WriterAction action) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MessagePackWriter writer = new MessagePackWriter(out);
+        action.run(writer);
+        writer.flush();
+        return out.toByteArray();
+    }
+
+    private static MessageUnpacker unpacker(byte[] bytes) {
+        return MessagePack.newDefaultUnpacker(bytes);
+    }
+
+    private interface WriterAction {
+        void run(MessagePackWriter writer) throws IOException;
+    }
+}
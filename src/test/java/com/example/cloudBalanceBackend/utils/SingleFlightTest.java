@@ -0,0 +1,132 @@
+package com.example.cloudBalanceBackend.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        SingleFlight<String, Object> singleFlight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Object result = new Object();
+
+        List<Future<Object>> calls = submitCallers(singleFlight, () -> {
+            loads.incrementAndGet();
+            await(release);
+            return result;
+        });
+        awaitWaiters(singleFlight, CALLERS - 1);
+        release.countDown();
+
+        for (Future<Object> call : calls) {
+            assertSame(result, call.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, singleFlight.getExecutions());
+        assertEquals(CALLERS - 1, singleFlight.getCoalesced());
+    }
+
+    @Test
+    void exceptionReachesEveryWaiter() throws Exception {
+        SingleFlight<String, Object> singleFlight = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("load failed");
+
+        List<Future<Object>> calls = submitCallers(singleFlight, () -> {
+            await(release);
+            throw failure;
+        });
+        awaitWaiters(singleFlight, CALLERS - 1);
+        release.countDown();
+
+        for (Future<Object> call : calls) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> call.get(5, TimeUnit.SECONDS));
+            assertSame(failure, e.getCause());
+        }
+        assertEquals(1, singleFlight.getExecutions());
+    }
+
+    @Test
+    void keyIsReleasedAfterSuccess() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+        assertEquals("first", singleFlight.execute("key", () -> "first"));
+        assertEquals(0, singleFlight.getInFlightCount());
+        assertEquals("second", singleFlight.execute("key", () -> "second"));
+        assertEquals(2, singleFlight.getExecutions());
+    }
+
+    @Test
+    void keyIsReleasedAfterFailure() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+        assertThrows(IllegalStateException.class, () -> singleFlight.execute("key", () -> {
+            throw new IllegalStateException("load failed");
+        }));
+        assertEquals(0, singleFlight.getInFlightCount());
+        assertEquals("second", singleFlight.execute("key", () -> "second"));
+    }
+
+    @Test
+    void differentKeysLoadIndependently() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+        String outer = singleFlight.execute("a", () -> "a" + singleFlight.execute("b", () -> "b"));
+
+        assertEquals("ab", outer);
+        assertEquals(2, singleFlight.getExecutions());
+        assertEquals(0, singleFlight.getCoalesced());
+    }
+
+    // Every caller uses the same key; the first to arrive runs the loader
+    private List<Future<Object>> submitCallers(SingleFlight<String, Object> singleFlight, Callable<Object> loader) {
+        List<Future<Object>> calls = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            calls.add(executor.submit(() -> singleFlight.execute("key", () -> {
+                try {
+                    return loader.call();
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            })));
+        }
+        return calls;
+    }
+
+    private static void awaitWaiters(SingleFlight<?, ?> singleFlight, int waiters) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (singleFlight.getCoalesced() < waiters) {
+            assertTrue(System.currentTimeMillis() < deadline, "callers did not join the in-flight load");
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}